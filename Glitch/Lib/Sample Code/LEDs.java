@@ -62,4 +62,15 @@ public class LEDs extends AbstractLEDS {
 // For example, if we wanted to set the pattern of our ledStrip Section to a solid red color for 2 seconds, we would do this:
         // ledStrip.setPattern(LEDPattern.solid(Color.kRed), 2);
 // If you don't specify a duration for the pattern, it will just stay on forever until you change it. So this would work for an infinite duration:
-        // ledStrip.setPattern(LEDPattern.solid(Color.kRed));
\ No newline at end of file
+        // ledStrip.setPattern(LEDPattern.solid(Color.kRed));
+// To show something over whatever is set without replacing it, push it with a higher priority, and pop it when you're done.
+        // PatternRequest alert = ledStrip.push(LEDPattern.solid(Color.kBlue), 10);
+        // alert.pop();
+// A pushed pattern can also have a duration in seconds, after which it pops itself:
+        // ledStrip.push(LEDPattern.solid(Color.kBlue), 10, 2);
+// LEDCommand does this for you, it pushes its pattern when it starts and pops it when it ends.
+// Commands push one priority above setPattern, so a setPattern call while a command runs shows once the command ends.
+// If you want to know how much of the loop your LEDs are using, turn on instrumentation and watch the numbers in AdvantageScope:
+        // enableInstrumentation(new NetworkTableLogger("LEDs"));
+// In simulation you can watch the strip from a terminal by exporting it, and running LEDFrameExportReader on the same file:
+        // if (RobotBase.isSimulation()) startExport(Path.of("/tmp/leds.glex"));
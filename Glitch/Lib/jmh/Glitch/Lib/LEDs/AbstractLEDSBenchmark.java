@@ -0,0 +1,103 @@
+package Glitch.Lib.LEDs;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.LEDPattern;
+import edu.wpi.first.wpilibj.util.Color;
+
+/**
+ * Per-loop cost of AbstractLEDS.periodic() with no strip attached, stepping a hand-driven clock by 20 ms a loop.
+ * Every layout gets FakeLEDS's ripple bases, and started pushes a solid purple on top of them the way FakeLEDS.start()
+ * does. Loops that don't push the strip only render what's due, so the average covers both kinds of loop.
+ *
+ * Layouts:
+ *   fake    - FakeLEDS scaled to the strip: a quarter, a reversed quarter and the remaining half
+ *   single  - one section covering the whole strip
+ *   sixteen - sixteen equal sections, every other one reversed
+ *
+ * Run with -prof gc to get the bytes allocated per loop (gc.alloc.rate.norm) next to the ns per loop, and see
+ * {@link GlitchLEDPatternsBenchmark} for how to build and run the benchmarks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AbstractLEDSBenchmark {
+  private static final long kLoopMicros = 20_000;
+  private static final long kSeed = 8727;
+
+  @Param({"60", "300", "1000", "2000"})
+  public int length;
+
+  @Param({"fake", "single", "sixteen"})
+  public String layout;
+
+  @Param({"false", "true"})
+  public boolean started;
+
+  private LEDFrameClock previousClock;
+  private long time = 1_000_000;
+  private AbstractLEDS leds;
+
+  static int[] sectionLengths(String layout, int length) {
+    switch (layout) {
+      case "fake":
+        return new int[] {length / 4, -(length / 4), length - 2 * (length / 4)};
+      case "single":
+        return new int[] {length};
+      case "sixteen":
+        int[] sections = new int[16];
+        for (int i = 0; i < sections.length; i++) {
+          int sectionLength = length / 16 + (i < length % 16 ? 1 : 0);
+          sections[i] = i % 2 == 0 ? sectionLength : -sectionLength;
+        }
+        return sections;
+      default:
+        throw new IllegalArgumentException("No layout named " + layout + ".");
+    }
+  }
+
+  @Setup
+  public void setup() {
+    HAL.initialize(500, 0);
+    previousClock = LEDFrameClock.getDefault();
+    LEDFrameClock clock = new LEDFrameClock(() -> time);
+    LEDFrameClock.setDefault(clock);
+
+    leds = new AbstractLEDS(clock, length, sectionLengths(layout, length)) {};
+    LEDPattern[] bases = {
+      GlitchLEDPatterns.ripple(GlitchLEDPatterns.green, 0.11, 7, 14, kSeed),
+      GlitchLEDPatterns.ripple(GlitchLEDPatterns.ace, 0.11, 7, 14, kSeed + 1),
+      GlitchLEDPatterns.ripple(GlitchLEDPatterns.funGradient, 0.11, 7, 14, kSeed + 2)
+    };
+    int i = 0;
+    for (AbstractLEDS.Section section : leds.getSections()) {
+      section.setBase(bases[i++ % bases.length]);
+      if (started) {
+        section.setPattern(LEDPattern.solid(Color.kPurple));
+      }
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    LEDFrameClock.setDefault(previousClock);
+  }
+
+  @Benchmark
+  public AbstractLEDS periodic() {
+    time += kLoopMicros;
+    leds.periodic();
+    return leds;
+  }
+}
@@ -0,0 +1,123 @@
+package Glitch.Lib.LEDs;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.LEDPattern;
+import edu.wpi.first.wpilibj.util.Color;
+
+/**
+ * Per-frame cost of every constant and factory in GlitchLEDPatterns, so a slow pattern shows up here instead of as a
+ * loop overrun. Each op steps a hand-driven LED clock by a 20 ms loop and renders one frame into an
+ * AddressableLEDBuffer, without a strip. Patterns still built on the WPILib decorators, like theCoolerGreen, read the
+ * FPGA clock instead, so setup initializes the HAL and those patterns move with real time, not the 20 ms steps.
+ *
+ * Constants are named as they are in GlitchLEDPatterns and factories end in (), built with a fixed seed where they
+ * take one. Run with -prof gc to get the bytes allocated per frame (gc.alloc.rate.norm) next to the ns per frame.
+ *
+ * There's no build file for the benchmarks here. The jmh directory is its own source set: compile it against the
+ * library classes, WPILib and jmh-core (with their dependencies), and jmh-generator-annprocess on the annotation
+ * processor path so the benchmark harness gets generated. Then run any of the benchmarks through the JMH launcher,
+ * with the WPILib native libraries on java.library.path for the HAL:
+ * <pre>
+ *   javac -cp main-classes:wpilib-jars:jmh-core.jar -processorpath jmh-generator-annprocess.jar:jmh-core.jar \
+ *       -d jmh-classes $(find jmh -name '*.java')
+ *   java -Djava.library.path=wpilib-natives -cp jmh-classes:main-classes:wpilib-jars:jmh-core.jar \
+ *       org.openjdk.jmh.Main GlitchLEDPatternsBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GlitchLEDPatternsBenchmark {
+  private static final long kLoopMicros = 20_000;
+  private static final long kSeed = 8727;
+
+  // Factories are called per trial, so stateful patterns like fire start fresh for every strip length
+  static final Map<String, Supplier<LEDPattern>> kPatterns = new LinkedHashMap<String, Supplier<LEDPattern>>();
+  static {
+    kPatterns.put("purple", () -> GlitchLEDPatterns.purple);
+    kPatterns.put("rainbow", () -> GlitchLEDPatterns.rainbow);
+    kPatterns.put("blue", () -> GlitchLEDPatterns.blue);
+    kPatterns.put("ace", () -> GlitchLEDPatterns.ace);
+    kPatterns.put("sunsetAce", () -> GlitchLEDPatterns.sunsetAce);
+    kPatterns.put("green", () -> GlitchLEDPatterns.green);
+    kPatterns.put("blinkyGreen", () -> GlitchLEDPatterns.blinkyGreen);
+    kPatterns.put("theCoolerGreen", () -> GlitchLEDPatterns.theCoolerGreen);
+    kPatterns.put("darkGreen", () -> GlitchLEDPatterns.darkGreen);
+    kPatterns.put("elevatorProgress", () -> GlitchLEDPatterns.elevatorProgress);
+    kPatterns.put("coralPickup", () -> GlitchLEDPatterns.coralPickup);
+    kPatterns.put("algaePickup", () -> GlitchLEDPatterns.algaePickup);
+    kPatterns.put("fire", () -> GlitchLEDPatterns.fire);
+    kPatterns.put("funGradient", () -> GlitchLEDPatterns.funGradient);
+    for (GlitchLEDPatterns.enzoMap map : GlitchLEDPatterns.enzoMap.values()) {
+      kPatterns.put("enzoMap." + map.name(), map::getEnzoMap);
+    }
+    kPatterns.put("solid()", () -> GlitchLEDPatterns.solid(Color.kOrange));
+    kPatterns.put("linearProgress()", () -> GlitchLEDPatterns.linearProgress(GlitchLEDPatterns.rainbow, 0.6, 1));
+    kPatterns.put("baked()", () -> GlitchLEDPatterns.baked(GlitchLEDPatterns.blue, 1 / 0.15));
+    kPatterns.put("oldFire()", () -> GlitchLEDPatterns.oldFire(GlitchLEDPatterns.fire, 0.11, kSeed));
+    kPatterns.put("fire()", () -> GlitchLEDPatterns.fire(GlitchLEDPatterns.fire, 0.11, null, 0.5, kSeed));
+    kPatterns.put("randomNoise()", () -> GlitchLEDPatterns.randomNoise(GlitchLEDPatterns.green, 0.05, kSeed));
+    kPatterns.put("ripple()", () -> GlitchLEDPatterns.ripple(GlitchLEDPatterns.funGradient, 0.11, 7, 14, kSeed));
+    kPatterns.put("rainDrops()", () -> GlitchLEDPatterns.rainDrops(GlitchLEDPatterns.ace, 10, 6, kSeed));
+  }
+
+  @Param({"60", "300", "1000", "2000"})
+  public int length;
+
+  @Param({
+    "purple", "rainbow", "blue", "ace", "sunsetAce", "green", "blinkyGreen", "theCoolerGreen", "darkGreen",
+    "elevatorProgress", "coralPickup", "algaePickup", "fire", "funGradient",
+    "enzoMap.NORMAL", "enzoMap.STARTLED", "enzoMap.DISAPPOINTED", "enzoMap.HAPPY", "enzoMap.BLINKING",
+    "solid()", "linearProgress()", "baked()", "oldFire()", "fire()", "randomNoise()", "ripple()", "rainDrops()"})
+  public String pattern;
+
+  private LEDFrameClock previousClock;
+  private LEDFrameClock clock;
+  private long time = 1_000_000;
+  private LEDPattern ledPattern;
+  private AddressableLEDBuffer buffer;
+
+  @Setup
+  public void setup() {
+    HAL.initialize(500, 0);
+    previousClock = LEDFrameClock.getDefault();
+    clock = new LEDFrameClock(() -> time);
+    LEDFrameClock.setDefault(clock);
+
+    Supplier<LEDPattern> factory = kPatterns.get(pattern);
+    if (factory == null) {
+      throw new IllegalArgumentException("No pattern named " + pattern + ".");
+    }
+    ledPattern = factory.get();
+    buffer = new AddressableLEDBuffer(length);
+  }
+
+  @TearDown
+  public void tearDown() {
+    LEDFrameClock.setDefault(previousClock);
+  }
+
+  @Benchmark
+  public AddressableLEDBuffer frame() {
+    time += kLoopMicros;
+    clock.tick();
+    ledPattern.applyTo(buffer);
+    return buffer;
+  }
+}
@@ -0,0 +1,95 @@
+package Glitch.Lib.LEDs.Interfaces;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import Glitch.Lib.LEDs.LEDFrameClock;
+import Glitch.Lib.LEDs.Interfaces.TwoDArrayPattern.Alignment;
+import Glitch.Lib.LEDs.Interfaces.TwoDArrayPattern.StartPosition;
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.util.Color;
+
+/**
+ * Per-frame cost of TwoDArrayPattern and OrbitalNonsense on a matrix as close to square as the strip length allows
+ * (6x10, 15x20, 25x40 and 40x50). Each op steps a hand-driven LED clock by a 20 ms loop and renders one frame into
+ * an AddressableLEDBuffer. Nothing here reads the FPGA clock, so it doesn't need the HAL or a strip.
+ *
+ * twoDArray applies a static image, orbitalNonsense also runs the orbit pass over every pixel first.
+ * Run with -prof gc to get the bytes allocated per frame (gc.alloc.rate.norm) next to the ns per frame, and see
+ * {@link Glitch.Lib.LEDs.GlitchLEDPatternsBenchmark} for how to build and run the benchmarks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrbitalNonsenseBenchmark {
+  private static final long kLoopMicros = 20_000;
+
+  @Param({"60", "300", "1000", "2000"})
+  public int length;
+
+  private LEDFrameClock previousClock;
+  private LEDFrameClock clock;
+  private long time = 1_000_000;
+  private TwoDArrayPattern twoDArray;
+  private OrbitalNonsense orbitalNonsense;
+  private AddressableLEDBuffer buffer;
+
+  @Setup
+  public void setup() {
+    previousClock = LEDFrameClock.getDefault();
+    clock = new LEDFrameClock(() -> time);
+    LEDFrameClock.setDefault(clock);
+
+    // The largest height that divides the length without going past square
+    int height = (int) Math.sqrt(length);
+    while (length % height != 0) {
+      height--;
+    }
+    int width = length / height;
+
+    twoDArray = new TwoDArrayPattern(width, height, StartPosition.BOTTOM_RIGHT, StartPosition.TOP_LEFT, Alignment.ROW_MAJOR, true);
+    orbitalNonsense = new OrbitalNonsense(width, height, StartPosition.TOP_LEFT, StartPosition.TOP_LEFT, Alignment.ROW_MAJOR, true);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        Color color = new Color(x * 255 / width, y * 255 / height, 128);
+        twoDArray.set2DColor(x, y, color);
+        orbitalNonsense.set2DColor(x, y, color);
+      }
+    }
+    buffer = new AddressableLEDBuffer(width * height);
+  }
+
+  @TearDown
+  public void tearDown() {
+    LEDFrameClock.setDefault(previousClock);
+  }
+
+  @Benchmark
+  public AddressableLEDBuffer twoDArray() {
+    time += kLoopMicros;
+    clock.tick();
+    twoDArray.applyTo(buffer);
+    return buffer;
+  }
+
+  @Benchmark
+  public AddressableLEDBuffer orbitalNonsense() {
+    time += kLoopMicros;
+    clock.tick();
+    ArrayList<Color> colors = orbitalNonsense.colorList();
+    for (int i = 0; i < colors.size(); i++) {
+      buffer.setLED(i, colors.get(i));
+    }
+    return buffer;
+  }
+}
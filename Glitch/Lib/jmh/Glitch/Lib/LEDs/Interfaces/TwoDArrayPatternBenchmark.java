@@ -0,0 +1,126 @@
+package Glitch.Lib.LEDs.Interfaces;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import Glitch.Lib.LEDs.Interfaces.TwoDArrayPattern.Alignment;
+import Glitch.Lib.LEDs.Interfaces.TwoDArrayPattern.StartPosition;
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.util.Color;
+
+/**
+ * Per-frame cost of a 32x32 (1024 LED) matrix the way OrbitalNonsense uses it: read and write every pixel by its
+ * logical coordinates, then lay the frame out in strip order. legacyBranchMapping is the enum/modulo/serpentine
+ * branching TwoDArrayPattern used before the mapping was compiled into a lookup table, tableMapping is
+ * TwoDArrayPattern today and packedTableMapping is PackedTwoDPattern, which keeps logical pixels and only goes
+ * through the table when it's applied to the strip.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TwoDArrayPatternBenchmark {
+  private static final int kSize = 32;
+
+  private TwoDArrayPattern pattern;
+  private PackedTwoDPattern packedPattern;
+  private final AddressableLEDBuffer buffer = new AddressableLEDBuffer(kSize * kSize);
+
+  @Setup
+  public void setup() {
+    // Worst case for the old branching: every flip and serpentine rows
+    pattern = new TwoDArrayPattern(kSize, kSize, StartPosition.BOTTOM_RIGHT, StartPosition.TOP_LEFT, Alignment.ROW_MAJOR, true);
+    packedPattern = new PackedTwoDPattern(kSize, kSize, StartPosition.BOTTOM_RIGHT, StartPosition.TOP_LEFT, Alignment.ROW_MAJOR, true);
+  }
+
+  @Benchmark
+  public ArrayList<Color> legacyBranchMapping() {
+    for (int y = 0; y < kSize; y++) {
+      for (int x = 0; x < kSize; x++) {
+        Color color = legacyGet(pattern, x, y);
+        legacySet(pattern, x, y, color);
+      }
+    }
+    return TwoDArrayPattern.twoDToOneDConverter(pattern.arrayList);
+  }
+
+  @Benchmark
+  public ArrayList<Color> tableMapping() {
+    for (int y = 0; y < kSize; y++) {
+      for (int x = 0; x < kSize; x++) {
+        Color color = pattern.get2DColor(x, y);
+        pattern.set2DColor(x, y, color);
+      }
+    }
+    return TwoDArrayPattern.twoDToOneDConverter(pattern.arrayList);
+  }
+
+  @Benchmark
+  public AddressableLEDBuffer packedTableMapping() {
+    for (int y = 0; y < kSize; y++) {
+      for (int x = 0; x < kSize; x++) {
+        int rgb = packedPattern.get(x, y);
+        packedPattern.set(x, y, rgb);
+      }
+    }
+    packedPattern.applyTo(buffer);
+    return buffer;
+  }
+
+  // The pre-lookup-table mapping, kept here as the baseline
+  private static Color legacyGet(TwoDArrayPattern p, int x, int y) {
+    int index = legacyIndex(p, x, y);
+    return p.arrayList.get(index >> 16).get(index & 0xFFFF);
+  }
+
+  private static void legacySet(TwoDArrayPattern p, int x, int y, Color color) {
+    int index = legacyIndex(p, x, y);
+    p.arrayList.get(index >> 16).set(index & 0xFFFF, color);
+  }
+
+  // Returns the outer list index in the high 16 bits and the inner list index in the low 16 bits
+  private static int legacyIndex(TwoDArrayPattern p, int x, int y) {
+    StartPosition intendedOrigin = p.intendedOrigin;
+    StartPosition physicalStart = p.physicalStart;
+    if (x < 0 || x >= p.width) {
+      x = x % p.width;
+    }
+    if (y < 0 || y >= p.height) {
+      y = y % p.height;
+    }
+    if (physicalStart != intendedOrigin) {
+      if ((intendedOrigin == StartPosition.TOP_LEFT && physicalStart == StartPosition.BOTTOM_LEFT) ||
+          (intendedOrigin == StartPosition.TOP_RIGHT && physicalStart == StartPosition.BOTTOM_RIGHT) ||
+          (intendedOrigin == StartPosition.BOTTOM_LEFT && physicalStart == StartPosition.TOP_LEFT) ||
+          (intendedOrigin == StartPosition.BOTTOM_RIGHT && physicalStart == StartPosition.TOP_RIGHT)) {
+        y = p.height - 1 - y;
+      } else if ((intendedOrigin == StartPosition.TOP_LEFT && physicalStart == StartPosition.TOP_RIGHT) ||
+                  (intendedOrigin == StartPosition.BOTTOM_LEFT && physicalStart == StartPosition.BOTTOM_RIGHT) ||
+                  (intendedOrigin == StartPosition.TOP_RIGHT && physicalStart == StartPosition.TOP_LEFT) ||
+                  (intendedOrigin == StartPosition.BOTTOM_RIGHT && physicalStart == StartPosition.BOTTOM_LEFT)) {
+        x = p.width - 1 - x;
+      } else if ((intendedOrigin == StartPosition.TOP_LEFT && physicalStart == StartPosition.BOTTOM_RIGHT) ||
+                  (intendedOrigin == StartPosition.BOTTOM_LEFT && physicalStart == StartPosition.TOP_RIGHT) ||
+                  (intendedOrigin == StartPosition.TOP_RIGHT && physicalStart == StartPosition.BOTTOM_LEFT) ||
+                  (intendedOrigin == StartPosition.BOTTOM_RIGHT && physicalStart == StartPosition.TOP_LEFT)) {
+        x = p.width - 1 - x;
+        y = p.height - 1 - y;
+      }
+    }
+    if (p.serpentine && ((y % 2 == 1 && p.alignment == Alignment.ROW_MAJOR) || (x % 2 == 1 && p.alignment == Alignment.COLUMN_MAJOR))) {
+      if (p.alignment == Alignment.ROW_MAJOR) {
+        return (y << 16) | (p.width - 1 - x);
+      } else {
+        return (x << 16) | (p.height - 1 - y);
+      }
+    }
+    return (y << 16) | x;
+  }
+}
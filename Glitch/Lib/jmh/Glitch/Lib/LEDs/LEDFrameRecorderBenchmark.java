@@ -0,0 +1,67 @@
+package Glitch.Lib.LEDs;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+
+/**
+ * Cost of recording one 300 LED frame, which should stay well under the 50 us budget.
+ * scrollingFrame changes every LED (a scrolling rainbow), sparseFrame changes a handful, like fire's flicker.
+ * Both include the amortized cost of writing the buffer out to disk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LEDFrameRecorderBenchmark {
+  private static final int kLeds = 300;
+
+  private final AddressableLEDBuffer buffer = new AddressableLEDBuffer(kLeds);
+  private final LEDRandom random = new LEDRandom(8727);
+  private Path path;
+  private LEDFrameRecorder recorder;
+  private long time = 0;
+  private int offset = 0;
+
+  @Setup
+  public void setup() throws IOException {
+    path = Files.createTempFile("leds", ".gled");
+    recorder = new LEDFrameRecorder(path, kLeds);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    recorder.close();
+    Files.deleteIfExists(path);
+  }
+
+  @Benchmark
+  public long scrollingFrame() throws IOException {
+    offset++;
+    for (int i = 0; i < kLeds; i++) {
+      buffer.setHSV(i, (i + offset) % 180, 255, 255);
+    }
+    recorder.record(buffer, time += 20_000);
+    return recorder.getFramesRecorded();
+  }
+
+  @Benchmark
+  public long sparseFrame() throws IOException {
+    for (int i = 0; i < 8; i++) {
+      buffer.setRGB(random.nextInt(kLeds), random.nextInt(256), random.nextInt(256), 0);
+    }
+    recorder.record(buffer, time += 20_000);
+    return recorder.getFramesRecorded();
+  }
+}
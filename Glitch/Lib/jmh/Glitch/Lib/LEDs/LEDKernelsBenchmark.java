@@ -0,0 +1,146 @@
+package Glitch.Lib.LEDs;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import Glitch.Lib.LEDs.LEDLayerStack.BlendMode;
+import edu.wpi.first.wpilibj.LEDPattern;
+import edu.wpi.first.wpilibj.util.Color;
+
+/**
+ * LEDKernels against unpacking every channel, which is how LEDLayerStack blended before, on 2000 LED buffers.
+ * The channel* benchmarks are the old per-channel versions of the kernel benchmark next to them. layerStack blends
+ * a scrolling rainbow and three overlays through the kernels every frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LEDKernelsBenchmark {
+  private static final int kLeds = 2000;
+
+  private final int[] a = new int[kLeds];
+  private final int[] b = new int[kLeds];
+  private final int[] out = new int[kLeds];
+  private final PackedLEDBuffer buffer = new PackedLEDBuffer(kLeds);
+  private LEDLayerStack stack;
+
+  @Setup
+  public void setup() {
+    LEDRandom random = new LEDRandom(8727);
+    for (int i = 0; i < kLeds; i++) {
+      a[i] = random.nextInt(1 << 24);
+      b[i] = random.nextInt(1 << 24);
+    }
+
+    // The rainbow scrolls, so the stack blends on every frame
+    stack = new LEDLayerStack(() -> 0);
+    stack.addLayer(GlitchLEDPatterns.rainbow, BlendMode.NORMAL);
+    stack.addLayer(LEDPattern.solid(Color.kBlue), BlendMode.ADD, 0.5);
+    stack.addLayer(LEDPattern.solid(Color.kRed), BlendMode.MAX, 0.75);
+    stack.addLayer(LEDPattern.solid(Color.kWhite), BlendMode.NORMAL, 0.25);
+  }
+
+  @Benchmark
+  public int[] scale() {
+    LEDKernels.scale(a, out, kLeds, 180);
+    return out;
+  }
+
+  @Benchmark
+  public int[] channelScale() {
+    for (int i = 0; i < kLeds; i++) {
+      int color = a[i];
+      out[i] = PackedColors.pack(PackedColors.red(color) * 180 >> 8, PackedColors.green(color) * 180 >> 8,
+          PackedColors.blue(color) * 180 >> 8);
+    }
+    return out;
+  }
+
+  @Benchmark
+  public int[] lerp() {
+    LEDKernels.lerp(a, b, out, kLeds, 100);
+    return out;
+  }
+
+  @Benchmark
+  public int[] channelLerp() {
+    for (int i = 0; i < kLeds; i++) {
+      int from = a[i];
+      int to = b[i];
+      out[i] = PackedColors.pack(
+          (PackedColors.red(to) * 100 + PackedColors.red(from) * 156) >> 8,
+          (PackedColors.green(to) * 100 + PackedColors.green(from) * 156) >> 8,
+          (PackedColors.blue(to) * 100 + PackedColors.blue(from) * 156) >> 8);
+    }
+    return out;
+  }
+
+  @Benchmark
+  public int[] addSaturate() {
+    LEDKernels.addSaturate(a, b, out, kLeds);
+    return out;
+  }
+
+  @Benchmark
+  public int[] channelAddSaturate() {
+    for (int i = 0; i < kLeds; i++) {
+      int x = a[i];
+      int y = b[i];
+      out[i] = PackedColors.pack(
+          Math.min(255, PackedColors.red(x) + PackedColors.red(y)),
+          Math.min(255, PackedColors.green(x) + PackedColors.green(y)),
+          Math.min(255, PackedColors.blue(x) + PackedColors.blue(y)));
+    }
+    return out;
+  }
+
+  @Benchmark
+  public int[] max() {
+    LEDKernels.max(a, b, out, kLeds);
+    return out;
+  }
+
+  @Benchmark
+  public int[] channelMax() {
+    for (int i = 0; i < kLeds; i++) {
+      int x = a[i];
+      int y = b[i];
+      out[i] = PackedColors.pack(
+          Math.max(PackedColors.red(x), PackedColors.red(y)),
+          Math.max(PackedColors.green(x), PackedColors.green(y)),
+          Math.max(PackedColors.blue(x), PackedColors.blue(y)));
+    }
+    return out;
+  }
+
+  @Benchmark
+  public int[] fade() {
+    // Fading works in place, so this pays for a copy the channel version doesn't
+    System.arraycopy(a, 0, out, 0, kLeds);
+    LEDKernels.fade(out, kLeds, 20);
+    return out;
+  }
+
+  @Benchmark
+  public int[] channelFade() {
+    for (int i = 0; i < kLeds; i++) {
+      int color = a[i];
+      out[i] = PackedColors.pack(Math.max(0, PackedColors.red(color) - 20), Math.max(0, PackedColors.green(color) - 20),
+          Math.max(0, PackedColors.blue(color) - 20));
+    }
+    return out;
+  }
+
+  @Benchmark
+  public PackedLEDBuffer layerStack() {
+    stack.applyTo(buffer, buffer);
+    return buffer;
+  }
+}
@@ -0,0 +1,107 @@
+package Glitch.Lib.LEDs;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * LEDMath against the java.lang.Math calls it replaced in ripple, fire and OrbitalNonsense.
+ * Each benchmark evaluates one function for every LED of a 1024 LED frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LEDMathBenchmark {
+  private static final int kLeds = 1024;
+
+  private final double[] angles = new double[kLeds];
+  private final int[] channels = new int[kLeds];
+
+  @Setup
+  public void setup() {
+    // Roughly what ripple feeds sin: a few radians per LED plus a slowly growing time term
+    LEDRandom random = new LEDRandom(8727);
+    for (int i = 0; i < kLeds; i++) {
+      angles[i] = i * Math.PI / 6 + random.nextDouble() * 500;
+      channels[i] = random.nextInt(256);
+    }
+  }
+
+  @Benchmark
+  public double mathSin() {
+    double sum = 0;
+    for (double angle : angles) {
+      sum += Math.sin(angle);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double tableSin() {
+    double sum = 0;
+    for (double angle : angles) {
+      sum += LEDMath.sin(angle);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double mathAsinOfSin() {
+    double sum = 0;
+    for (double angle : angles) {
+      sum += Math.asin(Math.sin(angle));
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double triangle() {
+    double sum = 0;
+    for (double angle : angles) {
+      sum += LEDMath.triangle(angle);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double mathSqrt() {
+    double sum = 0;
+    for (int channel : channels) {
+      sum += Math.sqrt(channel);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double tableSqrt() {
+    double sum = 0;
+    for (int channel : channels) {
+      sum += LEDMath.sqrt255(channel);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double mathPowSquare() {
+    double sum = 0;
+    for (double angle : angles) {
+      sum += Math.pow(angle, 2);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double powIntSquare() {
+    double sum = 0;
+    for (double angle : angles) {
+      sum += LEDMath.powInt(angle, 2);
+    }
+    return sum;
+  }
+}
@@ -4,52 +4,226 @@
 
 package Glitch.Lib.LEDs;
 
+import Glitch.Lib.NetworkTableLogger;
+import Glitch.Lib.LEDs.Interfaces.IndexedLEDPattern;
+import Glitch.Lib.LEDs.Interfaces.RefreshRatePattern;
+import Glitch.Lib.LEDs.Interfaces.TimeInvariantPattern;
 import edu.wpi.first.wpilibj.AddressableLED;
 import edu.wpi.first.wpilibj.AddressableLED.ColorOrder;
 import edu.wpi.first.wpilibj.AddressableLEDBuffer;
 import edu.wpi.first.wpilibj.AddressableLEDBufferView;
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.LEDPattern;
-import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
 import static edu.wpi.first.units.Units.Microseconds;
 import static edu.wpi.first.units.Units.Seconds;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicReference;
 
 public abstract class AbstractLEDS extends SubsystemBase {
   private AddressableLED lightStrip;
   public final AddressableLEDBuffer stripBuffer;
   private final List<Section> sectionList;
+  private final LEDFrameClock clock;
+  // Expires timed pattern requests for every section. Only touched on the main thread.
+  private final LEDTimerWheel timers = new LEDTimerWheel();
+
+  // The strip is pushed at most this often so that we don't violate the epilepsy risk rules
+  private static final long kPushIntervalMicros = (long) Seconds.of(0.2).in(Microseconds);
+  private long lastUpdateTime = -kPushIntervalMicros;
+  // Whether the frame the render thread is working on will be pushed
+  private volatile boolean backgroundFramePushed = true;
+
+  // Set whenever a section renders, cleared once the strip buffer has been pushed to the LEDs
+  private boolean stripDirty = true;
+  private long pushesPerformed = 0;
+  private long pushesSkipped = 0;
 
   public static final double infiniteDurationSeconds = -1.0;
 
   /**
-   * Represents a section of the LED strip with a specific pattern and duration.
+   * Chooses where sections are rendered.
+   */
+  public enum RenderMode {
+    /** Sections render inside periodic() on the main thread. This is the default, and what tests should use. */
+    SYNCHRONOUS,
+    /** Sections render on a low priority background thread, and periodic() only picks up the finished frame. */
+    BACKGROUND
+  }
+
+  private RenderMode renderMode = RenderMode.SYNCHRONOUS;
+  private LEDRenderThread renderThread;
+
+  // Sections are only rendered in parallel once the last frame took at least this long to render serially
+  private static final long kDefaultParallelThresholdNanos = 500_000;
+  private boolean parallelRendering = false;
+  private long parallelThresholdNanos = kDefaultParallelThresholdNanos;
+  private ForkJoinPool renderPool;
+  private volatile long lastFrameRenderNanos = 0;
+  private volatile boolean lastFrameParallel = false;
+
+  private LEDFrameRecorder recorder;
+  private LEDFrameExporter exporter;
+  private LEDInstrumentation instrumentation;
+  private LEDPowerLimiter powerLimiter;
+
+  /**
+   * Represents a section of the LED strip.
+   * A section shows the highest priority pattern that has been pushed onto it, or its base pattern if there are none.
    */
   public class Section {
+    /** The priority setPattern uses. Push with a higher priority to show something over it. */
+    public static final int kDefaultPriority = 0;
+    /** The priority LEDCommand uses unless it's given one, just above setPattern so a command shows until it ends. */
+    public static final int kCommandPriority = kDefaultPriority + 1;
+
+    private final int startIndex;
+    private final int endIndex;
     private final AddressableLEDBufferView bufferView;
-    private LEDPattern pattern = LEDPattern.kOff;
+    // The view patterns are applied to. Points at the render thread's work buffer in background mode.
+    private AddressableLEDBufferView renderView;
+
+    // The pattern being rendered. Only touched by the thread that renders.
+    private volatile LEDPattern pattern = LEDPattern.kOff;
 
     public static final double infiniteDurationSeconds = -1.0;
-    private double durationSeconds = infiniteDurationSeconds;
-    private double elapsedSeconds = 0.0;
 
-    private LEDPattern basePattern = LEDPattern.kOff;
+    private volatile LEDPattern basePattern = LEDPattern.kOff;
+    // Pattern requests from highest to lowest priority, newest first within a priority. Only touched on the main thread.
+    private PatternRequest requests;
+    private PatternRequest defaultRequest;
+    private PatternRequest shownRequest;
+    private LEDPattern shownPattern;
+    private LEDLayerStack layers;
+    private LEDPalette palette;
+
+    // Whether the pattern has changed since it was last rendered
+    private boolean patternChanged = true;
+    private volatile boolean invalidated = false;
+    private volatile long rendersPerformed = 0;
+    private volatile long rendersSkipped = 0;
+    private volatile long rendersDeferred = 0;
+    private long lastRenderTime = 0;
+    private volatile long lastRenderNanos = 0;
+    private volatile long totalRenderNanos = 0;
+    // How long the pattern took the last time it was actually applied, kept through skipped and deferred updates
+    private long renderCostNanos = 0;
+
+    // Pattern changes waiting to be picked up by the render thread in background mode
+    private final AtomicReference<LEDPattern> pendingChange = new AtomicReference<LEDPattern>();
+
+    /**
+     * A pattern pushed onto a section. Pop it (or let its duration run out) to take it off again.
+     */
+    public final class PatternRequest extends LEDTimerWheel.Timer {
+      private final LEDPattern requestedPattern;
+      private final int priority;
+      private PatternRequest higher;
+      private PatternRequest lower;
+      private boolean active = true;
+
+      private PatternRequest(LEDPattern pattern, int priority) {
+        this.requestedPattern = pattern == null ? LEDPattern.kOff : pattern;
+        this.priority = priority;
+      }
+
+      /**
+       * Takes the request off its section. Does nothing if it has already ended.
+       * @return Whether the request was still on the section
+       */
+      public boolean pop() {
+        if (!active) {
+          return false;
+        }
+        remove(this);
+        showTopPattern();
+        return true;
+      }
+
+      /**
+       * Returns whether the request is still on its section. It doesn't have to be the one showing.
+       */
+      public boolean isActive() {
+        return active;
+      }
+
+      public LEDPattern getPattern() {
+        return requestedPattern;
+      }
+
+      public int getPriority() {
+        return priority;
+      }
+
+      @Override
+      protected void expired() {
+        pop();
+      }
+    }
 
     private Section(int startIndex, int endIndex) {
+      this.startIndex = startIndex;
+      this.endIndex = endIndex;
       bufferView = stripBuffer.createView(startIndex, endIndex);
+      renderView = bufferView;
+
+      // Sections start off until something is pushed, their base only shows once a timed pattern ends
+      defaultRequest = new PatternRequest(LEDPattern.kOff, kDefaultPriority);
+      insert(defaultRequest);
+      shownRequest = defaultRequest;
+      shownPattern = LEDPattern.kOff;
+    }
+
+    /**
+     * Pushes a pattern onto the section until it is popped. Patterns with a higher priority show over it,
+     * and of patterns with the same priority the newest one shows.
+     * Should only be called from the main thread.
+     * @param pattern The pattern to show
+     * @param priority The priority of the pattern
+     * @return The request, pop it to take the pattern off again
+     */
+    public PatternRequest push(LEDPattern pattern, int priority) {
+      return push(pattern, priority, infiniteDurationSeconds);
+    }
+
+    /**
+     * Pushes a pattern onto the section for a while. Patterns with a higher priority show over it,
+     * and of patterns with the same priority the newest one shows.
+     * Should only be called from the main thread.
+     * @param pattern The pattern to show
+     * @param priority The priority of the pattern
+     * @param durationSeconds How long the pattern stays on the section in seconds, or infiniteDurationSeconds
+     * @return The request, pop it to take the pattern off early
+     */
+    public PatternRequest push(LEDPattern pattern, int priority, double durationSeconds) {
+      PatternRequest request = new PatternRequest(pattern, priority);
+      insert(request);
+      if (durationSeconds != infiniteDurationSeconds) {
+        long now = clock.getTime();
+        timers.schedule(request, now, now + (long) Seconds.of(durationSeconds).in(Microseconds));
+      }
+      showTopPattern();
+      return request;
     }
 
     /**
      * Sets the pattern for a duration in seconds.
+     * This replaces whatever was last set with setPattern, but patterns pushed with a higher priority stay on top.
+     * In background mode the change is handed to the render thread and shows up on its next frame.
      * @param pattern The pattern to set.
      * @param durationSeconds The duration in seconds to set the pattern to before setting the strip to the default pattern.
      */
     public void setPattern(LEDPattern pattern, double durationSeconds) {
-      this.pattern = pattern;
-      this.durationSeconds = durationSeconds;
-      this.elapsedSeconds = 0.0;
+      if (defaultRequest.active) {
+        remove(defaultRequest);
+      }
+      defaultRequest = push(pattern, kDefaultPriority, durationSeconds);
     }
 
     /**
@@ -61,39 +235,224 @@ public abstract class AbstractLEDS extends SubsystemBase {
     }
 
     /**
-     * Sets the pattern that the section will return once a timed pattern has completed.
-     * @param pattern
+     * Sets the pattern that the section will return once every pushed pattern has ended.
+     * @param pattern The base pattern, null for off
      */
     public void setBase(LEDPattern pattern) {
-      if (pattern == null) {
-        pattern = LEDPattern.kOff;
+      this.basePattern = pattern == null ? LEDPattern.kOff : pattern;
+      showTopPattern();
+    }
+
+    /**
+     * Returns the section's palette, which {@link #setIndexedPattern(IndexedLEDPattern)} shows patterns in.
+     * It starts out as 256 black colors.
+     */
+    public LEDPalette getPalette() {
+      if (palette == null) {
+        palette = new LEDPalette(LEDPalette.kMaxColors);
+      }
+      return palette;
+    }
+
+    /**
+     * Replaces the colors of the section's palette, for example with the alliance colors. Indexed patterns on the
+     * section pick the new colors up without rendering again.
+     * @param colors The palette to copy the colors from
+     */
+    public void setPalette(LEDPalette colors) {
+      getPalette().copyFrom(colors);
+    }
+
+    /**
+     * Sets an indexed pattern for an infinite duration, shown in the section's palette.
+     * @param pattern The pattern to set
+     */
+    public void setIndexedPattern(IndexedLEDPattern pattern) {
+      setPattern(pattern.withPalette(getPalette()));
+    }
+
+    // Walks past every request that outranks the new one, so ties put the newest first
+    private void insert(PatternRequest request) {
+      PatternRequest above = null;
+      PatternRequest below = requests;
+      while (below != null && below.priority > request.priority) {
+        above = below;
+        below = below.lower;
+      }
+      request.higher = above;
+      request.lower = below;
+      if (above == null) {
+        requests = request;
+      } else {
+        above.lower = request;
+      }
+      if (below != null) {
+        below.higher = request;
+      }
+    }
+
+    private void remove(PatternRequest request) {
+      timers.cancel(request);
+      if (request.higher == null) {
+        requests = request.lower;
       } else {
-        this.basePattern = pattern;
+        request.higher.lower = request.lower;
+      }
+      if (request.lower != null) {
+        request.lower.higher = request.higher;
       }
+      request.higher = null;
+      request.lower = null;
+      request.active = false;
+    }
+
+    // Hands the top request's pattern to whichever thread renders, if it isn't already showing
+    private void showTopPattern() {
+      PatternRequest top = requests;
+      LEDPattern topPattern = top != null ? top.requestedPattern : basePattern;
+      if (top == shownRequest && topPattern == shownPattern) {
+        return;
+      }
+      shownRequest = top;
+      shownPattern = topPattern;
+      if (renderMode == RenderMode.BACKGROUND) {
+        pendingChange.set(topPattern);
+      } else {
+        applyPattern(topPattern);
+      }
+    }
+
+    private void applyPattern(LEDPattern pattern) {
+      this.pattern = pattern;
+      this.patternChanged = true;
     }
 
     /**
-     * Updates the section's pattern if it has a finite duration.
-     * Applies the current pattern to the buffer view.
+     * Applies the current pattern to the buffer view if the strip is about to be pushed or the pattern is due
+     * (see {@link RefreshRatePattern}), unless the pattern is time-invariant, has already been rendered and isn't due.
+     * Timed patterns are expired by the strip's periodic(), not here.
      * 
-     * @param deltaTimeSeconds The time since the last update in seconds.
-     * @param animPattern The pattern that the animation will overlay.
-     * @param animBool A boolean that decides if the animation plays on the section.
+     * @param deltaTimeSeconds The time since the last update in seconds. Kept for compatibility, it isn't needed anymore.
      */
-
     public void update(double deltaTimeSeconds) {
-      if (durationSeconds != infiniteDurationSeconds) {
-        elapsedSeconds += deltaTimeSeconds;
-        if (elapsedSeconds >= durationSeconds) {
-          Section.this.setPattern(basePattern);
-        }
+      long now = clock.getTime();
+      if (render(now, isPushDue(now))) {
+        stripDirty = true;
+      }
+    }
+
+    /**
+     * Renders the section on whichever thread is rendering.
+     * @param nowMicros The time of the frame being rendered
+     * @param framePushed Whether the frame being rendered is going to be pushed to the strip
+     * @return Whether the pattern was applied
+     */
+    private boolean render(long nowMicros, boolean framePushed) {
+      LEDFrameClock previousClock = LEDFrameClock.makeCurrent(clock);
+      try {
+        return renderPattern(nowMicros, framePushed);
+      } finally {
+        LEDFrameClock.makeCurrent(previousClock);
+      }
+    }
+
+    private boolean renderPattern(long nowMicros, boolean framePushed) {
+      LEDPattern change = pendingChange.getAndSet(null);
+      if (change != null) {
+        applyPattern(change);
+      }
+      if (invalidated) {
+        invalidated = false;
+        patternChanged = true;
+      }
+
+      if (!patternChanged && TimeInvariantPattern.isTimeInvariant(pattern) && !isDue(nowMicros)) {
+        rendersSkipped++;
+        lastRenderNanos = 0;
+        return false;
       }
 
-      if (pattern == null) {
-        pattern = basePattern;
+      // Nobody would see this frame, so leave it until the pattern wants to step or the strip is pushed
+      if (!patternChanged && !framePushed && !isDue(nowMicros)) {
+        rendersDeferred++;
+        lastRenderNanos = 0;
+        return false;
       }
 
-      pattern.applyTo(this.bufferView);
+      long start = System.nanoTime();
+      pattern.applyTo(renderView);
+      long elapsed = System.nanoTime() - start;
+      lastRenderNanos = elapsed;
+      renderCostNanos = elapsed;
+      totalRenderNanos += elapsed;
+      patternChanged = false;
+      lastRenderTime = nowMicros;
+      rendersPerformed++;
+      return true;
+    }
+
+    // How long this section is expected to spend rendering a frame, -1 if it would skip or defer it
+    private long expectedRenderNanos(long nowMicros, boolean framePushed) {
+      if (patternChanged || invalidated || pendingChange.get() != null) {
+        return renderCostNanos;
+      }
+      boolean due = isDue(nowMicros);
+      if (!due && (!framePushed || TimeInvariantPattern.isTimeInvariant(pattern))) {
+        return -1;
+      }
+      return renderCostNanos;
+    }
+
+    private boolean isDue(long nowMicros) {
+      LEDPattern current = pattern;
+      return current instanceof RefreshRatePattern && ((RefreshRatePattern) current).isDue(nowMicros, lastRenderTime);
+    }
+
+    private void setRenderTarget(AddressableLEDBuffer buffer) {
+      renderView = buffer == stripBuffer ? bufferView : buffer.createView(startIndex, endIndex);
+    }
+
+    /**
+     * Forces the section to render its pattern on the next update, even if it is time-invariant.
+     * Use this if something other than the section wrote to its part of the strip.
+     */
+    public void invalidate() {
+      invalidated = true;
+    }
+
+    /**
+     * Returns how many times this section has applied its pattern.
+     */
+    public long getRendersPerformed() {
+      return rendersPerformed;
+    }
+
+    /**
+     * Returns how many updates skipped applying the pattern because it was time-invariant and already rendered.
+     */
+    public long getRendersSkipped() {
+      return rendersSkipped;
+    }
+
+    /**
+     * Returns how many updates left the pattern alone because the frame wasn't going to be pushed and the pattern wasn't due.
+     */
+    public long getRendersDeferred() {
+      return rendersDeferred;
+    }
+
+    /**
+     * Returns how long the last update spent applying the pattern in nanoseconds, or 0 if it was skipped.
+     */
+    public long getLastRenderNanos() {
+      return lastRenderNanos;
+    }
+
+    /**
+     * Returns the total time this section has spent applying its pattern in nanoseconds.
+     */
+    public long getTotalRenderNanos() {
+      return totalRenderNanos;
     }
 
     /**
@@ -104,6 +463,15 @@ public abstract class AbstractLEDS extends SubsystemBase {
       return this.bufferView;
     }
 
+    /**
+     * Picks this section's LEDs out of a layout of the whole strip, in the order the section's patterns see them.
+     * @param stripLayout Where every LED on the strip is
+     * @return Where every LED in the section is
+     */
+    public LEDLayout sliceLayout(LEDLayout stripLayout) {
+      return stripLayout.slice(startIndex, endIndex);
+    }
+
     /**
      * Returns the length of this section.
      * @return The number of LEDs in the section
@@ -117,7 +485,34 @@ public abstract class AbstractLEDS extends SubsystemBase {
      * @return The current LED pattern
      */
     public LEDPattern getCurrentPattern() {
-      return this.pattern;
+      LEDPattern change = pendingChange.get();
+      return change != null ? change : this.pattern;
+    }
+
+    /**
+     * Returns this section's layer stack and sets it as the section's pattern with setPattern.
+     * Whatever was set with setPattern (or the base pattern, if that has ended) goes on the bottom layer, so a pattern
+     * set after the stack was made replaces the bottom layer's pattern instead of being lost. Patterns pushed with a
+     * higher priority, like a running LEDCommand's, stay on top of the stack.
+     * @return The section's layer stack
+     */
+    public LEDLayerStack getLayers() {
+      LEDPattern set = defaultRequest.active ? defaultRequest.requestedPattern : basePattern;
+      if (layers == null) {
+        layers = new LEDLayerStack(clock::getTime);
+        layers.addLayer(set, LEDLayerStack.BlendMode.NORMAL);
+      } else if (set != layers) {
+        List<LEDLayerStack.Layer> stackLayers = layers.getLayers();
+        if (stackLayers.isEmpty()) {
+          layers.addLayer(set, LEDLayerStack.BlendMode.NORMAL);
+        } else {
+          stackLayers.get(0).setPattern(set);
+        }
+      }
+      if (set != layers) {
+        setPattern(layers);
+      }
+      return layers;
     }
 
     /**
@@ -129,6 +524,33 @@ public abstract class AbstractLEDS extends SubsystemBase {
     }
   }
   
+  // Renders a range of sections, splitting the range in half until only one section is left
+  private final class SectionRenderTask extends RecursiveTask<Boolean> {
+    private final int from;
+    private final int to;
+    private final long nowMicros;
+    private final boolean framePushed;
+
+    SectionRenderTask(int from, int to, long nowMicros, boolean framePushed) {
+      this.from = from;
+      this.to = to;
+      this.nowMicros = nowMicros;
+      this.framePushed = framePushed;
+    }
+
+    @Override
+    protected Boolean compute() {
+      if (to - from == 1) {
+        return sectionList.get(from).render(nowMicros, framePushed);
+      }
+      int middle = (from + to) >>> 1;
+      SectionRenderTask right = new SectionRenderTask(middle, to, nowMicros, framePushed);
+      right.fork();
+      boolean rendered = new SectionRenderTask(from, middle, nowMicros, framePushed).compute();
+      return right.join() | rendered;
+    }
+  }
+
   /** Creates a new LEDSubsystem.
    * 
    * @param length The total number of LEDs in the strip.
@@ -136,6 +558,19 @@ public abstract class AbstractLEDS extends SubsystemBase {
    * The sections will be created in the order they are provided.
    */
   protected AbstractLEDS(int length, int... sectionLengths) {
+    this(LEDFrameClock.getDefault().withSameSource(), length, sectionLengths);
+  }
+
+  /** Creates a new LEDSubsystem that keeps time with the given clock.
+   * 
+   * @param clock The clock the strip's frames are timed with. Patterns rendering on the strip read it through
+   * {@link LEDFrameClock#current()}. Strips can share a clock, only the first one to update ticks it.
+   * @param length The total number of LEDs in the strip.
+   * @param sectionLengths The lengths of each section in the strip. Positive values indicate normal order, negative values indicate reversed order.
+   */
+  protected AbstractLEDS(LEDFrameClock clock, int length, int... sectionLengths) {
+    this.clock = clock;
+
     // LED setup and port configuration
     stripBuffer = new AddressableLEDBuffer(length);
     sectionList = new java.util.ArrayList<Section>();
@@ -167,8 +602,9 @@ public abstract class AbstractLEDS extends SubsystemBase {
     lightStrip = new AddressableLED(port);
     lightStrip.setColorOrder(ColorOrder.kRGB);
     lightStrip.setLength(stripBuffer.getLength());
-    lightStrip.setData(stripBuffer);
+    lightStrip.setData(powerLimiter == null ? stripBuffer : powerLimiter.apply(stripBuffer));
     lightStrip.start();
+    stripDirty = false;
   }
 
   public void disableLEDS() {
@@ -178,10 +614,228 @@ public abstract class AbstractLEDS extends SubsystemBase {
     }
   }
 
+  /**
+   * Starts recording every frame pushed to the strip, replacing anything already in the file.
+   * Frames are recorded even without a real strip, so simulation runs can be recorded too. Replay them with {@link LEDFrameReplay}.
+   * @param path The file to record to
+   * @throws IOException If the file can't be opened
+   */
+  public void startRecording(Path path) throws IOException {
+    stopRecording();
+    recorder = new LEDFrameRecorder(path, stripBuffer.getLength());
+  }
+
+  /**
+   * Stops recording and closes the file. Does nothing if the strip isn't recording.
+   */
+  public void stopRecording() {
+    if (recorder == null) {
+      return;
+    }
+    try {
+      recorder.close();
+    } catch (IOException e) {
+      DriverStation.reportError("Error closing LED recording: " + e, e.getStackTrace());
+    }
+    recorder = null;
+  }
+
+  /**
+   * Returns the recorder frames are going to, or null if the strip isn't recording.
+   */
+  public LEDFrameRecorder getRecorder() {
+    return recorder;
+  }
+
+  private void recordFrame(AddressableLEDBuffer frame, long timestampMicros) {
+    try {
+      recorder.record(frame, timestampMicros);
+    } catch (IOException e) {
+      DriverStation.reportError("Error recording LEDs, recording stopped: " + e, e.getStackTrace());
+      stopRecording();
+    }
+  }
+
+  /**
+   * Starts sharing every frame pushed to the strip through a memory-mapped file, so a viewer in another process can
+   * watch the strip in simulation. Read it with {@link LEDFrameExportReader} or anything that follows its format.
+   * @param path The file to share frames through, replaced if it exists
+   * @throws IOException If the file can't be opened or mapped
+   */
+  public void startExport(Path path) throws IOException {
+    stopExport();
+    exporter = new LEDFrameExporter(path, stripBuffer.getLength());
+  }
+
+  /**
+   * Stops sharing frames. The file keeps the last frame. Does nothing if the strip isn't exporting.
+   */
+  public void stopExport() {
+    if (exporter == null) {
+      return;
+    }
+    exporter.close();
+    exporter = null;
+  }
+
+  /**
+   * Returns the exporter frames are going to, or null if the strip isn't exporting.
+   */
+  public LEDFrameExporter getExporter() {
+    return exporter;
+  }
+
+  /**
+   * Starts measuring how much of the loop the strip uses and publishing it through a logger, see {@link LEDInstrumentation}.
+   * @param logger Where the measurements are published
+   * @param publishEveryLoops How many loops to sum up before publishing
+   */
+  public void enableInstrumentation(NetworkTableLogger logger, int publishEveryLoops) {
+    instrumentation = new LEDInstrumentation(this, logger, publishEveryLoops);
+  }
+
+  /**
+   * Starts measuring how much of the loop the strip uses and publishing it through a logger twice a second.
+   * @param logger Where the measurements are published
+   */
+  public void enableInstrumentation(NetworkTableLogger logger) {
+    enableInstrumentation(logger, LEDInstrumentation.kDefaultPublishEveryLoops);
+  }
+
+  public void disableInstrumentation() {
+    instrumentation = null;
+  }
+
+  /**
+   * Returns the instrumentation measuring the strip, or null if it isn't enabled.
+   */
+  public LEDInstrumentation getInstrumentation() {
+    return instrumentation;
+  }
+
+  /**
+   * Keeps the strip under a current budget, dimming every frame that would draw more. See {@link LEDPowerLimiter}.
+   * The limit is applied to what's pushed (and recorded), sections still render at full brightness.
+   * @param budgetAmps The most current the strip may draw
+   */
+  public void setCurrentLimit(double budgetAmps) {
+    if (powerLimiter == null) {
+      setPowerLimiter(new LEDPowerLimiter(stripBuffer.getLength(), budgetAmps));
+    } else {
+      powerLimiter.setBudgetAmps(budgetAmps);
+      stripDirty = true;
+    }
+  }
+
+  /**
+   * Replaces the power limiter, e.g. with one that uses a different LED's current draw.
+   * @param limiter The limiter, exactly as long as the strip, or null to stop limiting
+   */
+  public void setPowerLimiter(LEDPowerLimiter limiter) {
+    if (limiter != null && limiter.getLength() != stripBuffer.getLength()) {
+      throw new IllegalArgumentException("The power limiter is " + limiter.getLength() + " LEDs long, but the strip is "
+          + stripBuffer.getLength() + ".");
+    }
+    powerLimiter = limiter;
+    // Push the next frame so the new limit shows up even if nothing else changes
+    stripDirty = true;
+  }
+
+  /**
+   * Returns the power limiter, or null if the strip isn't limited.
+   * Its estimate and budget are worth logging.
+   */
+  public LEDPowerLimiter getPowerLimiter() {
+    return powerLimiter;
+  }
+
   public boolean isStripReal() {
     return lightStrip != null;
   }
 
+  /**
+   * Chooses whether sections render on the main thread or on a background thread.
+   * In background mode periodic() only swaps in the newest finished frame and pushes it, so frames lag one loop behind.
+   * Pattern changes are handed to the render thread, so patterns must not be shared with code running elsewhere.
+   * Should only be called from the main thread.
+   * @param mode The render mode to use
+   */
+  public void setRenderMode(RenderMode mode) {
+    if (mode == renderMode) {
+      return;
+    }
+
+    if (mode == RenderMode.BACKGROUND) {
+      AddressableLEDBuffer workBuffer = new AddressableLEDBuffer(stripBuffer.getLength());
+      // Start from what's on the strip so overlays that read the previous frame carry on smoothly
+      LEDRenderThread.copy(stripBuffer, workBuffer);
+      for (Section section : sectionList) {
+        section.setRenderTarget(workBuffer);
+      }
+      renderThread = new LEDRenderThread(workBuffer, this::renderInBackground);
+      renderMode = mode;
+      renderThread.start();
+    } else {
+      renderThread.stop();
+      renderThread.takeFrame(stripBuffer);
+      renderThread = null;
+      renderMode = mode;
+      for (Section section : sectionList) {
+        section.setRenderTarget(stripBuffer);
+      }
+    }
+  }
+
+  /**
+   * Returns where sections are currently rendered.
+   */
+  public RenderMode getRenderMode() {
+    return renderMode;
+  }
+
+  /**
+   * Lets sections render in parallel on a fork/join pool.
+   * A frame only goes parallel when the sections that render in it took longer than the threshold the last time
+   * they rendered, since small frames are faster on one thread. Frames where every section skips or defers always
+   * stay on one thread. Every section writes to its own part of the buffer, so the result is the same as
+   * rendering them one after another, as long as no pattern object is shared between sections.
+   * @param enabled Whether sections may render in parallel
+   * @param thresholdSeconds How long a frame has to take to render before it is split across cores
+   */
+  public void setParallelRendering(boolean enabled, double thresholdSeconds) {
+    parallelThresholdNanos = (long) (thresholdSeconds * 1e9);
+    parallelRendering = enabled;
+    if (enabled && renderPool == null && sectionList.size() > 1) {
+      renderPool = new ForkJoinPool(Math.min(Runtime.getRuntime().availableProcessors(), sectionList.size()));
+    } else if (!enabled && renderPool != null) {
+      renderPool.shutdown();
+      renderPool = null;
+    }
+  }
+
+  /**
+   * Lets sections render in parallel once a frame takes longer than half a millisecond to render.
+   * @param enabled Whether sections may render in parallel
+   */
+  public void setParallelRendering(boolean enabled) {
+    setParallelRendering(enabled, kDefaultParallelThresholdNanos / 1e9);
+  }
+
+  /**
+   * Returns how long it took to render every section in the last frame in nanoseconds, wall clock.
+   * Compare this to the sum of {@link Section#getLastRenderNanos()} to see the speedup from parallel rendering.
+   */
+  public long getLastFrameRenderNanos() {
+    return lastFrameRenderNanos;
+  }
+
+  /**
+   * Returns whether the last frame was rendered in parallel.
+   */
+  public boolean wasLastFrameParallel() {
+    return lastFrameParallel;
+  }
+
   /**
    * Gets the list of sections in the LED strip.
    */
@@ -189,47 +843,191 @@ public abstract class AbstractLEDS extends SubsystemBase {
     return sectionList;
   }
 
-  
   /**
-   * Updates all LED sections and applies the data buffer to the LED strip.
+   * Forces every section to render and the whole strip to be pushed on the next update.
    */
-  private static List<Long> timeStamps = new java.util.ArrayList<Long>();
-  private double lastUpdateTime;
-  public static double deltaTimeSeconds;
+  public void invalidate() {
+    for (Section section : sectionList) {
+      section.invalidate();
+    }
+    stripDirty = true;
+  }
+
+  /**
+   * Returns how many section renders have been performed across the whole strip.
+   */
+  public long getRendersPerformed() {
+    long total = 0;
+    for (Section section : sectionList) {
+      total += section.getRendersPerformed();
+    }
+    return total;
+  }
 
+  /**
+   * Returns how many section renders were skipped across the whole strip because nothing had changed.
+   */
+  public long getRendersSkipped() {
+    long total = 0;
+    for (Section section : sectionList) {
+      total += section.getRendersSkipped();
+    }
+    return total;
+  }
+
+  /**
+   * Returns how many section renders were put off across the whole strip because the frame wasn't going to be pushed.
+   */
+  public long getRendersDeferred() {
+    long total = 0;
+    for (Section section : sectionList) {
+      total += section.getRendersDeferred();
+    }
+    return total;
+  }
+
+  /**
+   * Returns how many times the strip buffer has been pushed to the LEDs.
+   */
+  public long getPushesPerformed() {
+    return pushesPerformed;
+  }
+
+  /**
+   * Returns how many times a push was due but skipped because no section had changed since the last one.
+   */
+  public long getPushesSkipped() {
+    return pushesSkipped;
+  }
+
+
+  /**
+   * Returns the time of the current LED frame in microseconds from the current LED clock.
+   * @deprecated Patterns should read the time from {@link LEDFrameClock#current()} so it can be driven in tests.
+   */
+  @Deprecated
   public static Long getTime() {
-    if (timeStamps.size() > 0) {
-      return timeStamps.get(timeStamps.size() - 1);
+    return LEDFrameClock.current().getTime();
+  }
+
+  /**
+   * The time between the last two frames of the most recently updated LED subsystem.
+   * @deprecated Use {@link #getClock()} and {@link LEDFrameClock#getDeltaSeconds()} instead.
+   */
+  @Deprecated
+  public static double deltaTimeSeconds;
+
+  /**
+   * Returns the clock this strip is updated with.
+   */
+  public LEDFrameClock getClock() {
+    return clock;
+  }
+
+  /**
+   * Renders every section into the render thread's work buffer.
+   * @return Whether any section rendered
+   */
+  private boolean renderInBackground() {
+    return renderSections(clock.getTime(), backgroundFramePushed);
+  }
+
+  /**
+   * Renders every section, in parallel if it is enabled and the sections rendering this frame are expensive enough.
+   * @return Whether any section rendered
+   */
+  private boolean renderSections(long nowMicros, boolean framePushed) {
+    long start = System.nanoTime();
+    boolean rendered = false;
+
+    ForkJoinPool pool = renderPool;
+    boolean parallel = parallelRendering && pool != null
+        && serialRenderNanos(nowMicros, framePushed) >= parallelThresholdNanos;
+    if (parallel) {
+      rendered = pool.invoke(new SectionRenderTask(0, sectionList.size(), nowMicros, framePushed));
     } else {
-      timeStamps.add(RobotController.getTime());
-      return RobotController.getTime();
+      for (Section section : sectionList) {
+        rendered |= section.render(nowMicros, framePushed);
+      }
+    }
+
+    lastFrameParallel = parallel;
+    lastFrameRenderNanos = System.nanoTime() - start;
+    return rendered;
+  }
+
+  // How long this frame would take to render on one thread, going by each section's last real render,
+  // or -1 if no section would render in it
+  private long serialRenderNanos(long nowMicros, boolean framePushed) {
+    long total = -1;
+    for (Section section : sectionList) {
+      long expected = section.expectedRenderNanos(nowMicros, framePushed);
+      if (expected >= 0) {
+        total = Math.max(total, 0) + expected;
+      }
     }
+    return total;
+  }
+
+  // Whether a frame rendered at this time would be pushed to the strip
+  private boolean isPushDue(long nowMicros) {
+    return nowMicros - lastUpdateTime >= kPushIntervalMicros;
   }
 
+  /**
+   * Updates all LED sections and applies the data buffer to the LED strip.
+   * Sections only render on updates that push the strip, plus whenever their pattern is due.
+   */
   @Override
   public void periodic() {
-    if (timeStamps.size() == 0) {
-      timeStamps.add(RobotController.getTime());
-      deltaTimeSeconds = Microseconds.of(timeStamps.get(0)).in(Seconds);
-    } else {
-      timeStamps.add(RobotController.getTime());
-      deltaTimeSeconds = Microseconds.of(timeStamps.get(timeStamps.size() - 1) - timeStamps.get(timeStamps.size() - 2)).in(Seconds);
+    final LEDInstrumentation instrumentation = this.instrumentation;
+    if (instrumentation != null) {
+      instrumentation.startLoop();
     }
-
-    if (timeStamps.size() > 5) {
-      timeStamps.remove(0);
+    if (clock.claimTicks(this)) {
+      clock.tick();
     }
-    
-    // final double deltaTimeSeconds = 0.02; // TODO: Is there a way to ensure this is accurate even with overruns?
+    final double deltaTimeSeconds = clock.getDeltaSeconds();
+    AbstractLEDS.deltaTimeSeconds = deltaTimeSeconds;
+    final long now = clock.getTime();
+    final boolean pushDue = isPushDue(now);
+    timers.advance(now);
 
-    for (Section section : sectionList) {
-      section.update(deltaTimeSeconds);
+    if (renderThread != null) {
+      // The frame requested now is picked up on a later loop, so render it if that loop (or this one) pushes
+      backgroundFramePushed = pushDue || isPushDue(now + (long) (deltaTimeSeconds * 1e6));
+      renderThread.requestFrame();
+      if (renderThread.takeFrame(stripBuffer)) {
+        stripDirty = true;
+      }
+    } else if (renderSections(now, pushDue)) {
+      stripDirty = true;
     }
 
     // This is here to suppress the update time of the LEDs so that we don't violate the epilepsy risk rules.
-    if ((timeStamps.get(timeStamps.size() - 1) - lastUpdateTime >= Seconds.of(0.2).in(Microseconds)) && lightStrip != null) {
-      lightStrip.setData(stripBuffer);
-      lastUpdateTime = RobotController.getTime();
+    // The push schedule keeps running without a strip so sections render at the same rate in simulation and tests.
+    if (pushDue) {
+      if (stripDirty) {
+        AddressableLEDBuffer output = powerLimiter == null ? stripBuffer : powerLimiter.apply(stripBuffer);
+        if (lightStrip != null) {
+          lightStrip.setData(output);
+          pushesPerformed++;
+        }
+        if (recorder != null) {
+          recordFrame(output, now);
+        }
+        if (exporter != null) {
+          exporter.export(output, now);
+        }
+        lastUpdateTime = now;
+        stripDirty = false;
+      } else if (lightStrip != null) {
+        pushesSkipped++;
+      }
+    }
+
+    if (instrumentation != null) {
+      instrumentation.endLoop(now);
     }
   }
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+package Glitch.Lib.LEDs;
+
+import static edu.wpi.first.units.Units.Microseconds;
+
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+import edu.wpi.first.units.Time;
+import edu.wpi.first.wpilibj.LEDPattern;
+import edu.wpi.first.wpilibj.LEDReader;
+import edu.wpi.first.wpilibj.LEDWriter;
+
+/**
+ * Plays back a pattern that repeats itself exactly, like a scrolling gradient or a blink, from baked frames
+ * instead of recomputing it every loop.
+ *
+ * One period of the pattern is split into phase slots (50 per second by default). The first time a slot comes up for
+ * a given strip length, the pattern is rendered live and the result is kept in a frame ring for that length. Every
+ * later pass through the slot just copies the baked frame out. WPILib patterns read the FPGA clock themselves, so
+ * frames can't be rendered ahead of time and the ring fills in over the first period instead.
+ *
+ * Frames are stored as 3 bytes per LED, and every ring is accounted for in an {@link LEDKeyframeCache}, which throws
+ * out the least recently played rings across all sections once it goes over its cap. An evicted ring simply bakes
+ * again the next time it's played.
+ *
+ * The pattern must write every LED each frame, and the reader must see what was written (as with an
+ * AddressableLEDBuffer or a view of one), since the baked frame is read back from it.
+ */
+public class BakedLEDPattern implements LEDPattern {
+  private static final int kDefaultFramesPerSecond = 50;
+
+  private final LEDPattern pattern;
+  private final long periodMicros;
+  private final int frameCount;
+  private final LongSupplier timeSourceMicros;
+  private final LEDKeyframeCache cache;
+
+  // Guarded by the cache's lock
+  private FrameRing[] rings = new FrameRing[0];
+
+  /**
+   * Bakes a pattern at 50 frames per second, reading the time from the current LED clock and
+   * keeping frames in the default cache.
+   * @param pattern The pattern to bake
+   * @param period How long it takes the pattern to repeat itself
+   */
+  public BakedLEDPattern(LEDPattern pattern, Time period) {
+    this(pattern, period, kDefaultFramesPerSecond, () -> LEDFrameClock.current().getTime(), LEDKeyframeCache.getDefault());
+  }
+
+  /**
+   * Bakes a pattern.
+   * @param pattern The pattern to bake
+   * @param period How long it takes the pattern to repeat itself
+   * @param framesPerSecond How many phase slots to keep per second of the period
+   * @param timeSourceMicros Where the phase is read from, in microseconds. Should match what the pattern reads.
+   * @param cache The cache that keeps track of the baked frames
+   */
+  public BakedLEDPattern(LEDPattern pattern, Time period, int framesPerSecond, LongSupplier timeSourceMicros, LEDKeyframeCache cache) {
+    this.pattern = pattern;
+    this.periodMicros = (long) period.in(Microseconds);
+    if (periodMicros <= 0 || framesPerSecond <= 0) {
+      throw new IllegalArgumentException("A baked pattern needs a positive period and frame rate.");
+    }
+    this.frameCount = (int) Math.max(1, Math.ceil(periodMicros * framesPerSecond / 1e6));
+    this.timeSourceMicros = timeSourceMicros;
+    this.cache = cache;
+  }
+
+  /**
+   * Returns how many phase slots one period is split into.
+   */
+  public int getFrameCount() {
+    return frameCount;
+  }
+
+  @Override
+  public void applyTo(LEDReader reader, LEDWriter writer) {
+    int bufLen = reader.getLength();
+    int slot = (int) (Math.floorMod(timeSourceMicros.getAsLong(), periodMicros) * frameCount / periodMicros);
+
+    FrameRing ring;
+    boolean baked;
+    synchronized (cache) {
+      ring = ringFor(bufLen);
+      baked = ring != null && ring.isBaked(slot);
+    }
+
+    if (baked) {
+      // One linear copy out of the ring. The writer doesn't expose its backing array, so it goes through setRGB.
+      byte[] frames = ring.frames;
+      int offset = slot * bufLen * 3;
+      for (int led = 0; led < bufLen; led++, offset += 3) {
+        writer.setRGB(led, frames[offset] & 0xFF, frames[offset + 1] & 0xFF, frames[offset + 2] & 0xFF);
+      }
+      return;
+    }
+
+    pattern.applyTo(reader, writer);
+    if (ring == null) {
+      // Too big to ever fit in the cache, so it just renders live
+      return;
+    }
+
+    byte[] frames = ring.frames;
+    int offset = slot * bufLen * 3;
+    for (int led = 0; led < bufLen; led++, offset += 3) {
+      frames[offset] = (byte) reader.getRed(led);
+      frames[offset + 1] = (byte) reader.getGreen(led);
+      frames[offset + 2] = (byte) reader.getBlue(led);
+    }
+    synchronized (cache) {
+      ring.markBaked(slot);
+    }
+  }
+
+  // Must be called while holding the cache's lock
+  private FrameRing ringFor(int bufLen) {
+    for (FrameRing ring : rings) {
+      if (ring.length == bufLen) {
+        cache.touch(ring);
+        return ring;
+      }
+    }
+
+    if ((long) frameCount * bufLen * 3 > cache.getCapacityBytes()) {
+      return null;
+    }
+    FrameRing ring = new FrameRing(this, bufLen, frameCount);
+    cache.add(ring);
+    rings = Arrays.copyOf(rings, rings.length + 1);
+    rings[rings.length - 1] = ring;
+    return ring;
+  }
+
+  // Called by the cache, with its lock held, when one of our rings is thrown out
+  void evicted(FrameRing ring) {
+    FrameRing[] kept = new FrameRing[rings.length - 1];
+    int index = 0;
+    for (FrameRing other : rings) {
+      if (other != ring) {
+        kept[index++] = other;
+      }
+    }
+    rings = kept;
+  }
+
+  /**
+   * The baked frames of one pattern at one strip length.
+   */
+  static final class FrameRing {
+    final BakedLEDPattern owner;
+    final int length;
+    final long bytes;
+    final byte[] frames;
+    private final long[] bakedSlots;
+
+    // Links in the cache's LRU list
+    FrameRing previous;
+    FrameRing next;
+
+    FrameRing(BakedLEDPattern owner, int length, int frameCount) {
+      this.owner = owner;
+      this.length = length;
+      this.bytes = (long) frameCount * length * 3;
+      this.frames = new byte[(int) bytes];
+      this.bakedSlots = new long[(frameCount + 63) / 64];
+    }
+
+    boolean isBaked(int slot) {
+      return (bakedSlots[slot >> 6] & (1L << slot)) != 0;
+    }
+
+    void markBaked(int slot) {
+      bakedSlots[slot >> 6] |= 1L << slot;
+    }
+  }
+}
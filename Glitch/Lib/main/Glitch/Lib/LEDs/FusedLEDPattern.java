@@ -0,0 +1,472 @@
+package Glitch.Lib.LEDs;
+
+import static edu.wpi.first.units.Units.Microseconds;
+import static edu.wpi.first.units.Units.Value;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.units.Dimensionless;
+import edu.wpi.first.units.Frequency;
+import edu.wpi.first.units.Time;
+import edu.wpi.first.wpilibj.LEDPattern;
+import edu.wpi.first.wpilibj.LEDPattern.GradientType;
+import edu.wpi.first.wpilibj.LEDReader;
+import edu.wpi.first.wpilibj.LEDWriter;
+import edu.wpi.first.wpilibj.util.Color;
+
+/**
+ * A chain of LEDPattern decorators compiled into a single pass over a packed buffer.
+ *
+ * Every WPILib decorator wraps the reader and writer of the pattern below it, so a chain like
+ * {@code rainbow().scrollAtRelativeSpeed(...).reversed().mask(...)} walks the buffer once per layer and makes a
+ * handful of interface calls for every LED. A FusedLEDPattern records the same chain with a {@link Builder} and
+ * compiles it when built:
+ * <ul>
+ *   <li>Sources (solid, gradient, steps, rainbow) don't change over time, so each one is rendered once per strip
+ *   length into a lookup table.</li>
+ *   <li>Reversing and scrolling only move LEDs around, so they are folded into one index map per source.</li>
+ *   <li>Brightness becomes a 256 entry table per channel, and stacked brightness tables are merged.</li>
+ *   <li>Masks are a bitwise AND of the lookups, and a blink that is off turns the whole frame black.</li>
+ * </ul>
+ * Each frame is then a single loop of table lookups and ANDs. Output matches the WPILib decorators, including their
+ * rounding, for every chain in GlitchLEDPatterns.
+ *
+ * One difference: WPILib's scroll and brightness decorators only remap writes, so when they wrap a mask the mask
+ * reads colors that have already been moved or dimmed. Here a decorator over a mask always acts on the masked result.
+ */
+public final class FusedLEDPattern implements LEDPattern {
+  /**
+   * Starts a chain from a solid color.
+   */
+  public static Builder solid(Color color) {
+    return new Builder(LEDPattern.solid(color));
+  }
+
+  /**
+   * Starts a chain from a gradient, see {@link LEDPattern#gradient(GradientType, Color...)}.
+   */
+  public static Builder gradient(GradientType type, Color... colors) {
+    return new Builder(LEDPattern.gradient(type, colors));
+  }
+
+  /**
+   * Starts a chain from color steps, see {@link LEDPattern#steps(Map)}.
+   */
+  public static Builder steps(Map<? extends Number, Color> steps) {
+    return new Builder(LEDPattern.steps(steps));
+  }
+
+  /**
+   * Starts a chain from a rainbow, see {@link LEDPattern#rainbow(int, int)}.
+   */
+  public static Builder rainbow(int saturation, int value) {
+    return new Builder(LEDPattern.rainbow(saturation, value));
+  }
+
+  /**
+   * Starts a chain from any pattern that doesn't change over time. The pattern is only rendered once for every
+   * strip length it is applied to, so anything animated will freeze on its first frame.
+   * @param pattern A time-invariant pattern
+   */
+  public static Builder source(LEDPattern pattern) {
+    return new Builder(pattern);
+  }
+
+  /**
+   * One step of a pattern chain. Builders are immutable, so a chain can be shared and extended in several ways.
+   */
+  public static final class Builder {
+    private enum Op { SOURCE, SCROLL, REVERSED, MASK, BLINK, BRIGHTNESS }
+
+    private final Op op;
+    private final LEDPattern source;
+    private final Builder child;
+    private final Builder mask;
+    private final double periodMicros;
+    private final long onMicros;
+    private final long totalMicros;
+    private final double multiplier;
+
+    private Builder(LEDPattern source) {
+      this(Op.SOURCE, source, null, null, 0, 0, 0, 0);
+    }
+
+    private Builder(Op op, LEDPattern source, Builder child, Builder mask, double periodMicros, long onMicros, long totalMicros, double multiplier) {
+      this.op = op;
+      this.source = source;
+      this.child = child;
+      this.mask = mask;
+      this.periodMicros = periodMicros;
+      this.onMicros = onMicros;
+      this.totalMicros = totalMicros;
+      this.multiplier = multiplier;
+    }
+
+    /**
+     * Scrolls the chain so far, see {@link LEDPattern#scrollAtRelativeSpeed(Frequency)}.
+     */
+    public Builder scrollAtRelativeSpeed(Frequency velocity) {
+      return new Builder(Op.SCROLL, null, this, null, velocity.asPeriod().in(Microseconds), 0, 0, 0);
+    }
+
+    /**
+     * Reverses the chain so far, see {@link LEDPattern#reversed()}.
+     */
+    public Builder reversed() {
+      return new Builder(Op.REVERSED, null, this, null, 0, 0, 0, 0);
+    }
+
+    /**
+     * Masks the chain so far with another chain, see {@link LEDPattern#mask(LEDPattern)}.
+     */
+    public Builder mask(Builder mask) {
+      return new Builder(Op.MASK, null, this, mask, 0, 0, 0, 0);
+    }
+
+    /**
+     * Blinks the chain so far, see {@link LEDPattern#blink(Time, Time)}.
+     */
+    public Builder blink(Time onTime, Time offTime) {
+      long total = (long) (onTime.in(Microseconds) + offTime.in(Microseconds));
+      return new Builder(Op.BLINK, null, this, null, 0, (long) onTime.in(Microseconds), total, 0);
+    }
+
+    /**
+     * Blinks the chain so far with the same on and off time, see {@link LEDPattern#blink(Time)}.
+     */
+    public Builder blink(Time onTime) {
+      return blink(onTime, onTime);
+    }
+
+    /**
+     * Scales the brightness of the chain so far, see {@link LEDPattern#atBrightness(Dimensionless)}.
+     */
+    public Builder atBrightness(Dimensionless relativeBrightness) {
+      return new Builder(Op.BRIGHTNESS, null, this, null, 0, 0, 0, relativeBrightness.in(Value));
+    }
+
+    /**
+     * Compiles the chain, reading the time from the current LED clock so every pattern in a frame sees the same time.
+     */
+    public FusedLEDPattern build() {
+      return build(() -> LEDFrameClock.current().getTime());
+    }
+
+    /**
+     * Compiles the chain.
+     * @param timeSourceMicros Where scrolls and blinks read the time from, in microseconds
+     */
+    public FusedLEDPattern build(LongSupplier timeSourceMicros) {
+      return new FusedLEDPattern(this, timeSourceMicros);
+    }
+  }
+
+  // The expression left once index maps and blinks have been pulled out of the chain
+  private static final int kLeaf = 0;
+  private static final int kTable = 1;
+  private static final int kAnd = 2;
+
+  private static final class Expr {
+    final int kind;
+    final int leaf;
+    final int[] table;
+    final Expr child;
+    final List<Expr> terms;
+
+    Expr(int kind, int leaf, int[] table, Expr child, List<Expr> terms) {
+      this.kind = kind;
+      this.leaf = leaf;
+      this.table = table;
+      this.child = child;
+      this.terms = terms;
+    }
+  }
+
+  /**
+   * One fused loop: the AND of a few terms, each a table lookup or an earlier stage, then an optional brightness table.
+   */
+  private static final class Stage {
+    // A leaf index, or -1 - stage for the output of an earlier stage
+    final int[] termSources;
+    final int[][] termTables;
+    final int[] postTable;
+
+    Stage(int[] termSources, int[][] termTables, int[] postTable) {
+      this.termSources = termSources;
+      this.termTables = termTables;
+      this.postTable = postTable;
+    }
+  }
+
+  // Lookup tables for one strip length
+  private static final class Tables {
+    final int length;
+    final int[][] leaves;
+
+    Tables(int length, int[][] leaves) {
+      this.length = length;
+      this.leaves = leaves;
+    }
+  }
+
+  private static final int kReversed = -1;
+
+  private final LongSupplier timeSourceMicros;
+  private final LEDPattern[] sources;
+  private final double[] scrollPeriods;
+  // For every leaf, the scrolls (by index) and reversals between the root and the leaf, from the root down
+  private final int[][] leafPaths;
+  private final long[] blinkOnMicros;
+  private final long[] blinkTotalMicros;
+  private final Stage[] stages;
+
+  private volatile Tables[] tables = new Tables[0];
+
+  private FusedLEDPattern(Builder root, LongSupplier timeSourceMicros) {
+    this.timeSourceMicros = timeSourceMicros;
+
+    List<LEDPattern> sourceList = new ArrayList<>();
+    List<Double> scrollList = new ArrayList<>();
+    List<int[]> pathList = new ArrayList<>();
+    List<long[]> blinkList = new ArrayList<>();
+    Expr expr = lower(root, new int[0], sourceList, scrollList, pathList, blinkList);
+
+    sources = sourceList.toArray(new LEDPattern[0]);
+    scrollPeriods = scrollList.stream().mapToDouble(Double::doubleValue).toArray();
+    leafPaths = pathList.toArray(new int[0][]);
+    blinkOnMicros = blinkList.stream().mapToLong(blink -> blink[0]).toArray();
+    blinkTotalMicros = blinkList.stream().mapToLong(blink -> blink[1]).toArray();
+
+    List<Stage> stageList = new ArrayList<>();
+    schedule(expr, stageList);
+    stages = stageList.toArray(new Stage[0]);
+  }
+
+  /**
+   * Pulls index maps and blinks out of the chain, leaving only sources, brightness tables and masks.
+   */
+  private static Expr lower(Builder node, int[] path, List<LEDPattern> sources, List<Double> scrolls, List<int[]> paths, List<long[]> blinks) {
+    switch (node.op) {
+      case SOURCE:
+        sources.add(node.source);
+        paths.add(path);
+        return new Expr(kLeaf, sources.size() - 1, null, null, null);
+      case SCROLL:
+        scrolls.add(node.periodMicros);
+        return lower(node.child, append(path, scrolls.size() - 1), sources, scrolls, paths, blinks);
+      case REVERSED:
+        return lower(node.child, append(path, kReversed), sources, scrolls, paths, blinks);
+      case BLINK:
+        blinks.add(new long[] {node.onMicros, node.totalMicros});
+        return lower(node.child, path, sources, scrolls, paths, blinks);
+      case BRIGHTNESS: {
+        Expr child = lower(node.child, path, sources, scrolls, paths, blinks);
+        int[] table = brightnessTable(node.multiplier);
+        if (child.kind == kTable) {
+          // Brightness on brightness is one lookup through both tables
+          int[] merged = new int[256];
+          for (int i = 0; i < 256; i++) {
+            merged[i] = table[child.table[i]];
+          }
+          return new Expr(kTable, -1, merged, child.child, null);
+        }
+        return new Expr(kTable, -1, table, child, null);
+      }
+      case MASK: {
+        List<Expr> terms = new ArrayList<>();
+        for (Expr side : new Expr[] {
+          lower(node.child, path, sources, scrolls, paths, blinks),
+          lower(node.mask, path, sources, scrolls, paths, blinks)
+        }) {
+          if (side.kind == kAnd) {
+            terms.addAll(side.terms);
+          } else {
+            terms.add(side);
+          }
+        }
+        return new Expr(kAnd, -1, null, null, terms);
+      }
+      default:
+        throw new IllegalStateException("Unknown op " + node.op);
+    }
+  }
+
+  private static int[] append(int[] path, int step) {
+    int[] extended = Arrays.copyOf(path, path.length + 1);
+    extended[path.length] = step;
+    return extended;
+  }
+
+  private static int[] brightnessTable(double multiplier) {
+    int[] table = new int[256];
+    for (int i = 0; i < 256; i++) {
+      table[i] = (int) MathUtil.clamp(i * multiplier, 0, 255);
+    }
+    return table;
+  }
+
+  /**
+   * Turns the expression into fused loops. Most chains are a single stage, a brightness table over a mask
+   * inside another mask needs its own stage first.
+   * @return The index of the stage that produces the expression
+   */
+  private static int schedule(Expr expr, List<Stage> stages) {
+    int[] postTable = null;
+    if (expr.kind == kTable) {
+      postTable = expr.table;
+      expr = expr.child;
+    }
+
+    List<Expr> terms = expr.kind == kAnd ? expr.terms : List.of(expr);
+    int[] termSources = new int[terms.size()];
+    int[][] termTables = new int[terms.size()][];
+    for (int i = 0; i < terms.size(); i++) {
+      Expr term = terms.get(i);
+      if (term.kind == kLeaf) {
+        termSources[i] = term.leaf;
+      } else if (term.child.kind == kLeaf) {
+        termSources[i] = term.child.leaf;
+        termTables[i] = term.table;
+      } else {
+        termSources[i] = -1 - schedule(term, stages);
+      }
+    }
+
+    stages.add(new Stage(termSources, termTables, postTable));
+    return stages.size() - 1;
+  }
+
+  @Override
+  public void applyTo(LEDReader reader, LEDWriter writer) {
+    int bufLen = reader.getLength();
+    if (bufLen == 0) {
+      return;
+    }
+    long now = timeSourceMicros.getAsLong();
+
+    // Any blink that's off turns the whole frame black, since black survives every other step
+    for (int i = 0; i < blinkOnMicros.length; i++) {
+      if (now % blinkTotalMicros[i] >= blinkOnMicros[i]) {
+        for (int led = 0; led < bufLen; led++) {
+          writer.setRGB(led, 0, 0, 0);
+        }
+        return;
+      }
+    }
+
+    int[][] leaves = tablesFor(bufLen).leaves;
+    int[] leafMaps = PackedScratch.acquire(leafPaths.length * 2);
+    try {
+      // Every stage gets its own stretch of one buffer, the last stage's is the frame
+      int[] outputs = PackedScratch.acquire(stages.length * bufLen);
+      try {
+        for (int leaf = 0; leaf < leafPaths.length; leaf++) {
+          mapLeaf(leaf, now, bufLen, leafMaps);
+        }
+        for (int stage = 0; stage < stages.length; stage++) {
+          runStage(stages[stage], leaves, leafMaps, outputs, stage * bufLen, bufLen);
+        }
+
+        int frame = (stages.length - 1) * bufLen;
+        for (int led = 0; led < bufLen; led++) {
+          int rgb = outputs[frame + led];
+          writer.setRGB(led, PackedColors.red(rgb), PackedColors.green(rgb), PackedColors.blue(rgb));
+        }
+      } finally {
+        PackedScratch.release();
+      }
+    } finally {
+      PackedScratch.release();
+    }
+  }
+
+  /**
+   * Folds every reversal and scroll above a leaf into LED j reading from source LED (sign * j + offset) mod length.
+   */
+  private void mapLeaf(int leaf, long now, int bufLen, int[] leafMaps) {
+    int sign = 1;
+    int offset = 0;
+    for (int step : leafPaths[leaf]) {
+      if (step == kReversed) {
+        sign = -sign;
+        offset = bufLen - 1 - offset;
+      } else {
+        // Same offset as LEDPattern.scrollAtRelativeSpeed, which writes LED i to i + scroll
+        double periodMicros = scrollPeriods[step];
+        double t = (now % (long) periodMicros) / periodMicros;
+        offset -= (int) (t * bufLen);
+      }
+      offset = Math.floorMod(offset, bufLen);
+    }
+    leafMaps[leaf * 2] = sign;
+    leafMaps[leaf * 2 + 1] = offset;
+  }
+
+  private static void runStage(Stage stage, int[][] leaves, int[] leafMaps, int[] outputs, int outputOffset, int bufLen) {
+    int[] termSources = stage.termSources;
+    int[][] termTables = stage.termTables;
+    int[] post = stage.postTable;
+
+    for (int led = 0; led < bufLen; led++) {
+      int rgb = 0xFFFFFF;
+      for (int term = 0; term < termSources.length; term++) {
+        int source = termSources[term];
+        int value;
+        if (source >= 0) {
+          int index = leafMaps[source * 2] * led + leafMaps[source * 2 + 1];
+          if (index >= bufLen) {
+            index -= bufLen;
+          } else if (index < 0) {
+            index += bufLen;
+          }
+          value = leaves[source][index];
+        } else {
+          value = outputs[(-1 - source) * bufLen + led];
+        }
+        if (termTables[term] != null) {
+          value = lookup(termTables[term], value);
+        }
+        rgb &= value;
+      }
+      outputs[outputOffset + led] = post == null ? rgb : lookup(post, rgb);
+    }
+  }
+
+  private static int lookup(int[] table, int rgb) {
+    return PackedColors.pack(table[PackedColors.red(rgb)], table[PackedColors.green(rgb)], table[PackedColors.blue(rgb)]);
+  }
+
+  private Tables tablesFor(int bufLen) {
+    for (Tables cached : tables) {
+      if (cached.length == bufLen) {
+        return cached;
+      }
+    }
+
+    synchronized (this) {
+      for (Tables cached : tables) {
+        if (cached.length == bufLen) {
+          return cached;
+        }
+      }
+
+      int[][] leaves = new int[sources.length][];
+      for (int leaf = 0; leaf < sources.length; leaf++) {
+        PackedLEDBuffer buffer = new PackedLEDBuffer(bufLen);
+        sources[leaf].applyTo(buffer, buffer);
+        leaves[leaf] = buffer.getPixels();
+      }
+
+      Tables compiled = new Tables(bufLen, leaves);
+      Tables[] grown = Arrays.copyOf(tables, tables.length + 1);
+      grown[tables.length] = compiled;
+      tables = grown;
+      return compiled;
+    }
+  }
+}
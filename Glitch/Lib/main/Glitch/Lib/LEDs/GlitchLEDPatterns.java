@@ -4,16 +4,20 @@
 
 package Glitch.Lib.LEDs;
 
+import Glitch.Lib.LEDs.Interfaces.IndexedLEDPattern;
+import Glitch.Lib.LEDs.Interfaces.RefreshRatePattern;
+import Glitch.Lib.LEDs.Interfaces.TimeInvariantPattern;
 import edu.wpi.first.wpilibj.AddressableLEDBuffer;
 import edu.wpi.first.wpilibj.LEDPattern;
 import edu.wpi.first.wpilibj.LEDPattern.GradientType;
-import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.LEDReader;
+import edu.wpi.first.wpilibj.LEDWriter;
 import edu.wpi.first.wpilibj.util.Color;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.function.DoubleUnaryOperator;
+import java.util.WeakHashMap;
 
 import static edu.wpi.first.units.Units.*;
 
@@ -23,36 +27,50 @@ import static edu.wpi.first.units.Units.*;
  */
 public class GlitchLEDPatterns {
 
+  /**
+   * Creates a solid color pattern that sections know they only have to render once.
+   * Prefer this over LEDPattern.solid for anything that sits on a section for a while.
+   * @param color The color of the pattern
+   * @return The solid pattern
+   */
+  public static TimeInvariantPattern solid(Color color) {
+    return TimeInvariantPattern.of(LEDPattern.solid(color));
+  }
+
   /**
    * Solid purple pattern (2025)
    */
-  public static final LEDPattern purple = LEDPattern.solid(GlitchColors.purple);
+  public static final LEDPattern purple = solid(GlitchColors.purple);
   
   /**
    * Rainbow pattern with a scrolling mask (2025) 
+   * 
+   * The scrolling chains below are fused into a single pass, see FusedLEDPattern.
    * */
-  public static final LEDPattern rainbow = LEDPattern.rainbow(
+  public static final LEDPattern rainbow = FusedLEDPattern.rainbow(
     256, 
     256)
     .scrollAtRelativeSpeed(
       Percent.per(Second).of(15))
       .reversed()
       .mask(
-        LEDPattern.steps(
+        FusedLEDPattern.steps(
           Map.of(
               0.0, Color.kWhite,
               0.25, Color.kBlack,
               0.75, Color.kWhite))
       .scrollAtRelativeSpeed(
-        Percent.per(Second).of(20)));
+        Percent.per(Second).of(20)))
+    .build();
 
   /**
    * A blue to green scrolling gradient pattern (2025)
    */
   public static final LEDPattern blue =
-      LEDPattern.gradient(LEDPattern.GradientType.kContinuous, Color.kBlue, Color.kGreen)
+      FusedLEDPattern.gradient(LEDPattern.GradientType.kContinuous, Color.kBlue, Color.kGreen)
           .scrollAtRelativeSpeed(
-            Percent.per(Second).of(15));
+            Percent.per(Second).of(15))
+          .build();
 
   /**
    * A purple to green scrolling gradient pattern (2025)
@@ -60,14 +78,15 @@ public class GlitchLEDPatterns {
    * PRIDE MONTH WOOOOOOOOOOOOOOO
    */
   public static final LEDPattern ace =
-      LEDPattern.gradient(GradientType.kContinuous, GlitchColors.purple, Color.kGreen)
+      FusedLEDPattern.gradient(GradientType.kContinuous, GlitchColors.purple, Color.kGreen)
           .scrollAtRelativeSpeed(
-            Percent.per(Second).of(15));
+            Percent.per(Second).of(15))
+          .build();
 
   /**
    * The sunset aro-ace flag because it looks lovely (2026)
    */
-  public static final LEDPattern sunsetAce = 
+  public static final LEDPattern sunsetAce = TimeInvariantPattern.of(
     LEDPattern.steps(
       Map.of(
         0.0, Color.kOrangeRed,
@@ -76,19 +95,19 @@ public class GlitchLEDPatterns {
         0.4, new Color(0.75, 6, 4),
         0.6, Color.kSkyBlue,
         0.8, GlitchColors.darkBlue
-      ));
+      )));
 
   /**
    * Solid green pattern (2025).
    * 
    * This used to be our 2025 default pattern but I (Griffin) changed it to a fiery version of theCoolerGreen because that was WAY cooler.
    */
-  public static final LEDPattern green = LEDPattern.solid(Color.kGreen);
+  public static final LEDPattern green = solid(Color.kGreen);
 
   /**
    * Blinking green pattern (2025)
    */
-  public static final LEDPattern blinkyGreen = LEDPattern.solid(Color.kGreen).blink(Second.of(0.1));
+  public static final LEDPattern blinkyGreen = FusedLEDPattern.solid(Color.kGreen).blink(Second.of(0.1)).build();
   
   /**
    * A slightly cooler scrolling green gradient pattern featured on our 2025 robot "Sponge"
@@ -105,10 +124,10 @@ public class GlitchLEDPatterns {
     /**
      * A dark green to green gradient pattern (2025)
      */
-  public static final LEDPattern darkGreen = LEDPattern.gradient(
+  public static final LEDPattern darkGreen = TimeInvariantPattern.of(LEDPattern.gradient(
     GradientType.kDiscontinuous,
     Color.kGreen,
-    Color.kDarkGreen);
+    Color.kDarkGreen));
 
   /**
    * Creates and returns a linear progress bar overlay on top of the given pattern.
@@ -117,58 +136,69 @@ public class GlitchLEDPatterns {
    * @param maxProgress The maximum progress value (e.g., maximum height of the elevator)
    */
   public static LEDPattern linearProgress(LEDPattern pattern, double currentProgress, double maxProgress) {
-    return pattern.mask(LEDPattern.progressMaskLayer(() -> currentProgress / maxProgress));
+    double progress = currentProgress / maxProgress;
+    // Same as masking with LEDPattern.progressMaskLayer, without the two buffers mask allocates every frame
+    return (reader, writer) -> {
+      int bufLen = reader.getLength();
+      pattern.applyTo(reader, writer);
+      int lit = (int) Math.max(0, Math.min(bufLen, progress * bufLen));
+      for (int i = lit; i < bufLen; i++) {
+        writer.setRGB(i, 0, 0, 0);
+      }
+    };
   }
 
   /**
    * Elevator progress pattern (2025)
    */
-  public static final LEDPattern elevatorProgress = LEDPattern.gradient(
+  public static final LEDPattern elevatorProgress = TimeInvariantPattern.of(LEDPattern.gradient(
     GradientType.kDiscontinuous, 
     Color.kGreen, 
     Color.kYellow, 
     Color.kOrange, 
-    Color.kRed);
+    Color.kRed));
   /**
    * Coral pickup pattern (2025)
    */
-  public static final LEDPattern coralPickup = LEDPattern.gradient(
+  public static final LEDPattern coralPickup = FusedLEDPattern.gradient(
     GradientType.kDiscontinuous, 
     Color.kGreen, 
     Color.kPink, 
     Color.kYellow, 
     Color.kRed)
-      .blink(Second.of(0.5));
+      .blink(Second.of(0.5))
+      .build();
 
   /**
    * Algae pickup pattern (2025)
    * 
    * this did not get used a lot because the algae arm kept breaking
    */
-  public static final LEDPattern algaePickup = LEDPattern.gradient(
+  public static final LEDPattern algaePickup = FusedLEDPattern.gradient(
     GradientType.kDiscontinuous,
     Color.kGreen,
     GlitchColors.purple,
     Color.kOrange,
     Color.kRed)
-      .blink(Second.of(0.5));
+      .blink(Second.of(0.5))
+      .build();
 
   /**
    * Classic orange-red fire pattern (2025)
    * 
    * Never actually used on the robot but it's cool so I'll leave it in.
    */
-  public static final LEDPattern fire = LEDPattern.gradient(
+  public static final LEDPattern fire = TimeInvariantPattern.of(LEDPattern.gradient(
     GradientType.kDiscontinuous, 
     Color.kWhite,
     Color.kYellow,
     Color.kOrange,
-    Color.kRed);
+    Color.kRed));
 
     /**
      * Looks really neat when paired with the 2026 fire pattern (2026)
      */
-  public static final LEDPattern funGradient = LEDPattern.gradient(
+  public static final LEDPattern funGradient = FusedLEDPattern.gradient(
     GradientType.kContinuous, 
     Color.kRed, 
     Color.kOrange, 
@@ -176,7 +206,8 @@ public class GlitchLEDPatterns {
     Color.kGreen, 
     Color.kBlue, 
     GlitchColors.purple)
-      .scrollAtRelativeSpeed(Percent.per(Second).of(10));
+      .scrollAtRelativeSpeed(Percent.per(Second).of(10))
+      .build();
 
   /*
    * Deeply experimental and untested Enzo patterns (2025)
@@ -235,40 +266,124 @@ public class GlitchLEDPatterns {
      * @return The LEDPattern for the current enzoMap.
      */
     public LEDPattern getEnzoMap() {
-      return LEDPattern.steps(this.map);
+      return TimeInvariantPattern.of(LEDPattern.steps(this.map));
+    }
+
+    /**
+     * Returns the enzoMap as palette indices into {@link #palette()}, so a section can switch faces or recolor
+     * them without rendering again.
+     * @return The IndexedLEDPattern for the current enzoMap.
+     */
+    public IndexedLEDPattern getIndexedEnzoMap() {
+      Map<Number, Integer> indices = new HashMap<Number, Integer>();
+      for (Map.Entry<Number, Color> step : map.entrySet()) {
+        indices.put(step.getKey(), step.getValue().equals(Color.kBlack) ? 0 : step.getValue().equals(Color.kGreen) ? 1 : 2);
+      }
+      return IndexedLEDPattern.steps(indices);
+    }
+
+    /**
+     * Returns a new palette of the enzoMap colors: black, green and white.
+     */
+    public static LEDPalette palette() {
+      return LEDPalette.of(Color.kBlack, Color.kGreen, Color.kWhite);
     }
   }
 
   // LEDPattern modifying methods is a mouthful!
 
+  /**
+   * Returns the time of the current LED frame in microseconds. Patterns read time through the current
+   * LEDFrameClock, which is the rendering strip's clock, so tests and offline rendering can step it by hand.
+   */
+  private static long frameTime() {
+    return LEDFrameClock.current().getTime();
+  }
+
+  // The overlays below only step during the first 39 ms of every update period
+  private static final long kUpdateWindowMicros = (long) Seconds.of(0.039).in(Microseconds);
+
+  // Fire's heat only drifts an LED or two a step, so it takes a few steps per update to keep up with the flame
+  private static final int kFireStepsPerUpdate = 2;
+
+  private static boolean inUpdateWindow(long timeMicros, long periodMicros) {
+    long phase = timeMicros % periodMicros;
+    return phase > 0 && phase < kUpdateWindowMicros;
+  }
+
+  /**
+   * Wraps an overlay that steps once every update period. The overlay is only applied inside the update window,
+   * and tells its Section to render it then even if the strip isn't about to be pushed, so it keeps its pace.
+   */
+  private static LEDPattern steppedOverlay(double updateTime, LEDPattern overlay) {
+    long periodMicros = (long) Seconds.of(updateTime).in(Microseconds);
+    return new RefreshRatePattern() {
+      @Override
+      public long getUpdateIntervalMicros() {
+        return periodMicros;
+      }
+
+      @Override
+      public boolean isDue(long nowMicros, long lastRenderMicros) {
+        return inUpdateWindow(nowMicros, periodMicros);
+      }
+
+      @Override
+      public void applyTo(LEDReader reader, LEDWriter writer) {
+        if (inUpdateWindow(frameTime(), periodMicros)) {
+          overlay.applyTo(reader, writer);
+        }
+      }
+    };
+  }
+
+  /**
+   * Bakes a pattern that repeats itself exactly, so it's only computed during its first period. (2026)
+   * Good for scrolling gradients and blinks like blue, ace, funGradient, blinkyGreen and coralPickup.
+   * @param pattern The pattern to bake
+   * @param periodSeconds How long it takes the pattern to repeat itself in seconds
+   * @return The baked pattern
+   */
+  public static LEDPattern baked(LEDPattern pattern, double periodSeconds) {
+    return new BakedLEDPattern(pattern, Seconds.of(periodSeconds));
+  }
+
   /**
    * This pattern creates a fire overlay that makes the given pattern look like it's made of fire. (2025)
    * @param pattern The pattern that the fire overlay applies to.
    * @param updateTime The time in seconds between updates of the fire overlay.
+   * @param seed The seed for the flicker, the same seed always flickers the same way.
    */
-  public static LEDPattern oldFire(LEDPattern pattern, double updateTime) {
-    return (reader, writer) -> {
+  public static LEDPattern oldFire(LEDPattern pattern, double updateTime, long seed) {
+    LEDScratchBuffers scratchBuffers = new LEDScratchBuffers();
+    LEDRandom random = new LEDRandom(seed);
+
+    return steppedOverlay(updateTime, (reader, writer) -> {
 
-      AddressableLEDBuffer tempBuffer = new AddressableLEDBuffer(reader.getLength());
+      AddressableLEDBuffer tempBuffer = scratchBuffers.get(reader.getLength());
       pattern.applyTo(tempBuffer);
 
-      double randomOffset = (Math.random() * Math.PI * 2) + 5;
-      long actualUpdateTime = (long) Seconds.of(updateTime).in(Microseconds);
-      long updateLimit = (long) Seconds.of(0.039).in(Microseconds);
-      long robotTime = RobotController.getTime();
+      double randomOffset = (random.nextDouble() * Math.PI * 2) + 5;
+      float[] noise = random.nextFloats(reader.getLength());
 
-      if (robotTime % actualUpdateTime < updateLimit 
-          && robotTime % actualUpdateTime > 0) {
 
-        reader.forEach( (index, red, green, blue) -> {
-          if ((1.5 * (Math.sin(randomOffset - Math.random())) + (index / (double) reader.getLength())) > 1.275) {
-            writer.setRGB(index, 0, 0, 0);
-          } else {
-            writer.setRGB(index, tempBuffer.getRed(index), tempBuffer.getGreen(index), tempBuffer.getBlue(index));
-          }
-        });
-      }
-    };
+      reader.forEach( (index, red, green, blue) -> {
+        if ((1.5 * (LEDMath.sin(randomOffset - noise[index])) + (index / (double) reader.getLength())) > 1.275) {
+          writer.setRGB(index, 0, 0, 0);
+        } else {
+          writer.setRGB(index, tempBuffer.getRed(index), tempBuffer.getGreen(index), tempBuffer.getBlue(index));
+        }
+      });
+    });
+  }
+
+  /**
+   * This pattern creates a fire overlay that makes the given pattern look like it's made of fire. (2025)
+   * @param pattern The pattern that the fire overlay applies to.
+   * @param updateTime The time in seconds between updates of the fire overlay.
+   */
+  public static LEDPattern oldFire(LEDPattern pattern, double updateTime) {
+    return oldFire(pattern, updateTime, LEDRandom.newSeed());
   }
 
   /**
@@ -286,159 +401,79 @@ public class GlitchLEDPatterns {
    * @param updateTime The time between updates of the overlay in seconds.
    * @param shiftColor The color the fire shifts towards (putting in a color other than red, green, or blue shifts it to gray).
    * @param speed How fast the wave function of the flame moves (higher is faster, lower is slower, 1 is normal).
+   * @param seed The seed for the flicker, the same seed always flickers the same way.
    * @return The fire pattern.
    * Graph of the wave logic: https://www.desmos.com/calculator/r0vs8ddrmf
+   * The wave sets how tall the flame is and how often it sparks, and an {@link LEDFireEngine} heat map does the rest,
+   * colored with a palette taken from the pattern.
    */
-  public static LEDPattern fire(LEDPattern pattern, double updateTime, Color shiftColor, double speed) {
-    return (reader, writer) -> {
-
-      AddressableLEDBuffer tempBuffer = new AddressableLEDBuffer(reader.getLength());
-      pattern.applyTo(tempBuffer);
-
-      // double randomOffset = 0.3 + (Math.random()/(1/0.3));
-      double randomOffset = 0.45 + (0.005 - Math.random() * 0.01);
-      long actualUpdateTime = (long) Seconds.of(updateTime).in(Microseconds);
-      long updateLimit = (long) Seconds.of(0.039).in(Microseconds);
-      long robotTime = RobotController.getTime();
-      double usefulTime = speed * Math.asin(Math.sin((double) RobotController.getTime() / 1000000));
-
-      if (robotTime % actualUpdateTime < updateLimit 
-          && robotTime % actualUpdateTime > 0) {
-
-        reader.forEach( (index, red, green, blue) -> {
-
-          int r;
-          int g;
-          int b;
-
-          // int r = tempBuffer.getRed(index);
-          // int g = tempBuffer.getGreen(index);
-          // int b = tempBuffer.getBlue(index);
-
-          int realRed = reader.getRed(index);
-          int realGreen = reader.getGreen(index);
-          int realBlue = reader.getBlue(index);
-
-          double fadeConstant = 10;
-
-          if (realRed < tempBuffer.getRed(index) / Math.pow(fadeConstant, 2)) {
-            realRed = 0;
-            r = tempBuffer.getRed(index);
-          } else {
-            r = (tempBuffer.getRed(index) + (9*realRed)) /10;
-          }
-          if (realGreen < tempBuffer.getGreen(index) / Math.pow(fadeConstant, 2)) {
-            realGreen = 0;
-            g = tempBuffer.getGreen(index);
-          } else {
-            g = (tempBuffer.getGreen(index) + (9*realGreen)) / 10;
-          }
-          if (realBlue < tempBuffer.getBlue(index) / Math.pow(fadeConstant, 2)) {
-            realBlue = 0;
-            b = tempBuffer.getBlue(index);
-          } else {
-            b = (tempBuffer.getBlue(index) + (9*realBlue)) / 10;
-          }
-
-          if (r < 10) {
-            r = 0;
-          }
-          if (g < 10) {
-            g = 0;
-          }
-          if (b < 10) {
-            b = 0;
-          }
-          
-          if (shiftColor != null) {
-            if (shiftColor == Color.kRed) {
-              g = (int) Math.min(g, (0.5 * reader.getLength() * g) / (index + 1));
-              b = (int) Math.min(b, (0.5 * reader.getLength() * b) / (index + 1));
-            } else if (shiftColor == Color.kGreen) {
-              r = (int) Math.min(r, (0.5 * reader.getLength() * r) / (index + 1));
-              b = (int) Math.min(b, (0.5 * reader.getLength() * b) / (index + 1));
-            } else if (shiftColor == Color.kBlue) {
-              r = (int) Math.min(r, (0.5 * reader.getLength() * r) / (index + 1));
-              g = (int) Math.min(g, (0.5 * reader.getLength() * g) / (index + 1));
-            } else {
-              r = (int) Math.min(r, (0.8 * reader.getLength() * r) / (index + 1));
-              g = (int) Math.min(g, (0.8 * reader.getLength() * g) / (index + 1));
-              b = (int) Math.min(b, (0.8 * reader.getLength() * b) / (index + 1));
-            }
-          }
-
-          boolean isLit = false;
-          boolean nearLow = false;
-          boolean nearHigh = false;
-          boolean midLow = false;
-          boolean midHigh = false;
-          boolean farLow = false;
-          boolean farHigh = false;
-          
-          double flame = ((Math.sin(usefulTime) 
-              + Math.sin(usefulTime / randomOffset) 
-              + Math.pow(Math.sin(usefulTime), 2) 
-              + 3*(Math.pow(Math.sin(usefulTime / randomOffset), 2))
-              + (usefulTime / 6)
-              + 1) 
-              * reader.getLength() / 8) + 0.1;
-
-          double energy = Math.cos(usefulTime) 
-                        + (Math.cos(usefulTime / randomOffset) * 1/randomOffset) 
-                        + (2 * Math.sin(usefulTime) * Math.cos(usefulTime))
-                        + (6 * Math.sin(usefulTime / randomOffset) * Math.cos(usefulTime / randomOffset) * 1/randomOffset)
-                        + 1/6;
-
-          if (r + g + b != 0) {
-            isLit = true;
-          }
-          if (index < reader.getLength() - 1 && reader.getRed(index+1) + reader.getGreen(index+1) + reader.getBlue(index+1) != 0) {
-            nearHigh = true;
-          }
-          if (index < reader.getLength() - 2 && reader.getRed(index+2) + reader.getGreen(index+2) + reader.getBlue(index+2) != 0) {
-            midHigh = true;
-          }
-          if (index < reader.getLength() - 3 && reader.getRed(index+3) + reader.getGreen(index+3) + reader.getBlue(index+3) != 0) {
-            farHigh = true;
-          }
-          if (index > 2 && (reader.getRed(index-1) + reader.getGreen(index-1) + reader.getBlue(index-1)) != 0) {
-            nearLow = true;
-          }
-          if (index > 3 && (reader.getRed(index-2) + reader.getGreen(index-2) + reader.getBlue(index-2)) != 0) {
-            midLow = true;
-          }
-          if (index > 4 && (reader.getRed(index-3) + reader.getGreen(index-3) + reader.getBlue(index-3)) != 0) {
-            farLow = true;
-          }
+  public static LEDPattern fire(LEDPattern pattern, double updateTime, Color shiftColor, double speed, long seed) {
+    LEDScratchBuffers scratchBuffers = new LEDScratchBuffers();
+    LEDRandom random = new LEDRandom(seed);
+    boolean timeInvariant = TimeInvariantPattern.isTimeInvariant(pattern);
+    // Every section the pattern is applied to burns on its own
+    Map<LEDReader, LEDFireEngine> engines = Collections.synchronizedMap(new WeakHashMap<LEDReader, LEDFireEngine>());
+
+    return steppedOverlay(updateTime, (reader, writer) -> {
+      int length = reader.getLength();
+      LEDFireEngine engine = engines.get(reader);
+      boolean newEngine = engine == null || engine.getLength() != length;
+      if (newEngine) {
+        engine = new LEDFireEngine(length);
+        engines.put(reader, engine);
+      }
+      // A time-invariant pattern always gives the same palette
+      if (newEngine || !timeInvariant) {
+        AddressableLEDBuffer tempBuffer = scratchBuffers.get(length);
+        pattern.applyTo(tempBuffer);
+        engine.buildPalette(tempBuffer, shiftColor);
+      }
 
-          if (index < flame) {
-            if (energy > 0 && Math.random() < 0.8) {
-              writer.setRGB(index, r, g, b);
-            } else if (energy > 0) {
-              // writer.setRGB(index, 0, 0, 0);
-              writer.setRGB(index, (int) (r/fadeConstant), (int) (g/fadeConstant), (int) (b/fadeConstant));
-            } else if (energy < 0 && Math.random() < 0.9) {
-              writer.setRGB(index, r, g, b);
-            } else {
-              // writer.setRGB(index, 0, 0, 0);
-              writer.setRGB(index, (int) (r/fadeConstant), (int) (g/fadeConstant), (int) (b/fadeConstant));
-            }
-          }/*this is when it is outside the main flame body*/ else if (energy > 0 && Math.random() > 0.5 
-              && ((!isLit && (nearHigh || midHigh || farHigh))
-              || (isLit && (nearLow && midLow && farLow)))) {
-            writer.setRGB(index, r, g, b);
-          } else if (energy > 0) {
-            // writer.setRGB(index, 0, 0, 0);
-            writer.setRGB(index, (int) (r/fadeConstant), (int) (g/fadeConstant), (int) (b/fadeConstant));
-          } else if (energy < 0 && Math.random() * reader.getLength() * 2 < flame) {
-            writer.setRGB(index, r, g, b);
-          } else {
-            // writer.setRGB(index, 0, 0, 0);
-            writer.setRGB(index, (int) (r/fadeConstant), (int) (g/fadeConstant), (int) (b/fadeConstant));
-          }
-        });
+      double randomOffset = 0.45 + (0.005 - random.nextDouble() * 0.01);
+      double usefulTime = speed * LEDMath.triangle((double) frameTime() / 1000000);
+
+      // The flame's size and energy are the same for every LED, so work them out once per frame
+      double sinTime = LEDMath.sin(usefulTime);
+      double cosTime = LEDMath.cos(usefulTime);
+      double sinOffsetTime = LEDMath.sin(usefulTime / randomOffset);
+      double cosOffsetTime = LEDMath.cos(usefulTime / randomOffset);
+
+      double flame = ((sinTime 
+          + sinOffsetTime 
+          + sinTime * sinTime 
+          + 3*(sinOffsetTime * sinOffsetTime)
+          + (usefulTime / 6)
+          + 1) 
+          * length / 8) + 0.1;
+
+      double energy = cosTime 
+                    + (cosOffsetTime * 1/randomOffset) 
+                    + (2 * sinTime * cosTime)
+                    + (6 * sinOffsetTime * cosOffsetTime * 1/randomOffset)
+                    + 1/6;
+
+      // A taller flame cools more slowly so its heat reaches further up the strip
+      int height = (int) Math.max(2, Math.min(flame, length));
+      int maxCooling = Math.min(255, 2 + 512 / height);
+      int sparkChance = energy > 0 ? 204 : 115;
+      for (int step = 0; step < kFireStepsPerUpdate; step++) {
+        engine.step(random, maxCooling, Math.max(1, height / 3), sparkChance);
       }
-    };
+      engine.write(writer);
+    });
+  }
+
+  /**
+   * This pattern creates a significantly more complex fire overlay than the previous method, 
+   * and it also allows you to shift the color towards Red, Green, or Blue toward the flame's tip. (2026)
+   * @param pattern The pattern the fire overlays.
+   * @param updateTime The time between updates of the overlay in seconds.
+   * @param shiftColor The color the fire shifts towards (putting in a color other than red, green, or blue shifts it to gray).
+   * @param speed How fast the wave function of the flame moves (higher is faster, lower is slower, 1 is normal).
+   * @return The fire pattern.
+   */
+  public static LEDPattern fire(LEDPattern pattern, double updateTime, Color shiftColor, double speed) {
+    return fire(pattern, updateTime, shiftColor, speed, LEDRandom.newSeed());
   }
 
   /**
@@ -476,74 +511,84 @@ public class GlitchLEDPatterns {
   *
   * @param pattern The pattern that the random noise overlays.
   * @param updateTime The time in seconds between updates of the random noise overlay.
+  * @param seed The seed for where new noise appears, the same seed always gives the same noise.
   * @return The random noise pattern.
   */
-  public static LEDPattern randomNoise(LEDPattern pattern, double updateTime) {
-    return (reader, writer) -> {
+  public static LEDPattern randomNoise(LEDPattern pattern, double updateTime, long seed) {
+    LEDScratchBuffers scratchBuffers = new LEDScratchBuffers();
+    LEDRandom random = new LEDRandom(seed);
 
-      AddressableLEDBuffer tempBuffer = new AddressableLEDBuffer(reader.getLength());
+    return steppedOverlay(updateTime, (reader, writer) -> {
+
+      AddressableLEDBuffer tempBuffer = scratchBuffers.get(reader.getLength());
       pattern.applyTo(tempBuffer);
 
       int ledsOn = 0;
-      long actualUpdateTime = (long) Seconds.of(updateTime).in(Microseconds);
-      long updateLimit = (long) Seconds.of(0.039).in(Microseconds);
-
-      if (RobotController.getTime() % actualUpdateTime < updateLimit 
-          && RobotController.getTime() % actualUpdateTime > 0) {
-            for (int i = 0; i < reader.getLength(); i ++) {
-              if(!(reader.getRed(i) == 0 && reader.getGreen(i) == 0 && reader.getBlue(i) == 0)) {
-                ledsOn += 1;
-              }
+
+      for (int i = 0; i < reader.getLength(); i ++) {
+        if(!(reader.getRed(i) == 0 && reader.getGreen(i) == 0 && reader.getBlue(i) == 0)) {
+          ledsOn += 1;
+        }
+      }
+      
+      if (ledsOn != 0) {
+
+        double thisRandom = random.nextDouble();
+
+        reader.forEach((i, r, g, b) -> {
+          if (i != 0 && i != reader.getLength() - 1 && i != reader.getLength()) {
+            Color left = reader.getLED(i-1);
+            Color mid = reader.getLED(i);
+            Color right = reader.getLED(i+1);
+
+            Color avg = new Color(
+              (reader.getRed(i-1) + reader.getRed(i) + reader.getRed(i+1)) / 3,
+              (reader.getGreen(i-1) + reader.getGreen(i) + reader.getGreen(i+1)) / 3,
+              (reader.getBlue(i-1) + reader.getBlue(i) + reader.getBlue(i+1)) / 3
+            );
+
+            int population = 0;
+
+            if (!left.equals(Color.kBlack)) {
+              population += 1;
+            }
+            if (!mid.equals(Color.kBlack)) {
+              population += 2;
+            }
+            if (!right.equals(Color.kBlack)) {
+              population += 4;
             }
-            
-            if (ledsOn != 0) {
-
-              double thisRandom = Math.random();
-
-              reader.forEach((i, r, g, b) -> {
-                if (i != 0 && i != reader.getLength() - 1 && i != reader.getLength()) {
-                  Color left = reader.getLED(i-1);
-                  Color mid = reader.getLED(i);
-                  Color right = reader.getLED(i+1);
-
-                  Color avg = new Color(
-                    (reader.getRed(i-1) + reader.getRed(i) + reader.getRed(i+1)) / 3,
-                    (reader.getGreen(i-1) + reader.getGreen(i) + reader.getGreen(i+1)) / 3,
-                    (reader.getBlue(i-1) + reader.getBlue(i) + reader.getBlue(i+1)) / 3
-                  );
-
-                  int population = 0;
-
-                  if (!left.equals(Color.kBlack)) {
-                    population += 1;
-                  }
-                  if (!mid.equals(Color.kBlack)) {
-                    population += 2;
-                  }
-                  if (!right.equals(Color.kBlack)) {
-                    population += 4;
-                  }
-
-                  if (population == 3 || population == 1 || population == 6 || population == 4) {
-                    writer.setRGB(i, tempBuffer.getRed(i), tempBuffer.getGreen(i), tempBuffer.getBlue(i));
-                  } else if (population == 0 || population == 7 || population == 5 || population == 2) {
-                    writer.setRGB(i, 0, 0, 0);
-                  } else {
-                    writer.setRGB(i, (int) avg.red*256, (int) avg.green*256, (int) avg.blue*256);
-                  }
-                }
-              });
-
-              writer.setRGB((int)(thisRandom * reader.getLength()), 
-                tempBuffer.getRed((int)(thisRandom * reader.getLength())), 
-                tempBuffer.getGreen((int)(thisRandom * reader.getLength())), 
-                tempBuffer.getBlue((int)(thisRandom * reader.getLength())));
 
+            if (population == 3 || population == 1 || population == 6 || population == 4) {
+              writer.setRGB(i, tempBuffer.getRed(i), tempBuffer.getGreen(i), tempBuffer.getBlue(i));
+            } else if (population == 0 || population == 7 || population == 5 || population == 2) {
+              writer.setRGB(i, 0, 0, 0);
             } else {
-              pattern.applyTo(reader, writer);
-            } 
+              writer.setRGB(i, (int) avg.red*256, (int) avg.green*256, (int) avg.blue*256);
+            }
           }
-    };
+        });
+
+        writer.setRGB((int)(thisRandom * reader.getLength()), 
+          tempBuffer.getRed((int)(thisRandom * reader.getLength())), 
+          tempBuffer.getGreen((int)(thisRandom * reader.getLength())), 
+          tempBuffer.getBlue((int)(thisRandom * reader.getLength())));
+
+      } else {
+        pattern.applyTo(reader, writer);
+      } 
+    });
+  }
+
+  /** 
+  * This method creates a fun random noise overlay pattern utilizing cellular automata that took way too long to make. (2026)
+  *
+  * @param pattern The pattern that the random noise overlays.
+  * @param updateTime The time in seconds between updates of the random noise overlay.
+  * @return The random noise pattern.
+  */
+  public static LEDPattern randomNoise(LEDPattern pattern, double updateTime) {
+    return randomNoise(pattern, updateTime, LEDRandom.newSeed());
   }
 
   /**
@@ -561,42 +606,50 @@ public class GlitchLEDPatterns {
    * @param updateTime The time between updates of the overlay in seconds.
    * @param frequency The rate at which the ripples move.
    * @param wavelength The size of an individual ripple and the distance between them. (Larger numbers mean smaller ripples)
+   * @param seed The seed for where the ripples start, the same seed always starts them in the same place.
    * @return The ripple pattern.
    */
-  public static LEDPattern ripple(LEDPattern pattern, double updateTime, double frequency, double wavelength) {
+  public static LEDPattern ripple(LEDPattern pattern, double updateTime, double frequency, double wavelength, long seed) {
 
-    double randomOffset = Math.random() * 100;
+    double randomOffset = new LEDRandom(seed).nextDouble() * 100;
+    LEDScratchBuffers scratchBuffers = new LEDScratchBuffers();
 
-    return (reader, writer) -> {
+    return steppedOverlay(updateTime, (reader, writer) -> {
 
-      AddressableLEDBuffer tempBuffer = new AddressableLEDBuffer(reader.getLength());
+      AddressableLEDBuffer tempBuffer = scratchBuffers.get(reader.getLength());
       pattern.applyTo(tempBuffer);
 
-      long actualUpdateTime = (long) Seconds.of(updateTime).in(Microseconds);
-      long updateLimit = (long) Seconds.of(0.039).in(Microseconds);
-
-      double usefulTime = (double) ((frequency * RobotController.getTime()) / 1000000);
+      double usefulTime = (double) ((frequency * frameTime()) / 1000000);
 
       double multiplier = tempBuffer.getLength() / wavelength;
 
-      if (RobotController.getTime() % actualUpdateTime < updateLimit 
-          && RobotController.getTime() % actualUpdateTime > 0) {
-            reader.forEach((i, red, green, blue) -> {
-
-              int r = tempBuffer.getRed(i);
-              int g = tempBuffer.getGreen(i);
-              int b = tempBuffer.getBlue(i);
-
-              if (Math.sin(((((i * Math.PI / 6) + (usefulTime * Math.PI / 12))) / multiplier) + randomOffset) >= 0.8) {
-                writer.setRGB(i, r, g, b);
-              } else if (Math.sin(((((i * Math.PI / 6) - (usefulTime * Math.PI / 12))) / multiplier) + randomOffset) >= 0.8) {
-                writer.setRGB(i, r, g, b);
-              } else {
-                writer.setRGB(i, 0, 0, 0);
-              }
-            });
-          }
-    };
+      reader.forEach((i, red, green, blue) -> {
+
+        int r = tempBuffer.getRed(i);
+        int g = tempBuffer.getGreen(i);
+        int b = tempBuffer.getBlue(i);
+
+        if (LEDMath.sin(((((i * Math.PI / 6) + (usefulTime * Math.PI / 12))) / multiplier) + randomOffset) >= 0.8) {
+          writer.setRGB(i, r, g, b);
+        } else if (LEDMath.sin(((((i * Math.PI / 6) - (usefulTime * Math.PI / 12))) / multiplier) + randomOffset) >= 0.8) {
+          writer.setRGB(i, r, g, b);
+        } else {
+          writer.setRGB(i, 0, 0, 0);
+        }
+      });
+    });
+  }
+
+  /**
+   * Creates a overlay pattern that kinda looks like ripples moving through water. (2026)
+   * @param pattern The pattern the ripples overlay.
+   * @param updateTime The time between updates of the overlay in seconds.
+   * @param frequency The rate at which the ripples move.
+   * @param wavelength The size of an individual ripple and the distance between them. (Larger numbers mean smaller ripples)
+   * @return The ripple pattern.
+   */
+  public static LEDPattern ripple(LEDPattern pattern, double updateTime, double frequency, double wavelength) {
+    return ripple(pattern, updateTime, frequency, wavelength, LEDRandom.newSeed());
   }
 
   /**
@@ -619,107 +672,64 @@ public class GlitchLEDPatterns {
     return ripple(pattern, 0.11, 7, 14);
   }
 
+  // The drops falling on one section, and when they last moved
+  private static final class RainDrops {
+    final LEDParticles drops = new LEDParticles(64);
+    long lastFrameTime = -1;
+  }
+
   /**
-   * Creates a pattern that should look like raindrops. (2026) DO NOT USE YET IT ISN'T READY
+   * Creates a pattern that should look like raindrops landing on water, with ripples spreading out from each drop. (2026)
+   * Every section the pattern is applied to has its own drops.
    * @param pattern The pattern the ripples overlay.
    * @param intensity The speed at which new ripples form (cannot be negative or zero).
    * @param impact The maximum size of each ripple before it disappears.
+   * @param seed The seed for where drops land, the same seed always drops them in the same places.
    * @return The pattern of raindrop ripples.
-   * Graph of the wave logic: https://www.desmos.com/calculator/cmfir0yqqo
    */
-  public static LEDPattern rainDrops(LEDPattern pattern, int intensity, int impact) {
+  public static LEDPattern rainDrops(LEDPattern pattern, int intensity, int impact, long seed) {
+    LEDScratchBuffers scratchBuffers = new LEDScratchBuffers();
+    LEDRandom random = new LEDRandom(seed);
+    // Every section the pattern is applied to gets its own rain
+    Map<LEDReader, RainDrops> rainBySection = Collections.synchronizedMap(new WeakHashMap<LEDReader, RainDrops>());
 
-    long actualUpdateTime = (long) Seconds.of(0.21).in(Microseconds);
-    long updateLimit = (long) Seconds.of(0.039).in(Microseconds);
-
-    List<Integer> dropIndices = new ArrayList<>(0);
-    List<Long> dropDurations = new ArrayList<>(0);
-    List<Double> dropLuminosities = new ArrayList<>(0);
-
-    DoubleUnaryOperator abstractedMathFunction = (x) -> 
-      Math.cos((x/impact)/2*Math.PI) 
-      - Math.cos(0.5);
-
-    DoubleUnaryOperator overallBehaviorFunction = (x) ->
-      (abstractedMathFunction.applyAsDouble(Math.PI * x) / abstractedMathFunction.applyAsDouble(0.0));
+    // About intensity / 10 drops every 0.21 seconds, each spreading impact LEDs out in a quarter second per LED
+    LEDParticles.SpawnKernel rain = LEDParticles.randomSpawn(intensity / 2.1, impact * 0.25f);
+    LEDParticles.DecayKernel ripple = LEDParticles.ripple(impact);
 
     return (reader, writer) -> {
-      AddressableLEDBuffer tempBuffer = new AddressableLEDBuffer(reader.getLength());
+      AddressableLEDBuffer tempBuffer = scratchBuffers.get(reader.getLength());
       pattern.applyTo(tempBuffer);
 
-      if (dropDurations.size() != reader.getLength()) {
-        reader.forEach((i, r, g, b) -> {
-          dropDurations.add(AbstractLEDS.getTime());
-        });
+      RainDrops section = rainBySection.get(reader);
+      if (section == null) {
+        section = new RainDrops();
+        rainBySection.put(reader, section);
       }
-      if (dropLuminosities.size() != reader.getLength()) {
-        reader.forEach((i, r, g, b) -> {
-          dropLuminosities.add(0.0);
-        });
-      } else {
-        reader.forEach((i, r, g, b) -> {
-          dropLuminosities.set(i, 0.0);
-        });
-      }
-
-      if (RobotController.getTime() % actualUpdateTime < updateLimit 
-          && RobotController.getTime() % actualUpdateTime > 0) {
-
-        for (int indexIterator = 0; indexIterator < dropIndices.size(); indexIterator++) {
-          for (int i = (impact * -1); i < impact + 1; i++) {
-            int dropIndex = dropIndices.get(indexIterator);
-            int ledIndex;
-
-            if (dropIndex + i < 0) {
-              ledIndex = dropIndex + i + reader.getLength();
-            } else if (dropIndex + i >= reader.getLength()) {
-              ledIndex = (dropIndex + i) - reader.getLength();
-            } else {
-              ledIndex = dropIndex + i;
-            }
-
-            double durationTime = (2 * impact) - Microseconds.of(AbstractLEDS.getTime() - dropDurations.get(ledIndex)).in(Seconds);
-
-            double calcLuminosity;
-
-            if (dropDurations.get(ledIndex) + Seconds.of(Math.abs(i)).in(Microseconds) <= AbstractLEDS.getTime() || i == 0) {
-              calcLuminosity = overallBehaviorFunction.applyAsDouble((durationTime * (Math.abs(i) + 1)) - impact) * overallBehaviorFunction.applyAsDouble(i) / 1 + Math.abs(i);
-            } else {
-              calcLuminosity = 0.0;
-            }
-
-            dropLuminosities.set(ledIndex, Math.min(1.0, dropLuminosities.get(ledIndex) + calcLuminosity));
-
-            if (dropLuminosities.get(ledIndex) == 1.0 && !dropIndices.contains(ledIndex)) {
-              dropIndices.add(ledIndex);
-              dropDurations.set(ledIndex, (long) (AbstractLEDS.getTime() - Seconds.of(3 * intensity).in(Microseconds)));
-            }
-          }
-
-          if (AbstractLEDS.getTime() - dropDurations.get(dropIndices.get(indexIterator)) >= Seconds.of(2.0 * impact).in(Microseconds)) {
-            dropIndices.remove(indexIterator);
-          }
-        }
-
-        reader.forEach((i, red, green, blue) -> {
-          if ((int) (Math.random() * reader.getLength()) == i && Math.random() * 10 < intensity) {
-            writer.setRGB(i, tempBuffer.getRed(i), tempBuffer.getGreen(i), tempBuffer.getBlue(i));
-                if (!dropIndices.contains(i)) {
-                  dropIndices.add(i);
-                }
-                dropDurations.set(i, AbstractLEDS.getTime());
-          }
-
-          writer.setRGB(i, 
-            (int) (tempBuffer.getRed(i) * dropLuminosities.get(i)), 
-            (int) (tempBuffer.getGreen(i) * dropLuminosities.get(i)), 
-            (int) (tempBuffer.getBlue(i) * dropLuminosities.get(i)));
-        });
-
-        // for (int i = 0; i < dropIndices.size(); i++) {
-        //   writer.setRGB(dropIndices.get(i), 255, 255, 255);
-        // }
+      long now = frameTime();
+      double dtSeconds = section.lastFrameTime < 0 ? 0 : (now - section.lastFrameTime) / 1e6;
+      section.lastFrameTime = now;
+
+      section.drops.update(dtSeconds, rain, random, reader.getLength(), 1);
+      float[] luminosity = section.drops.render1D(reader.getLength(), ripple, impact + 1, true);
+
+      for (int i = 0; i < reader.getLength(); i++) {
+        writer.setRGB(i, 
+          (int) (tempBuffer.getRed(i) * luminosity[i]), 
+          (int) (tempBuffer.getGreen(i) * luminosity[i]), 
+          (int) (tempBuffer.getBlue(i) * luminosity[i]));
       }
     };
   }
+
+  /**
+   * Creates a pattern that should look like raindrops landing on water, with ripples spreading out from each drop. (2026)
+   * @param pattern The pattern the ripples overlay.
+   * @param intensity The speed at which new ripples form (cannot be negative or zero).
+   * @param impact The maximum size of each ripple before it disappears.
+   * @return The pattern of raindrop ripples.
+   */
+  public static LEDPattern rainDrops(LEDPattern pattern, int intensity, int impact) {
+    return rainDrops(pattern, intensity, impact, LEDRandom.newSeed());
+  }
 }
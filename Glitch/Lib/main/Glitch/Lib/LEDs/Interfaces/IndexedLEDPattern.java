@@ -0,0 +1,155 @@
+package Glitch.Lib.LEDs.Interfaces;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import Glitch.Lib.LEDs.LEDPalette;
+import edu.wpi.first.wpilibj.LEDPattern;
+import edu.wpi.first.wpilibj.LEDReader;
+import edu.wpi.first.wpilibj.LEDWriter;
+
+/**
+ * A pattern that picks a palette color for each LED instead of writing RGB. The indices take a byte per LED instead
+ * of three, and the colors are only looked up when the indices are expanded onto the strip, so the same pattern can be
+ * shown in different colors by changing its palette without rendering it again.
+ *
+ * Use {@link #withPalette(LEDPalette)} to turn one into an LEDPattern, or
+ * {@link Glitch.Lib.LEDs.AbstractLEDS.Section#setIndexedPattern(IndexedLEDPattern)} to show it in a section's palette.
+ */
+@FunctionalInterface
+public interface IndexedLEDPattern {
+  /**
+   * Writes a palette index for every LED.
+   * @param length The number of LEDs
+   * @param indices Where to write the indices, read them back with {@code & 0xFF}. Only the first {@code length}
+   * entries are LEDs, the array may be longer and must not be kept after this call returns.
+   */
+  void applyTo(int length, byte[] indices);
+
+  /**
+   * Returns whether the indices only depend on the length of the strip. Time-invariant patterns are only rendered
+   * once, and after that only expanded again when their palette changes.
+   */
+  default boolean isTimeInvariant() {
+    return false;
+  }
+
+  /**
+   * Shows the pattern in a palette. Changing the palette's colors later changes the colors the pattern shows.
+   * @param palette The palette to look the indices up in
+   * @return The pattern
+   */
+  default LEDPattern withPalette(LEDPalette palette) {
+    IndexedLEDPattern indexed = this;
+    if (!isTimeInvariant()) {
+      return new LEDPattern() {
+        private byte[] indices = new byte[0];
+
+        @Override
+        public void applyTo(LEDReader reader, LEDWriter writer) {
+          int length = reader.getLength();
+          if (indices.length < length) {
+            indices = new byte[length];
+          }
+          indexed.applyTo(length, indices);
+          palette.expand(indices, length, writer);
+        }
+      };
+    }
+
+    // The indices never change, so they're kept and only expanded again when the palette does. Being time-invariant
+    // and due only when the palette changes, sections and layer stacks skip it on every other frame.
+    class PalettePattern implements TimeInvariantPattern, RefreshRatePattern {
+      private byte[] indices = new byte[0];
+      private int renderedLength = -1;
+      private long expandedVersion = -1;
+
+      @Override
+      public long getUpdateIntervalMicros() {
+        return Long.MAX_VALUE;
+      }
+
+      @Override
+      public boolean isDue(long nowMicros, long lastRenderMicros) {
+        return palette.getVersion() != expandedVersion;
+      }
+
+      @Override
+      public void applyTo(LEDReader reader, LEDWriter writer) {
+        int length = reader.getLength();
+        if (length != renderedLength) {
+          if (indices.length < length) {
+            indices = new byte[length];
+          }
+          indexed.applyTo(length, indices);
+          renderedLength = length;
+        }
+        expandedVersion = palette.getVersion();
+        palette.expand(indices, length, writer);
+      }
+    }
+    return new PalettePattern();
+  }
+
+  /**
+   * Creates a pattern that shows one palette color on every LED.
+   * @param index The palette index
+   * @return The pattern
+   */
+  public static IndexedLEDPattern solid(int index) {
+    byte value = (byte) index;
+    return new IndexedLEDPattern() {
+      @Override
+      public void applyTo(int length, byte[] indices) {
+        for (int i = 0; i < length; i++) {
+          indices[i] = value;
+        }
+      }
+
+      @Override
+      public boolean isTimeInvariant() {
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Creates a pattern of palette colors in steps along the strip, like LEDPattern.steps.
+   * LEDs before the first step take index 0.
+   * @param steps The palette index starting at each position, from 0 (the start of the strip) to 1 (the end)
+   * @return The pattern
+   */
+  public static IndexedLEDPattern steps(Map<? extends Number, Integer> steps) {
+    TreeMap<Double, Integer> sorted = new TreeMap<Double, Integer>();
+    for (Map.Entry<? extends Number, Integer> step : steps.entrySet()) {
+      sorted.put(step.getKey().doubleValue(), step.getValue());
+    }
+    double[] starts = new double[sorted.size()];
+    byte[] values = new byte[sorted.size()];
+    int n = 0;
+    for (Map.Entry<Double, Integer> step : sorted.entrySet()) {
+      starts[n] = step.getKey();
+      values[n] = (byte) (int) step.getValue();
+      n++;
+    }
+
+    return new IndexedLEDPattern() {
+      @Override
+      public void applyTo(int length, byte[] indices) {
+        int step = -1;
+        for (int i = 0; i < length; i++) {
+          double position = i / (double) length;
+          while (step + 1 < starts.length && starts[step + 1] <= position) {
+            step++;
+          }
+          indices[i] = step < 0 ? 0 : values[step];
+        }
+      }
+
+      @Override
+      public boolean isTimeInvariant() {
+        return true;
+      }
+    };
+  }
+}
@@ -5,7 +5,8 @@ import static edu.wpi.first.units.Units.Seconds;
 
 import java.util.ArrayList;
 
-import Glitch.Lib.LEDs.AbstractLEDS;
+import Glitch.Lib.LEDs.LEDFrameClock;
+import Glitch.Lib.LEDs.LEDMath;
 import edu.wpi.first.wpilibj.util.Color;
 
 public class OrbitalNonsense extends TwoDArrayPattern {
@@ -14,36 +15,42 @@ public class OrbitalNonsense extends TwoDArrayPattern {
         }
 
         public ArrayList<Color> colorList() {
-            double slowTime = Microseconds.of(AbstractLEDS.getTime()).in(Seconds);
+            double slowTime = Microseconds.of(LEDFrameClock.current().getTime()).in(Seconds);
+            // The orbits only depend on time, so they're the same for every pixel
+            double cosHalf = LEDMath.cos(slowTime/2);
+            double sinOne = LEDMath.sin(slowTime);
+            double cosOne = LEDMath.cos(slowTime);
+            double cosThree = LEDMath.cos(slowTime*3);
+            double sinThree = LEDMath.sin(slowTime*3);
             for (int y = 0; y < height; y++) {
                 for (int x = 0; x < width; x++) {
                     Color thisColor = get2DColor(x, y);
                     int thisR = (int) (thisColor.red * 255);
                     int thisG = (int) (thisColor.green * 255);
                     int thisB = (int) (thisColor.blue * 255);
-                    int rX = (int) ((width/2) + (x*Math.cos(slowTime/2)/2));
-                    int rY = (int) ((height/2) + (y*Math.cos(slowTime/2)/2));
-                    int gX = (int) ((width/2) + (x*Math.sin(slowTime)/2));
-                    int gY = (int) ((height/2) + (y*Math.cos(slowTime)/2));
-                    int bX = (int) ((width/2) + (x*Math.cos(slowTime*3)/2));
-                    int bY = (int) ((height/2) + (y*Math.sin(slowTime*3)/2));
+                    int rX = (int) ((width/2) + (x*cosHalf/2));
+                    int rY = (int) ((height/2) + (y*cosHalf/2));
+                    int gX = (int) ((width/2) + (x*sinOne/2));
+                    int gY = (int) ((height/2) + (y*cosOne/2));
+                    int bX = (int) ((width/2) + (x*cosThree/2));
+                    int bY = (int) ((height/2) + (y*sinThree/2));
                     int r = 0;
                     int g = 0;
                     int b = 0;
-                    if ((int) (Math.sqrt(thisR) + rX*rY*2) > 255) {
+                    if ((int) (LEDMath.sqrt255(thisR) + rX*rY*2) > 255) {
                         r = r % 255;
                     } else {
-                        r = (int) (Math.sqrt(thisR) + (rX*rY*2));
+                        r = (int) (LEDMath.sqrt255(thisR) + (rX*rY*2));
                     }
-                    if ((int) (Math.sqrt(thisG) + (gX*gY*2)) > 255) {
+                    if ((int) (LEDMath.sqrt255(thisG) + (gX*gY*2)) > 255) {
                         g = g % 255;
                     } else {
-                        g = (int) (Math.sqrt(thisG) + (gX*gY*2));
+                        g = (int) (LEDMath.sqrt255(thisG) + (gX*gY*2));
                     }
-                    if ((int) (Math.sqrt(thisB) + (bX*bY*2)) > 255) {
+                    if ((int) (LEDMath.sqrt255(thisB) + (bX*bY*2)) > 255) {
                         b = b % 255;
                     } else {
-                        b = (int) (Math.sqrt(thisB) + (bX*bY*2));
+                        b = (int) (LEDMath.sqrt255(thisB) + (bX*bY*2));
                     }
                     set2DColor(x, y, new Color(r, g, b));
                 }
@@ -0,0 +1,60 @@
+package Glitch.Lib.LEDs.Interfaces;
+
+import java.util.ArrayList;
+
+import Glitch.Lib.LEDs.PackedColors;
+import Glitch.Lib.LEDs.PackedScratch;
+import edu.wpi.first.wpilibj.LEDPattern;
+import edu.wpi.first.wpilibj.LEDReader;
+import edu.wpi.first.wpilibj.LEDWriter;
+import edu.wpi.first.wpilibj.util.Color;
+
+/**
+ * The allocation-free version of LEDArrayPattern. Instead of a fresh list of Colors, the pattern gets a reusable
+ * packed int[] (0xRRGGBB) holding the current colors of the LEDs and edits it in place.
+ */
+@FunctionalInterface
+public interface PackedLEDArrayPattern extends LEDPattern {
+  /**
+   * Updates the colors of the LEDs in place.
+   * @param pixels The current colors of the LEDs packed as 0xRRGGBB. Only the first {@code length} entries are LEDs,
+   * the array may be longer and must not be kept after this call returns.
+   * @param length The number of LEDs
+   */
+  public void colorArray(int[] pixels, int length);
+
+  public default void applyTo(LEDReader reader, LEDWriter writer) {
+    int bufLen = reader.getLength();
+    int[] pixels = PackedScratch.acquire(bufLen);
+    try {
+      PackedColors.read(reader, pixels, bufLen);
+      colorArray(pixels, bufLen);
+      PackedColors.write(pixels, bufLen, writer);
+    } finally {
+      PackedScratch.release();
+    }
+  }
+
+  /**
+   * Wraps an existing LEDArrayPattern so it can be used anywhere a PackedLEDArrayPattern is expected.
+   * The list handed to the old pattern is reused between frames, but the old contract still needs a Color per LED,
+   * so adapted patterns aren't allocation-free. Port them to colorArray when they show up in a profile.
+   * @param pattern The pattern to adapt
+   * @return The adapted pattern
+   */
+  public static PackedLEDArrayPattern of(LEDArrayPattern pattern) {
+    ArrayList<Color> colors = new ArrayList<Color>();
+    return (pixels, length) -> {
+      colors.clear();
+      for (int i = 0; i < length; i++) {
+        colors.add(PackedColors.toColor(pixels[i]));
+      }
+
+      ArrayList<Color> result = pattern.colorList(colors);
+
+      for (int i = 0; i < length && i < result.size(); i++) {
+        pixels[i] = PackedColors.pack(result.get(i));
+      }
+    };
+  }
+}
@@ -0,0 +1,204 @@
+package Glitch.Lib.LEDs.Interfaces;
+
+import java.util.Arrays;
+
+import Glitch.Lib.LEDs.PackedColors;
+import Glitch.Lib.LEDs.Interfaces.TwoDArrayPattern.Alignment;
+import Glitch.Lib.LEDs.Interfaces.TwoDArrayPattern.StartPosition;
+import edu.wpi.first.wpilibj.LEDPattern;
+import edu.wpi.first.wpilibj.LEDReader;
+import edu.wpi.first.wpilibj.LEDWriter;
+import edu.wpi.first.wpilibj.util.Color;
+
+/**
+ * A 2D LED surface backed by a single packed int[] (0xRRGGBB) instead of nested lists of Colors.
+ * Pixels are addressed in logical (x, y) coordinates from the intended origin, and are mapped to the
+ * physical strip using the same StartPosition, Alignment and serpentine rules as TwoDArrayPattern.
+ * Nothing is allocated when the surface is drawn to or applied to a writer.
+ */
+public class PackedTwoDPattern implements LEDPattern {
+  public final int width;
+  public final int height;
+  public final StartPosition physicalStart;
+  public final StartPosition intendedOrigin;
+  public final Alignment alignment;
+  public final boolean serpentine;
+
+  /** Logical pixels, row by row from the intended origin. Index with y * width + x. */
+  public final int[] pixels;
+
+  /** Physical strip index of every logical pixel, indexed the same way as {@link #pixels}. */
+  public final int[] logicalToPhysical;
+
+  public PackedTwoDPattern(int width, int height, StartPosition physicalStart, StartPosition intendedOrigin, Alignment alignment, boolean serpentine) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("A 2D pattern needs a positive width and height.");
+    }
+    this.width = width;
+    this.height = height;
+    this.physicalStart = physicalStart;
+    this.intendedOrigin = intendedOrigin;
+    this.alignment = alignment;
+    this.serpentine = serpentine;
+
+    pixels = new int[width * height];
+
+    logicalToPhysical = TwoDArrayPattern.compileMapping(width, height, physicalStart, intendedOrigin, alignment, serpentine);
+  }
+
+  /**
+   * Returns the index on the physical strip of a logical pixel. Coordinates outside the surface wrap around.
+   * @param x The logical x coordinate
+   * @param y The logical y coordinate
+   * @return The index of the LED on the strip
+   */
+  public int physicalIndex(int x, int y) {
+    return logicalToPhysical[Math.floorMod(y, height) * width + Math.floorMod(x, width)];
+  }
+
+  /**
+   * Gets the packed color of a logical pixel. Coordinates outside the surface wrap around.
+   */
+  public int get(int x, int y) {
+    return pixels[Math.floorMod(y, height) * width + Math.floorMod(x, width)];
+  }
+
+  /**
+   * Sets the packed color of a logical pixel. Coordinates outside the surface wrap around.
+   */
+  public void set(int x, int y, int rgb) {
+    pixels[Math.floorMod(y, height) * width + Math.floorMod(x, width)] = rgb;
+  }
+
+  public void set(int x, int y, Color color) {
+    set(x, y, PackedColors.pack(color));
+  }
+
+  /**
+   * Fills the whole surface with one color.
+   * @param rgb The packed color to fill with
+   */
+  public void fill(int rgb) {
+    Arrays.fill(pixels, rgb);
+  }
+
+  public void fill(Color color) {
+    fill(PackedColors.pack(color));
+  }
+
+  /**
+   * Fills a rectangle with one color. The rectangle is clipped to the surface.
+   * @param x The left edge of the rectangle
+   * @param y The top edge of the rectangle
+   * @param rectWidth The width of the rectangle
+   * @param rectHeight The height of the rectangle
+   * @param rgb The packed color to fill with
+   */
+  public void fillRect(int x, int y, int rectWidth, int rectHeight, int rgb) {
+    int startX = Math.max(0, x);
+    int startY = Math.max(0, y);
+    int endX = Math.min(width, x + rectWidth);
+    int endY = Math.min(height, y + rectHeight);
+    if (startX >= endX) {
+      return;
+    }
+    for (int row = startY; row < endY; row++) {
+      Arrays.fill(pixels, row * width + startX, row * width + endX, rgb);
+    }
+  }
+
+  /**
+   * Copies one row of the surface onto another.
+   * @param fromY The row to copy
+   * @param toY The row to overwrite
+   */
+  public void copyRow(int fromY, int toY) {
+    System.arraycopy(pixels, rowOffset(fromY), pixels, rowOffset(toY), width);
+  }
+
+  /**
+   * Overwrites a row with packed colors from an array.
+   * @param y The row to overwrite
+   * @param source The packed colors, at least {@code width} of them starting at {@code sourceOffset}
+   * @param sourceOffset The index in the source to start copying from
+   */
+  public void setRow(int y, int[] source, int sourceOffset) {
+    System.arraycopy(source, sourceOffset, pixels, rowOffset(y), width);
+  }
+
+  private int rowOffset(int y) {
+    if (y < 0 || y >= height) {
+      throw new IndexOutOfBoundsException("Row " + y + " is outside of a surface with height " + height);
+    }
+    return y * width;
+  }
+
+  /**
+   * Copies a rectangle of another surface onto this one. The rectangle is clipped to both surfaces.
+   * Blitting a surface onto itself is fine, overlapping regions are copied as if through a temporary copy.
+   * @param source The surface to copy from
+   * @param sourceX The left edge of the rectangle in the source
+   * @param sourceY The top edge of the rectangle in the source
+   * @param destX The left edge of the rectangle in this surface
+   * @param destY The top edge of the rectangle in this surface
+   * @param blitWidth The width of the rectangle
+   * @param blitHeight The height of the rectangle
+   */
+  public void blit(PackedTwoDPattern source, int sourceX, int sourceY, int destX, int destY, int blitWidth, int blitHeight) {
+    blit(source.pixels, source.width, source.height, sourceX, sourceY, destX, destY, blitWidth, blitHeight);
+  }
+
+  /**
+   * Copies a rectangle of a row-major packed image onto this surface. The rectangle is clipped to both images.
+   * @param source The packed image to copy from, indexed with y * sourceWidth + x
+   * @param sourceWidth The width of the source image
+   * @param sourceHeight The height of the source image
+   * @param sourceX The left edge of the rectangle in the source
+   * @param sourceY The top edge of the rectangle in the source
+   * @param destX The left edge of the rectangle in this surface
+   * @param destY The top edge of the rectangle in this surface
+   * @param blitWidth The width of the rectangle
+   * @param blitHeight The height of the rectangle
+   */
+  public void blit(int[] source, int sourceWidth, int sourceHeight, int sourceX, int sourceY, int destX, int destY, int blitWidth, int blitHeight) {
+    // Clip against the negative edges of both images first
+    int shiftX = Math.max(Math.max(0, -sourceX), -destX);
+    int shiftY = Math.max(Math.max(0, -sourceY), -destY);
+    sourceX += shiftX;
+    destX += shiftX;
+    sourceY += shiftY;
+    destY += shiftY;
+    blitWidth = Math.min(blitWidth - shiftX, Math.min(sourceWidth - sourceX, width - destX));
+    blitHeight = Math.min(blitHeight - shiftY, Math.min(sourceHeight - sourceY, height - destY));
+    if (blitWidth <= 0 || blitHeight <= 0) {
+      return;
+    }
+
+    if (source == pixels && destY > sourceY) {
+      // Walk the rows bottom up so we don't read rows we've already overwritten
+      for (int row = blitHeight - 1; row >= 0; row--) {
+        System.arraycopy(source, (sourceY + row) * sourceWidth + sourceX, pixels, (destY + row) * width + destX, blitWidth);
+      }
+    } else {
+      for (int row = 0; row < blitHeight; row++) {
+        System.arraycopy(source, (sourceY + row) * sourceWidth + sourceX, pixels, (destY + row) * width + destX, blitWidth);
+      }
+    }
+  }
+
+  /**
+   * Writes the surface straight into the writer, mapping every logical pixel to its physical LED.
+   * LEDs past width * height are left untouched.
+   */
+  @Override
+  public void applyTo(LEDReader reader, LEDWriter writer) {
+    int bufLen = reader.getLength();
+    for (int pixel = 0; pixel < pixels.length; pixel++) {
+      int led = logicalToPhysical[pixel];
+      if (led < bufLen) {
+        int rgb = pixels[pixel];
+        writer.setRGB(led, PackedColors.red(rgb), PackedColors.green(rgb), PackedColors.blue(rgb));
+      }
+    }
+  }
+}
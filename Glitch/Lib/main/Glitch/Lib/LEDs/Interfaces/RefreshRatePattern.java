@@ -0,0 +1,65 @@
+package Glitch.Lib.LEDs.Interfaces;
+
+import static edu.wpi.first.units.Units.Microseconds;
+import static edu.wpi.first.units.Units.Seconds;
+
+import edu.wpi.first.wpilibj.LEDPattern;
+import edu.wpi.first.wpilibj.LEDReader;
+import edu.wpi.first.wpilibj.LEDWriter;
+
+/**
+ * Marks a pattern that only needs to be rendered every so often.
+ *
+ * The strip is only pushed a few times a second, so a Section doesn't render patterns on every update.
+ * Patterns that don't declare a rate are rendered when the strip is about to be pushed. A RefreshRatePattern
+ * is also rendered whenever it says it's due, which is what overlays that step a simulation on a timer
+ * (fire, ripple, randomNoise) need so they keep stepping at their own pace.
+ */
+public interface RefreshRatePattern extends LEDPattern {
+
+  /**
+   * Returns how often the pattern wants to be rendered in microseconds. 0 means every update.
+   */
+  long getUpdateIntervalMicros();
+
+  /**
+   * Returns whether the pattern should be rendered at this time.
+   * By default it is due once its interval has passed since it was last rendered.
+   * @param nowMicros The time of the current frame in microseconds
+   * @param lastRenderMicros The time of the frame the pattern was last rendered on in microseconds
+   * @return True if the pattern should be applied this frame
+   */
+  default boolean isDue(long nowMicros, long lastRenderMicros) {
+    return nowMicros - lastRenderMicros >= getUpdateIntervalMicros();
+  }
+
+  /**
+   * Gives a pattern an update interval.
+   * @param pattern The pattern to wrap
+   * @param intervalSeconds How often the pattern needs to be rendered in seconds
+   * @return The wrapped pattern
+   */
+  public static RefreshRatePattern of(LEDPattern pattern, double intervalSeconds) {
+    long intervalMicros = (long) Seconds.of(intervalSeconds).in(Microseconds);
+    return new RefreshRatePattern() {
+      @Override
+      public long getUpdateIntervalMicros() {
+        return intervalMicros;
+      }
+
+      @Override
+      public void applyTo(LEDReader reader, LEDWriter writer) {
+        pattern.applyTo(reader, writer);
+      }
+    };
+  }
+
+  /**
+   * Marks a pattern that has to be rendered on every update, like one that integrates its own state frame by frame.
+   * @param pattern The pattern to wrap
+   * @return The wrapped pattern
+   */
+  public static RefreshRatePattern everyFrame(LEDPattern pattern) {
+    return of(pattern, 0);
+  }
+}
@@ -0,0 +1,36 @@
+package Glitch.Lib.LEDs.Interfaces;
+
+import edu.wpi.first.wpilibj.LEDPattern;
+
+/**
+ * Marks a pattern whose output only depends on the length of the section it is applied to.
+ * It doesn't change over time and doesn't read the colors already on the strip (solid colors, steps, plain gradients),
+ * so a Section only has to render it again when its pattern changes. A time-invariant pattern that is also a
+ * {@link RefreshRatePattern} is rendered again whenever it says it's due, which is how palette patterns pick up new
+ * colors.
+ */
+@FunctionalInterface
+public interface TimeInvariantPattern extends LEDPattern {
+
+  /**
+   * Marks a pattern as time-invariant. Only use this on patterns that really never change,
+   * anything that scrolls, blinks or overlays the strip will freeze on its first frame.
+   * @param pattern The pattern to mark
+   * @return The marked pattern
+   */
+  public static TimeInvariantPattern of(LEDPattern pattern) {
+    if (pattern instanceof TimeInvariantPattern) {
+      return (TimeInvariantPattern) pattern;
+    }
+    return (reader, writer) -> pattern.applyTo(reader, writer);
+  }
+
+  /**
+   * Returns whether a pattern is known to be time-invariant.
+   * @param pattern The pattern to check
+   * @return True if the pattern never needs to be rendered again once it has been applied
+   */
+  public static boolean isTimeInvariant(LEDPattern pattern) {
+    return pattern instanceof TimeInvariantPattern || pattern == LEDPattern.kOff;
+  }
+}
@@ -25,6 +25,11 @@ public class TwoDArrayPattern implements LEDArrayPattern {
     public boolean serpentine;
     public ArrayList<ArrayList<Color>> arrayList;
 
+    /** Physical strip index of every logical pixel, indexed with y * width + x. Compiled once in the constructor. */
+    public final int[] logicalToPhysical;
+    // Length of each inner list in arrayList (a row for ROW_MAJOR, a column for COLUMN_MAJOR)
+    private final int innerLength;
+
     public TwoDArrayPattern(int width, int height, StartPosition physicalStart, StartPosition intendedOrigin, Alignment alignment, boolean serpentine) {
       this.width = width;
       this.height = height;
@@ -53,6 +58,9 @@ public class TwoDArrayPattern implements LEDArrayPattern {
           }
         }
       }
+
+      logicalToPhysical = compileMapping(width, height, physicalStart, intendedOrigin, alignment, serpentine);
+      innerLength = alignment == Alignment.ROW_MAJOR ? width : height;
     }
 
     public static ArrayList<Color> twoDToOneDConverter(ArrayList<ArrayList<Color>> colorArray) {
@@ -63,78 +71,62 @@ public class TwoDArrayPattern implements LEDArrayPattern {
       return flatList;
     }
 
+    /**
+     * Returns the index on the physical strip of a logical pixel. Coordinates outside the matrix wrap around.
+     */
+    public int physicalIndex(int x, int y) {
+      return logicalToPhysical[Math.floorMod(y, height) * width + Math.floorMod(x, width)];
+    }
+
     public Color get2DColor(int x, int y) {
-      if (x < 0 || x >= width) {
-        x = x % width;
-      }
-      if (y < 0 || y >= height) {
-        y = y % height;
-      }
-      if (physicalStart != intendedOrigin) {
-        if ((intendedOrigin == StartPosition.TOP_LEFT && physicalStart == StartPosition.BOTTOM_LEFT) || 
-            (intendedOrigin == StartPosition.TOP_RIGHT && physicalStart == StartPosition.BOTTOM_RIGHT) ||
-            (intendedOrigin == StartPosition.BOTTOM_LEFT && physicalStart == StartPosition.TOP_LEFT) ||
-            (intendedOrigin == StartPosition.BOTTOM_RIGHT && physicalStart == StartPosition.TOP_RIGHT)) {
-          y = height - 1 - y;
-        } else if ((intendedOrigin == StartPosition.TOP_LEFT && physicalStart == StartPosition.TOP_RIGHT) || 
-                    (intendedOrigin == StartPosition.BOTTOM_LEFT && physicalStart == StartPosition.BOTTOM_RIGHT) ||
-                    (intendedOrigin == StartPosition.TOP_RIGHT && physicalStart == StartPosition.TOP_LEFT) ||
-                    (intendedOrigin == StartPosition.BOTTOM_RIGHT && physicalStart == StartPosition.BOTTOM_LEFT)) {
-          x = width - 1 - x;
-        } else if ((intendedOrigin == StartPosition.TOP_LEFT && physicalStart == StartPosition.BOTTOM_RIGHT) || 
-                    (intendedOrigin == StartPosition.BOTTOM_LEFT && physicalStart == StartPosition.TOP_RIGHT) ||
-                    (intendedOrigin == StartPosition.TOP_RIGHT && physicalStart == StartPosition.BOTTOM_LEFT) ||
-                    (intendedOrigin == StartPosition.BOTTOM_RIGHT && physicalStart == StartPosition.TOP_LEFT)) {
-          x = width - 1 - x;
-          y = height - 1 - y;
-        }
-      }
-      if (serpentine && ((y % 2 == 1 && alignment == Alignment.ROW_MAJOR) || (x % 2 == 1 && alignment == Alignment.COLUMN_MAJOR))) {
-        if (alignment == Alignment.ROW_MAJOR) {
-          return arrayList.get(y).get(width - 1 - x);
-        } else /*if Alignment.COLUMN_MAJOR*/ {
-          return arrayList.get(x).get(height - 1 - y);
-        }
-      } else {
-        return arrayList.get(y).get(x);
-      }
+      int led = physicalIndex(x, y);
+      return arrayList.get(led / innerLength).get(led % innerLength);
     }
 
     public void set2DColor(int x, int y, Color color) {
-      if (x < 0 || x >= width) {
-        x = x % width;
-      }
-      if (y < 0 || y >= height) {
-        y = y % height;
-      }
-      if (physicalStart != intendedOrigin) {
-        if ((intendedOrigin == StartPosition.TOP_LEFT && physicalStart == StartPosition.BOTTOM_LEFT) || 
-            (intendedOrigin == StartPosition.TOP_RIGHT && physicalStart == StartPosition.BOTTOM_RIGHT) ||
-            (intendedOrigin == StartPosition.BOTTOM_LEFT && physicalStart == StartPosition.TOP_LEFT) ||
-            (intendedOrigin == StartPosition.BOTTOM_RIGHT && physicalStart == StartPosition.TOP_RIGHT)) {
-          y = height - 1 - y;
-        } else if ((intendedOrigin == StartPosition.TOP_LEFT && physicalStart == StartPosition.TOP_RIGHT) || 
-                    (intendedOrigin == StartPosition.BOTTOM_LEFT && physicalStart == StartPosition.BOTTOM_RIGHT) ||
-                    (intendedOrigin == StartPosition.TOP_RIGHT && physicalStart == StartPosition.TOP_LEFT) ||
-                    (intendedOrigin == StartPosition.BOTTOM_RIGHT && physicalStart == StartPosition.BOTTOM_LEFT)) {
-          x = width - 1 - x;
-        } else if ((intendedOrigin == StartPosition.TOP_LEFT && physicalStart == StartPosition.BOTTOM_RIGHT) || 
-                    (intendedOrigin == StartPosition.BOTTOM_LEFT && physicalStart == StartPosition.TOP_RIGHT) ||
-                    (intendedOrigin == StartPosition.TOP_RIGHT && physicalStart == StartPosition.BOTTOM_LEFT) ||
-                    (intendedOrigin == StartPosition.BOTTOM_RIGHT && physicalStart == StartPosition.TOP_LEFT)) {
-          x = width - 1 - x;
-          y = height - 1 - y;
-        }
-      }
-      if (serpentine && ((y % 2 == 1 && alignment == Alignment.ROW_MAJOR) || (x % 2 == 1 && alignment == Alignment.COLUMN_MAJOR))) {
-        if (alignment == Alignment.ROW_MAJOR) {
-          arrayList.get(y).set(width - 1 - x, color);
-        } else /*if Alignment.COLUMN_MAJOR*/ {
-          arrayList.get(x).set(height - 1 - y, color);
+      int led = physicalIndex(x, y);
+      arrayList.get(led / innerLength).set(led % innerLength, color);
+    }
+
+    /**
+     * Compiles the orientation, origin flip and serpentine wiring of a matrix into a lookup table.
+     * The table is indexed with y * width + x in logical coordinates and holds the index of that pixel on the strip.
+     * Rows (or columns for COLUMN_MAJOR) are laid out one after the other on the strip, and serpentine
+     * matrices run every other row (or column) backwards.
+     */
+    public static int[] compileMapping(int width, int height, StartPosition physicalStart, StartPosition intendedOrigin, Alignment alignment, boolean serpentine) {
+      boolean flipX = isLeft(physicalStart) != isLeft(intendedOrigin);
+      boolean flipY = isTop(physicalStart) != isTop(intendedOrigin);
+
+      int[] table = new int[width * height];
+      for (int y = 0; y < height; y++) {
+        for (int x = 0; x < width; x++) {
+          int physicalX = flipX ? width - 1 - x : x;
+          int physicalY = flipY ? height - 1 - y : y;
+          int led;
+          if (alignment == Alignment.ROW_MAJOR) {
+            if (serpentine && physicalY % 2 == 1) {
+              physicalX = width - 1 - physicalX;
+            }
+            led = physicalY * width + physicalX;
+          } else /*if Alignment.COLUMN_MAJOR*/ {
+            if (serpentine && physicalX % 2 == 1) {
+              physicalY = height - 1 - physicalY;
+            }
+            led = physicalX * height + physicalY;
+          }
+          table[y * width + x] = led;
         }
-      } else {
-        arrayList.get(y).set(x, color);
       }
+      return table;
+    }
+
+    private static boolean isLeft(StartPosition position) {
+      return position == StartPosition.TOP_LEFT || position == StartPosition.BOTTOM_LEFT;
+    }
+
+    private static boolean isTop(StartPosition position) {
+      return position == StartPosition.TOP_LEFT || position == StartPosition.TOP_RIGHT;
     }
 
     public ArrayList<Color> colorList(ArrayList<Color> colorList) {
@@ -4,24 +4,50 @@ import Glitch.Lib.LEDs.AbstractLEDS.Section;
 import edu.wpi.first.wpilibj.LEDPattern;
 import edu.wpi.first.wpilibj2.command.Command;
 
-// Note: Still not entirely functional. Doesn't seem to work properly with onTrue triggers yet.
+/**
+ * Shows a pattern on a section for as long as the command runs.
+ * The pattern is pushed onto the section when the command starts and popped when it ends, so whatever was showing
+ * before comes back on its own, and other commands and setPattern calls don't get clobbered.
+ */
 public class LEDCommand extends Command {
 
     private final Section section;
     private final LEDPattern pattern;
+    private final int priority;
+    private Section.PatternRequest request;
 
+    /**
+     * Creates a command that shows a pattern one priority above setPattern, so setPattern calls made while it runs
+     * only show once it ends.
+     * @param section The section to show the pattern on
+     * @param pattern The pattern to show
+     */
     public LEDCommand(Section section, LEDPattern pattern) {
+        this(section, pattern, Section.kCommandPriority);
+    }
+
+    /**
+     * Creates a command that shows a pattern at a priority.
+     * @param section The section to show the pattern on
+     * @param pattern The pattern to show
+     * @param priority The priority of the pattern, higher priorities show over lower ones
+     */
+    public LEDCommand(Section section, LEDPattern pattern, int priority) {
         this.section = section;
         this.pattern = pattern;
+        this.priority = priority;
     }
 
     @Override
     public void initialize() {
-        section.setPattern(pattern);
+        request = section.push(pattern, priority);
     }
 
     @Override
     public void end(boolean interrupted) {
-        section.setPattern(pattern, 0);
+        if (request != null) {
+            request.pop();
+            request = null;
+        }
     }
 }
@@ -0,0 +1,141 @@
+package Glitch.Lib.LEDs;
+
+import edu.wpi.first.wpilibj.LEDReader;
+import edu.wpi.first.wpilibj.LEDWriter;
+import edu.wpi.first.wpilibj.util.Color;
+
+/**
+ * A heat-map fire simulation for a strip, with the flame's base at the start of the strip.
+ *
+ * Every LED has a byte of heat. Each step cools every LED a little, lets heat drift up the strip, and ignites new
+ * sparks near the base. Heat is turned into color through a 256 entry palette of packed colors, so drawing a frame
+ * is one table lookup per LED and the whole simulation is integer math with no allocation.
+ *
+ * An engine isn't thread-safe, and keeps the state of one strip, so each section a pattern is applied to needs its own.
+ */
+public final class LEDFireEngine {
+  private final int length;
+  private final byte[] heat;
+  private final int[] palette = new int[256];
+
+  /**
+   * Creates a cold engine.
+   * @param length The number of LEDs in the strip
+   */
+  public LEDFireEngine(int length) {
+    this.length = length;
+    this.heat = new byte[length];
+  }
+
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * Returns the heat of an LED, from 0 (cold) to 255.
+   */
+  public int getHeat(int index) {
+    return heat[index] & 0xFF;
+  }
+
+  /**
+   * Runs one step of the simulation. Every LED cools by a random amount, heat drifts up the strip with each LED
+   * becoming a weighted average of the two below it, and then a spark may ignite near the base.
+   * @param random Where the cooling and sparks are rolled from
+   * @param maxCooling The most heat an LED can lose in one step (0-255)
+   * @param sparkZone How many LEDs from the base a spark can land on
+   * @param sparkChance The chance of a spark this step, out of 256
+   */
+  public void step(LEDRandom random, int maxCooling, int sparkZone, int sparkChance) {
+    cool(random, maxCooling + 1);
+    // Going down from the tip, the two LEDs below haven't been overwritten yet
+    for (int i = length - 1; i >= 2; i--) {
+      heat[i] = (byte) (((heat[i - 1] & 0xFF) + 2 * (heat[i - 2] & 0xFF)) / 3);
+    }
+    ignite(random, sparkZone, sparkChance);
+  }
+
+  // Cools every LED by a random amount under the bound, one random long covers eight LEDs with a byte each
+  private void cool(LEDRandom random, int bound) {
+    int i = 0;
+    for (; i + 8 <= length; i += 8) {
+      long bits = random.nextLong();
+      for (int j = i; j < i + 8; j++) {
+        int cooled = (heat[j] & 0xFF) - (((int) bits & 0xFF) * bound >> 8);
+        heat[j] = (byte) (cooled < 0 ? 0 : cooled);
+        bits >>>= 8;
+      }
+    }
+    long bits = random.nextLong();
+    for (; i < length; i++) {
+      int cooled = (heat[i] & 0xFF) - (((int) bits & 0xFF) * bound >> 8);
+      heat[i] = (byte) (cooled < 0 ? 0 : cooled);
+      bits >>>= 8;
+    }
+  }
+
+  // Maybe lights a spark within the zone at the base of the flame
+  private void ignite(LEDRandom random, int sparkZone, int sparkChance) {
+    if (random.nextInt(256) >= sparkChance) {
+      return;
+    }
+    int index = random.nextInt(Math.max(1, Math.min(sparkZone, length)));
+    int heated = (heat[index] & 0xFF) + 160 + random.nextInt(96);
+    heat[index] = (byte) (heated > 255 ? 255 : heated);
+  }
+
+  /**
+   * Builds the palette from a strip of colors. The hottest LEDs take the color at the start of the strip and cooler
+   * ones take colors further along it, fading to black as they go cold, so a gradient laid along the strip looks like
+   * the same gradient running up the flame.
+   * @param colors The colors to build the palette from, usually the pattern under the fire
+   * @param shiftColor Red, green or blue to let only that channel through toward the tip of the flame, any other color
+   * to fade every channel toward the tip, or null to keep the colors as they are
+   */
+  public void buildPalette(LEDReader colors, Color shiftColor) {
+    int last = colors.getLength() - 1;
+    for (int h = 0; h < 256; h++) {
+      int position = last <= 0 ? 0 : (255 - h) * last / 255;
+      // Heat under a third of the way up fades to black
+      int brightness = Math.min(255, h * 3);
+      int red = colors.getRed(position) * brightness / 255;
+      int green = colors.getGreen(position) * brightness / 255;
+      int blue = colors.getBlue(position) * brightness / 255;
+
+      if (shiftColor != null) {
+        // Past the shift point, the channels that aren't shifted toward fade out in proportion to the distance
+        int strip = last + 1;
+        if (shiftColor == Color.kRed || shiftColor == Color.kGreen || shiftColor == Color.kBlue) {
+          int fade = Math.min(256, 128 * strip / (position + 1));
+          red = shiftColor == Color.kRed ? red : red * fade >> 8;
+          green = shiftColor == Color.kGreen ? green : green * fade >> 8;
+          blue = shiftColor == Color.kBlue ? blue : blue * fade >> 8;
+        } else {
+          int fade = Math.min(256, 205 * strip / (position + 1));
+          red = red * fade >> 8;
+          green = green * fade >> 8;
+          blue = blue * fade >> 8;
+        }
+      }
+      palette[h] = PackedColors.pack(red, green, blue);
+    }
+  }
+
+  /**
+   * Returns the color for a heat from the palette, packed as 0xRRGGBB.
+   */
+  public int getColor(int heat) {
+    return palette[heat];
+  }
+
+  /**
+   * Draws the flame.
+   * @param writer Where to draw it, at least {@link #getLength()} long
+   */
+  public void write(LEDWriter writer) {
+    for (int i = 0; i < length; i++) {
+      int color = palette[heat[i] & 0xFF];
+      writer.setRGB(i, PackedColors.red(color), PackedColors.green(color), PackedColors.blue(color));
+    }
+  }
+}
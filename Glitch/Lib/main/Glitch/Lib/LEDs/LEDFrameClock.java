@@ -0,0 +1,243 @@
+package Glitch.Lib.LEDs;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.LongSupplier;
+
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Keeps time for the LED subsystem. AbstractLEDS ticks the clock once per loop, and patterns read the time of the
+ * current frame from it, so every pattern in a frame sees the same timestamp. Each strip has its own clock unless it's
+ * given one, and while a section renders, {@link #current()} is the clock of its strip.
+ *
+ * The last few frame timestamps are kept in a primitive ring buffer, along with statistics about the time between
+ * frames so loop jitter and overruns can be spotted. Any clock can be driven by a custom time source, which lets
+ * tests and offline rendering step time by hand instead of reading the FPGA clock.
+ */
+public class LEDFrameClock {
+  private static volatile LEDFrameClock defaultClock = new LEDFrameClock(RobotController::getTime);
+  // The clock of the strip rendering on each thread
+  private static final ThreadLocal<LEDFrameClock> currentClock = new ThreadLocal<LEDFrameClock>();
+
+  private final LongSupplier timeSourceMicros;
+  private final long[] timestamps;
+  private final double overrunThresholdSeconds;
+  private final long overrunThresholdMicros;
+  private Object ticker;
+  // How many times the clock had ticked when each strip other than the ticker last asked to tick it
+  private final Map<Object, Long> ticksSeen = new WeakHashMap<Object, Long>();
+  private long ticks = 0;
+  private int head = 0;
+  private int count = 0;
+
+  private volatile boolean started = false;
+  private volatile long frameTime;
+  private volatile long deltaMicros = 0;
+  private long frames = 0;
+  private long minDeltaMicros = Long.MAX_VALUE;
+  private long maxDeltaMicros = 0;
+  private long totalDeltaMicros = 0;
+  private long overruns = 0;
+
+  /**
+   * Creates a clock that keeps the last 8 frames and counts frames longer than 25 ms as overruns.
+   * @param timeSourceMicros The time source, in microseconds
+   */
+  public LEDFrameClock(LongSupplier timeSourceMicros) {
+    this(timeSourceMicros, 8, 0.025);
+  }
+
+  /**
+   * Creates a new clock.
+   * @param timeSourceMicros The time source, in microseconds
+   * @param historyLength How many frame timestamps to keep
+   * @param overrunThresholdSeconds Frames that take longer than this are counted as overruns
+   */
+  public LEDFrameClock(LongSupplier timeSourceMicros, int historyLength, double overrunThresholdSeconds) {
+    if (historyLength < 2) {
+      throw new IllegalArgumentException("The clock needs to keep at least 2 frames to measure a delta.");
+    }
+    this.timeSourceMicros = timeSourceMicros;
+    this.timestamps = new long[historyLength];
+    this.overrunThresholdMicros = (long) (overrunThresholdSeconds * 1e6);
+    this.overrunThresholdSeconds = overrunThresholdSeconds;
+  }
+
+  /**
+   * Creates a clock with the same time source and settings as this one, but its own frames and statistics.
+   * Strips that aren't given a clock take one of these from the default clock.
+   */
+  public LEDFrameClock withSameSource() {
+    return new LEDFrameClock(timeSourceMicros, timestamps.length, overrunThresholdSeconds);
+  }
+
+  /**
+   * Returns the clock patterns use when they aren't given one. This is the FPGA clock unless it has been replaced.
+   */
+  public static LEDFrameClock getDefault() {
+    return defaultClock;
+  }
+
+  /**
+   * Replaces the clock patterns use when they aren't given one, e.g. with a hand-stepped clock in tests.
+   * LED subsystems pick up the default clock when they are constructed.
+   * @param clock The new default clock
+   */
+  public static void setDefault(LEDFrameClock clock) {
+    defaultClock = clock;
+  }
+
+  /**
+   * Returns the clock patterns should read the time from: the clock of the strip whose section is rendering on this
+   * thread, or the default clock outside of a render.
+   */
+  public static LEDFrameClock current() {
+    LEDFrameClock clock = currentClock.get();
+    return clock != null ? clock : defaultClock;
+  }
+
+  /**
+   * Makes a clock the one {@link #current()} returns on this thread.
+   * @param clock The clock, or null to go back to the default clock
+   * @return The clock that was current before, to put back afterwards
+   */
+  static LEDFrameClock makeCurrent(LEDFrameClock clock) {
+    LEDFrameClock previous = currentClock.get();
+    currentClock.set(clock);
+    return previous;
+  }
+
+  /**
+   * Decides who ticks the clock when several strips share it, so it's only ticked once per loop.
+   * The first caller becomes the clock's ticker, and everyone else reads the frames it ticks. If the clock hasn't
+   * ticked since a caller last asked, the ticker has stopped running its loop, so that caller takes over.
+   * @param caller The strip asking
+   * @return Whether the caller should tick the clock
+   */
+  public synchronized boolean claimTicks(Object caller) {
+    if (ticker == null) {
+      ticker = caller;
+    } else if (ticker != caller) {
+      Long seen = ticksSeen.put(caller, ticks);
+      if (seen != null && seen == ticks) {
+        ticker = caller;
+      }
+    }
+    return ticker == caller;
+  }
+
+  /**
+   * Starts a new frame. Should be called once per loop before anything is rendered.
+   */
+  public synchronized void tick() {
+    long now = timeSourceMicros.getAsLong();
+
+    if (count == 0) {
+      // No previous frame to measure against, so the first frame takes no time
+      deltaMicros = 0;
+    } else {
+      long delta = now - frameTime;
+      deltaMicros = delta;
+      frames++;
+      totalDeltaMicros += delta;
+      minDeltaMicros = Math.min(minDeltaMicros, delta);
+      maxDeltaMicros = Math.max(maxDeltaMicros, delta);
+      if (delta > overrunThresholdMicros) {
+        overruns++;
+      }
+    }
+
+    timestamps[head] = now;
+    head = (head + 1) % timestamps.length;
+    count = Math.min(count + 1, timestamps.length);
+    frameTime = now;
+    started = true;
+    ticks++;
+  }
+
+  /**
+   * Returns the timestamp of the current frame in microseconds, or the current time if the clock hasn't ticked yet.
+   */
+  public long getTime() {
+    return started ? frameTime : timeSourceMicros.getAsLong();
+  }
+
+  /**
+   * Returns the timestamp of the current frame in seconds.
+   */
+  public double getTimeSeconds() {
+    return getTime() / 1e6;
+  }
+
+  /**
+   * Returns the time between the last two frames in seconds. This is 0 on the first frame.
+   */
+  public double getDeltaSeconds() {
+    return deltaMicros / 1e6;
+  }
+
+  /**
+   * Returns the timestamp of an earlier frame in microseconds.
+   * @param framesAgo 0 for the current frame, 1 for the one before, and so on
+   */
+  public synchronized long getTimestamp(int framesAgo) {
+    if (framesAgo < 0 || framesAgo >= count) {
+      throw new IndexOutOfBoundsException("Only " + count + " frames are available.");
+    }
+    return timestamps[Math.floorMod(head - 1 - framesAgo, timestamps.length)];
+  }
+
+  /**
+   * Returns the number of frame timestamps currently stored.
+   */
+  public synchronized int getHistoryLength() {
+    return count;
+  }
+
+  /**
+   * Returns the number of frame deltas that have been measured.
+   */
+  public synchronized long getFrameCount() {
+    return frames;
+  }
+
+  /**
+   * Returns the shortest time between two frames in seconds, or 0 if no deltas have been measured.
+   */
+  public synchronized double getMinDeltaSeconds() {
+    return frames == 0 ? 0.0 : minDeltaMicros / 1e6;
+  }
+
+  /**
+   * Returns the longest time between two frames in seconds.
+   */
+  public synchronized double getMaxDeltaSeconds() {
+    return maxDeltaMicros / 1e6;
+  }
+
+  /**
+   * Returns the average time between frames in seconds, or 0 if no deltas have been measured.
+   */
+  public synchronized double getMeanDeltaSeconds() {
+    return frames == 0 ? 0.0 : totalDeltaMicros / 1e6 / frames;
+  }
+
+  /**
+   * Returns how many frames took longer than the overrun threshold.
+   */
+  public synchronized long getOverruns() {
+    return overruns;
+  }
+
+  /**
+   * Clears the jitter and overrun statistics. The frame history is kept.
+   */
+  public synchronized void resetStatistics() {
+    frames = 0;
+    minDeltaMicros = Long.MAX_VALUE;
+    maxDeltaMicros = 0;
+    totalDeltaMicros = 0;
+    overruns = 0;
+  }
+}
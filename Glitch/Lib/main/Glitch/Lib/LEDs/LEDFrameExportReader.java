@@ -0,0 +1,128 @@
+package Glitch.Lib.LEDs;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the frames an {@link LEDFrameExporter} shares, from any process on the same machine.
+ *
+ * This is the reference for viewers written in other languages: map the file, wait for an even sequence, copy the
+ * frame, and keep it only if the sequence is still the same. Running it from the command line prints every new frame
+ * as a row of colored blocks in a terminal with 24 bit color:
+ * <pre>
+ *   java -cp GlitchLib.jar Glitch.Lib.LEDs.LEDFrameExportReader /tmp/leds.glex
+ * </pre>
+ */
+public class LEDFrameExportReader {
+  private final MappedByteBuffer buffer;
+  private final int length;
+  private long timestampMicros = 0;
+
+  /**
+   * Maps an exported file.
+   * @param path The file the exporter writes to
+   * @throws IOException If the file can't be mapped or isn't an export
+   */
+  public LEDFrameExportReader(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (channel.size() < LEDFrameExporter.kPixelsOffset) {
+        throw new IOException(path + " is too short to be an LED export.");
+      }
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    if (buffer.getInt(0) != LEDFrameExporter.kMagic) {
+      throw new IOException(path + " isn't an LED export.");
+    }
+    if (buffer.getInt(4) != LEDFrameExporter.kVersion) {
+      throw new IOException(path + " is export version " + buffer.getInt(4) + ", expected " + LEDFrameExporter.kVersion + ".");
+    }
+    length = buffer.getInt(LEDFrameExporter.kLengthOffset);
+    if (buffer.capacity() < LEDFrameExporter.kPixelsOffset + 3L * length) {
+      throw new IOException(path + " is shorter than its " + length + " LEDs.");
+    }
+  }
+
+  /**
+   * Returns the number of LEDs in every frame.
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * Returns the timestamp of the last frame read in microseconds.
+   */
+  public long getTimestampMicros() {
+    return timestampMicros;
+  }
+
+  /**
+   * Returns how many frames the exporter has finished, without reading one.
+   */
+  public long getFramesExported() {
+    return (long) LEDFrameExporter.kLongs.getAcquire(buffer, LEDFrameExporter.kSequenceOffset) / 2;
+  }
+
+  /**
+   * Copies the latest whole frame. Waits out a frame that's being written, which takes microseconds.
+   * @param pixels Where to copy the LEDs packed as 0xRRGGBB, at least {@link #getLength()} long
+   * @return The number of the frame that was copied, counting from 1, or 0 if nothing has been exported yet
+   */
+  public long read(int[] pixels) {
+    while (true) {
+      long before = (long) LEDFrameExporter.kLongs.getAcquire(buffer, LEDFrameExporter.kSequenceOffset);
+      if ((before & 1) != 0) {
+        Thread.onSpinWait();
+        continue;
+      }
+      for (int i = 0, offset = LEDFrameExporter.kPixelsOffset; i < length; i++, offset += 3) {
+        pixels[i] = PackedColors.pack(buffer.get(offset) & 0xFF, buffer.get(offset + 1) & 0xFF, buffer.get(offset + 2) & 0xFF);
+      }
+      long frame = buffer.getLong(LEDFrameExporter.kFramesOffset);
+      long timestamp = buffer.getLong(LEDFrameExporter.kTimestampOffset);
+
+      // Nothing above may be read after the sequence is checked again
+      VarHandle.loadLoadFence();
+      long after = (long) LEDFrameExporter.kLongs.getOpaque(buffer, LEDFrameExporter.kSequenceOffset);
+      if (before == after) {
+        timestampMicros = timestamp;
+        return frame;
+      }
+    }
+  }
+
+  /**
+   * Prints every new frame in a file as a row of colored blocks until stopped.
+   * @param args The path of the exported file
+   */
+  public static void main(String[] args) throws IOException, InterruptedException {
+    if (args.length != 1) {
+      System.err.println("Usage: LEDFrameExportReader <exported file>");
+      System.exit(1);
+    }
+    LEDFrameExportReader reader = new LEDFrameExportReader(Path.of(args[0]));
+    int[] pixels = new int[reader.getLength()];
+    StringBuilder line = new StringBuilder();
+    long lastFrame = 0;
+    while (true) {
+      if (reader.getFramesExported() == lastFrame) {
+        Thread.sleep(5);
+        continue;
+      }
+      lastFrame = reader.read(pixels);
+      line.setLength(0);
+      line.append(String.format("%8d %12d us ", lastFrame, reader.getTimestampMicros()));
+      for (int i = 0; i < pixels.length; i++) {
+        line.append("\u001b[38;2;").append(PackedColors.red(pixels[i])).append(';')
+            .append(PackedColors.green(pixels[i])).append(';').append(PackedColors.blue(pixels[i])).append("m\u2588");
+      }
+      System.out.println(line.append("\u001b[0m"));
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package Glitch.Lib.LEDs;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import edu.wpi.first.wpilibj.LEDReader;
+
+/**
+ * Shares the latest LED frame with other processes on the same machine through a memory-mapped file, so a desktop
+ * viewer can watch the strip in simulation without sending every LED through NetworkTables.
+ *
+ * The file is a fixed header followed by 3 bytes of RGB per LED, all little-endian:
+ * <pre>
+ *   0   int   magic ('GLEX')
+ *   4   int   version (1)
+ *   8   long  sequence, odd while a frame is being written
+ *   16  int   LED count
+ *   24  long  frames exported
+ *   32  long  timestamp of the frame in microseconds
+ *   64  bytes RGB of every LED
+ * </pre>
+ * The sequence is a seqlock: the exporter makes it odd, writes the frame and makes it even again, so a reader that
+ * saw the same even sequence before and after copying the frame knows it didn't tear. Readers never block the
+ * exporter, and exporting a frame is one pass over the LEDs into the mapped memory, with no copies or system calls.
+ * See {@link LEDFrameExportReader} for a reader.
+ */
+public class LEDFrameExporter implements AutoCloseable {
+  static final int kMagic = 0x474C4558;
+  static final int kVersion = 1;
+  static final int kSequenceOffset = 8;
+  static final int kLengthOffset = 16;
+  static final int kFramesOffset = 24;
+  static final int kTimestampOffset = 32;
+  static final int kPixelsOffset = 64;
+
+  // Ordered access to the longs in the header
+  static final VarHandle kLongs = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private final MappedByteBuffer buffer;
+  private final int length;
+  private long sequence = 0;
+  private long framesExported = 0;
+
+  /**
+   * Creates an exporter that writes to a file, replacing anything already there.
+   * @param path The file to share frames through, somewhere local like /tmp or /dev/shm
+   * @param length The number of LEDs in every frame
+   * @throws IOException If the file can't be opened or mapped
+   */
+  public LEDFrameExporter(Path path, int length) throws IOException {
+    this.length = length;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      // The mapping stays valid after the channel closes
+      buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, kPixelsOffset + 3L * length);
+    }
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(0, kMagic);
+    buffer.putInt(4, kVersion);
+    buffer.putInt(kLengthOffset, length);
+    kLongs.setRelease(buffer, kSequenceOffset, 0L);
+  }
+
+  /**
+   * Exports a frame, replacing the last one.
+   * @param frame The LEDs to export, only the first {@link #getLength()} are read
+   * @param timestampMicros When the frame was shown in microseconds
+   */
+  public void export(LEDReader frame, long timestampMicros) {
+    // Odd tells readers to wait, and nothing below may be seen before it
+    kLongs.setOpaque(buffer, kSequenceOffset, ++sequence);
+    VarHandle.storeStoreFence();
+
+    MappedByteBuffer buffer = this.buffer;
+    for (int i = 0, offset = kPixelsOffset; i < length; i++, offset += 3) {
+      buffer.put(offset, (byte) frame.getRed(i));
+      buffer.put(offset + 1, (byte) frame.getGreen(i));
+      buffer.put(offset + 2, (byte) frame.getBlue(i));
+    }
+    buffer.putLong(kFramesOffset, ++framesExported);
+    buffer.putLong(kTimestampOffset, timestampMicros);
+
+    // Even again, after everything above
+    kLongs.setRelease(buffer, kSequenceOffset, ++sequence);
+  }
+
+  /**
+   * Returns the number of LEDs in every frame.
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * Returns how many frames have been exported.
+   */
+  public long getFramesExported() {
+    return framesExported;
+  }
+
+  /**
+   * Pushes the last frame out to the file. Readers that map the file don't need this, they see frames as soon as
+   * they're exported.
+   */
+  @Override
+  public void close() {
+    buffer.force();
+  }
+}
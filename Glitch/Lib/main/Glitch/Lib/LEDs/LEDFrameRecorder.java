@@ -0,0 +1,228 @@
+package Glitch.Lib.LEDs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import edu.wpi.first.wpilibj.LEDReader;
+
+/**
+ * Records LED frames to a file so we can see afterwards what the strip actually showed.
+ *
+ * Every frame is stored as the difference from the frame before it, so a strip that barely changes costs a few bytes
+ * a frame. Encoded frames collect in a direct buffer that's written to a FileChannel when it fills up, so recording a
+ * frame is normally just the encode, and the disk is only touched every few hundred frames.
+ *
+ * The file starts with a header:
+ * <pre>
+ *   int   magic ('GLED')
+ *   short version (1)
+ *   int   LED count
+ * </pre>
+ * followed by frames:
+ * <pre>
+ *   long  timestamp in microseconds
+ *   int   length of the ops in bytes
+ *   ops   runs covering the start of the strip, anything past the last run is unchanged
+ * </pre>
+ * Each run is an op byte and a varint count (7 bits per byte, low bits first):
+ * {@link #kSkip} leaves that many LEDs unchanged, {@link #kRepeat} sets that many LEDs to the 3 byte RGB color that
+ * follows, and {@link #kLiteral} is followed by that many 3 byte RGB colors. Replay with {@link LEDFrameReplay}.
+ */
+public class LEDFrameRecorder implements AutoCloseable {
+  static final int kMagic = 0x474C4544;
+  static final short kVersion = 1;
+  static final byte kSkip = 0;
+  static final byte kRepeat = 1;
+  static final byte kLiteral = 2;
+
+  private static final int kDefaultBufferBytes = 64 * 1024;
+  // A changed run takes at least 3 LEDs to be worth a repeat over a literal
+  private static final int kMinRepeat = 3;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private final int length;
+  private final int maxFrameBytes;
+  private int[] previous;
+  private int[] current;
+
+  private long framesRecorded = 0;
+  private long bytesWritten = 0;
+  private long lastRecordNanos = 0;
+  private long maxRecordNanos = 0;
+
+  /**
+   * Creates a recorder that writes to a file, replacing anything already there.
+   * @param path The file to record to
+   * @param length The number of LEDs in every frame
+   * @throws IOException If the file can't be opened
+   */
+  public LEDFrameRecorder(Path path, int length) throws IOException {
+    this.length = length;
+    // A literal of one LED between skips of one is the worst case, at 7 bytes for every 2 LEDs
+    this.maxFrameBytes = 8 + 4 + 4 * length + 16;
+    this.previous = new int[length];
+    this.current = new int[length];
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+    this.buffer = ByteBuffer.allocateDirect(Math.max(kDefaultBufferBytes, maxFrameBytes));
+
+    buffer.putInt(kMagic);
+    buffer.putShort(kVersion);
+    buffer.putInt(length);
+  }
+
+  /**
+   * Records a frame. The frame is only buffered, it's written to the file once the buffer fills or on {@link #flush()}.
+   * @param frame The LEDs to record, only the first {@link #getLength()} are read
+   * @param timestampMicros When the frame was shown in microseconds
+   * @throws IOException If the buffer had to be written out and that failed
+   */
+  public void record(LEDReader frame, long timestampMicros) throws IOException {
+    long start = System.nanoTime();
+    if (buffer.remaining() < maxFrameBytes) {
+      flush();
+    }
+
+    int[] pixels = current;
+    int count = Math.min(length, frame.getLength());
+    PackedColors.read(frame, pixels, count);
+    // A shorter frame leaves the rest of the strip as it was
+    System.arraycopy(previous, count, pixels, count, length - count);
+
+    buffer.putLong(timestampMicros);
+    int sizePosition = buffer.position();
+    buffer.putInt(0);
+    encode(previous, pixels);
+    buffer.putInt(sizePosition, buffer.position() - sizePosition - 4);
+
+    current = previous;
+    previous = pixels;
+    framesRecorded++;
+    lastRecordNanos = System.nanoTime() - start;
+    maxRecordNanos = Math.max(maxRecordNanos, lastRecordNanos);
+  }
+
+  private void encode(int[] before, int[] after) {
+    // Trailing unchanged LEDs don't need a run at all
+    int end = length;
+    while (end > 0 && after[end - 1] == before[end - 1]) {
+      end--;
+    }
+
+    int i = 0;
+    while (i < end) {
+      int run = i;
+      if (after[i] == before[i]) {
+        while (run < end && after[run] == before[run]) {
+          run++;
+        }
+        putRun(kSkip, run - i);
+      } else if (repeats(after, i, end)) {
+        int color = after[i];
+        while (run < end && after[run] == color) {
+          run++;
+        }
+        putRun(kRepeat, run - i);
+        putColor(color);
+      } else {
+        while (run < end && after[run] != before[run] && !repeats(after, run, end)) {
+          run++;
+        }
+        putRun(kLiteral, run - i);
+        for (int led = i; led < run; led++) {
+          putColor(after[led]);
+        }
+      }
+      i = run;
+    }
+  }
+
+  private static boolean repeats(int[] pixels, int start, int end) {
+    if (end - start < kMinRepeat) {
+      return false;
+    }
+    int color = pixels[start];
+    for (int i = 1; i < kMinRepeat; i++) {
+      if (pixels[start + i] != color) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void putRun(byte op, int count) {
+    buffer.put(op);
+    while ((count & ~0x7F) != 0) {
+      buffer.put((byte) ((count & 0x7F) | 0x80));
+      count >>>= 7;
+    }
+    buffer.put((byte) count);
+  }
+
+  private void putColor(int color) {
+    buffer.put((byte) (color >> 16));
+    buffer.put((byte) (color >> 8));
+    buffer.put((byte) color);
+  }
+
+  /**
+   * Writes every buffered frame to the file.
+   * @throws IOException If writing fails
+   */
+  public void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      bytesWritten += channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  /**
+   * Writes every buffered frame and closes the file.
+   * @throws IOException If writing or closing fails
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      channel.close();
+    }
+  }
+
+  /**
+   * Returns the number of LEDs in every frame.
+   */
+  public int getLength() {
+    return length;
+  }
+
+  public long getFramesRecorded() {
+    return framesRecorded;
+  }
+
+  /**
+   * Returns how many bytes have been written to the file so far, not counting frames still in the buffer.
+   */
+  public long getBytesWritten() {
+    return bytesWritten;
+  }
+
+  /**
+   * Returns how long the last {@link #record(LEDReader, long)} took in nanoseconds.
+   */
+  public long getLastRecordNanos() {
+    return lastRecordNanos;
+  }
+
+  /**
+   * Returns the longest {@link #record(LEDReader, long)} has taken in nanoseconds, including writing out the buffer.
+   */
+  public long getMaxRecordNanos() {
+    return maxRecordNanos;
+  }
+}
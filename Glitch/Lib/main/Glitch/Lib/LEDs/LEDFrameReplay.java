@@ -0,0 +1,192 @@
+package Glitch.Lib.LEDs;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+import edu.wpi.first.wpilibj.LEDPattern;
+import edu.wpi.first.wpilibj.LEDReader;
+import edu.wpi.first.wpilibj.LEDWriter;
+
+/**
+ * Plays back a file written by {@link LEDFrameRecorder} as a pattern.
+ *
+ * The file is memory-mapped, so frames are decoded straight out of the page cache without reading the whole
+ * recording in. Playback starts from the first frame the first time the pattern is applied and follows the recorded
+ * timestamps from there. Frames are stored as changes from the previous one, so playback decodes forward one frame
+ * at a time and going back (when it loops) starts over from the first frame.
+ *
+ * The recording is written from the start of whatever the pattern is applied to, so apply it to a section that covers
+ * the whole strip to see the strip as it was.
+ */
+public class LEDFrameReplay implements LEDPattern {
+  private final MappedByteBuffer file;
+  private final int length;
+  private final boolean loop;
+  private final LongSupplier timeSourceMicros;
+
+  // Where each frame's ops start and when it was shown
+  private int[] frameOffsets = new int[64];
+  private long[] frameTimes = new long[64];
+  private int frameCount = 0;
+
+  private final int[] pixels;
+  private int nextFrame = 0;
+  private long playbackStart = Long.MIN_VALUE;
+
+  /**
+   * Opens a recording that plays once and then holds its last frame, reading the time from the current LED clock.
+   * @param path The recording
+   * @throws IOException If the file can't be read or isn't a recording
+   */
+  public LEDFrameReplay(Path path) throws IOException {
+    this(path, false, () -> LEDFrameClock.current().getTime());
+  }
+
+  /**
+   * Opens a recording.
+   * @param path The recording
+   * @param loop Whether to start over once the last frame has played
+   * @param timeSourceMicros Where playback time is read from, in microseconds
+   * @throws IOException If the file can't be read or isn't a recording
+   */
+  public LEDFrameReplay(Path path, boolean loop, LongSupplier timeSourceMicros) throws IOException {
+    this.loop = loop;
+    this.timeSourceMicros = timeSourceMicros;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      // The mapping stays valid after the channel is closed
+      file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    if (file.remaining() < 10 || file.getInt() != LEDFrameRecorder.kMagic) {
+      throw new IOException(path + " isn't an LED recording.");
+    }
+    short version = file.getShort();
+    if (version != LEDFrameRecorder.kVersion) {
+      throw new IOException(path + " is an LED recording version " + version + ", which this replay can't read.");
+    }
+    length = file.getInt();
+    pixels = new int[length];
+    indexFrames();
+  }
+
+  // Walks the frame headers once so playback can find frames by time
+  private void indexFrames() {
+    int position = file.position();
+    // A frame cut off by a crash mid-write is dropped
+    while (position + 12 <= file.limit()) {
+      long time = file.getLong(position);
+      int size = file.getInt(position + 8);
+      if (size < 0 || position + 12 + size > file.limit()) {
+        break;
+      }
+      if (frameCount == frameOffsets.length) {
+        frameOffsets = Arrays.copyOf(frameOffsets, frameCount * 2);
+        frameTimes = Arrays.copyOf(frameTimes, frameCount * 2);
+      }
+      frameOffsets[frameCount] = position + 12;
+      frameTimes[frameCount] = time;
+      frameCount++;
+      position += 12 + size;
+    }
+  }
+
+  /**
+   * Returns the number of LEDs in the recording.
+   */
+  public int getLength() {
+    return length;
+  }
+
+  public int getFrameCount() {
+    return frameCount;
+  }
+
+  /**
+   * Returns how long the recording lasts in microseconds, from its first frame to its last.
+   */
+  public long getDurationMicros() {
+    return frameCount == 0 ? 0 : frameTimes[frameCount - 1] - frameTimes[0];
+  }
+
+  /**
+   * Starts playback over from the first frame the next time the pattern is applied.
+   */
+  public void restart() {
+    playbackStart = Long.MIN_VALUE;
+  }
+
+  /**
+   * Decodes the frame that was showing at a point in the recording.
+   * @param recordingTimeMicros The time in the recording's own timestamps
+   * @return The frame's colors packed as 0xRRGGBB, owned by the replay and overwritten by the next seek
+   */
+  public int[] seek(long recordingTimeMicros) {
+    if (nextFrame > 0 && recordingTimeMicros < frameTimes[nextFrame - 1]) {
+      Arrays.fill(pixels, PackedColors.kBlack);
+      nextFrame = 0;
+    }
+    // The first frame shows until the second, even if we're asked for a time before it
+    while (nextFrame < frameCount && (nextFrame == 0 || frameTimes[nextFrame] <= recordingTimeMicros)) {
+      decode(frameOffsets[nextFrame]);
+      nextFrame++;
+    }
+    return pixels;
+  }
+
+  private void decode(int position) {
+    int led = 0;
+    int end = position + file.getInt(position - 4);
+    while (position < end) {
+      byte op = file.get(position++);
+      int count = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = file.get(position++);
+        count |= (b & 0x7F) << shift;
+        shift += 7;
+      } while (b < 0);
+
+      if (op == LEDFrameRecorder.kSkip) {
+        led += count;
+      } else if (op == LEDFrameRecorder.kRepeat) {
+        int color = readColor(position);
+        position += 3;
+        Arrays.fill(pixels, led, led + count, color);
+        led += count;
+      } else {
+        for (int i = 0; i < count; i++, position += 3) {
+          pixels[led++] = readColor(position);
+        }
+      }
+    }
+  }
+
+  private int readColor(int position) {
+    return PackedColors.pack(file.get(position), file.get(position + 1), file.get(position + 2));
+  }
+
+  @Override
+  public void applyTo(LEDReader reader, LEDWriter writer) {
+    if (frameCount == 0) {
+      return;
+    }
+    long now = timeSourceMicros.getAsLong();
+    if (playbackStart == Long.MIN_VALUE) {
+      playbackStart = now;
+    }
+
+    long elapsed = now - playbackStart;
+    long duration = getDurationMicros();
+    if (loop && duration > 0) {
+      elapsed %= duration;
+    }
+    int[] frame = seek(frameTimes[0] + elapsed);
+    PackedColors.write(frame, Math.min(length, reader.getLength()), writer);
+  }
+}
@@ -0,0 +1,252 @@
+package Glitch.Lib.LEDs;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+import Glitch.Lib.NetworkTableLogger;
+
+/**
+ * Measures how much of the loop an LED strip uses and publishes it through a {@link NetworkTableLogger}, so expensive
+ * patterns can be spotted live in AdvantageScope. Turn it on with {@link AbstractLEDS#enableInstrumentation}.
+ *
+ * Every loop only reads a few counters. The numbers are summed over a window of loops and published once per window,
+ * so the NetworkTables traffic stays small no matter how fast the loop runs:
+ * <pre>
+ *   loopNanos               mean time spent in periodic()
+ *   maxLoopNanos            longest periodic() in the window
+ *   allocatedBytesPerLoop   mean bytes allocated by the thread calling periodic(), -1 if the JVM can't measure it
+ *   setDataHz               how often the strip was pushed to the LEDs
+ *   pushesSkippedHz         how often a push was due but nothing had changed
+ *   rendersDeferredHz       how often a section put off rendering because nobody would see the frame
+ *   rendersSkippedHz        how often a time-invariant section didn't need to render
+ *   Section N/renderNanos   mean time section N spent applying its pattern when it rendered
+ *   Section N/maxRenderNanos  longest render of section N in the window
+ * </pre>
+ * With a {@link LEDPowerLimiter} on the strip, its estimatedAmps, limitedAmps and currentLimitAmps are published too.
+ * Allocation is read from the JVM's per-thread counter, so anything allocated on the background render thread or the
+ * parallel render pool isn't counted.
+ */
+public class LEDInstrumentation {
+  /** Publishes every 25 loops, twice a second on a 20 ms loop. */
+  public static final int kDefaultPublishEveryLoops = 25;
+
+  private final AbstractLEDS leds;
+  private final NetworkTableLogger logger;
+  private final int publishEveryLoops;
+  private final com.sun.management.ThreadMXBean allocationBean;
+
+  // Keys are built once so publishing doesn't allocate
+  private final String[] renderNanosKeys;
+  private final String[] maxRenderNanosKeys;
+
+  private long loopStartNanos;
+  private long loopStartAllocatedBytes;
+
+  // Sums over the current window
+  private int loops = 0;
+  // Frame time the window started at, the end of the last one, or -1 before the first loop
+  private long windowStartMicros = -1;
+  private long loopNanos = 0;
+  private long maxLoopNanos = 0;
+  private long allocatedBytes = 0;
+  private final long[] maxRenderNanos;
+  private long pushesPerformed;
+  private long pushesSkipped;
+  private long rendersDeferred;
+  private long rendersSkipped;
+  private final long[] sectionRenders;
+  private final long[] sectionRenderNanos;
+
+  // What was last published
+  private double meanLoopNanos = 0;
+  private double allocatedBytesPerLoop = -1;
+  private double setDataHz = 0;
+  private double pushesSkippedHz = 0;
+  private double rendersDeferredHz = 0;
+  private double rendersSkippedHz = 0;
+
+  LEDInstrumentation(AbstractLEDS leds, NetworkTableLogger logger, int publishEveryLoops) {
+    if (publishEveryLoops < 1) {
+      throw new IllegalArgumentException("Instrumentation has to publish at least every loop.");
+    }
+    this.leds = leds;
+    this.logger = logger;
+    this.publishEveryLoops = publishEveryLoops;
+
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean
+        && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+      com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+      allocationBean.setThreadAllocatedMemoryEnabled(true);
+      this.allocationBean = allocationBean;
+    } else {
+      this.allocationBean = null;
+    }
+
+    int sections = leds.getSections().size();
+    renderNanosKeys = new String[sections];
+    maxRenderNanosKeys = new String[sections];
+    for (int i = 0; i < sections; i++) {
+      renderNanosKeys[i] = "Section " + i + "/renderNanos";
+      maxRenderNanosKeys[i] = "Section " + i + "/maxRenderNanos";
+    }
+    maxRenderNanos = new long[sections];
+    sectionRenders = new long[sections];
+    sectionRenderNanos = new long[sections];
+    markCounters();
+  }
+
+  /**
+   * Called at the start of periodic().
+   */
+  void startLoop() {
+    loopStartNanos = System.nanoTime();
+    if (allocationBean != null) {
+      loopStartAllocatedBytes = allocationBean.getCurrentThreadAllocatedBytes();
+    }
+  }
+
+  /**
+   * Called at the end of periodic(), publishes once the window is full.
+   * @param nowMicros The strip's frame time
+   */
+  void endLoop(long nowMicros) {
+    long elapsed = System.nanoTime() - loopStartNanos;
+    loopNanos += elapsed;
+    maxLoopNanos = Math.max(maxLoopNanos, elapsed);
+    if (allocationBean != null) {
+      allocatedBytes += allocationBean.getCurrentThreadAllocatedBytes() - loopStartAllocatedBytes;
+    }
+    List<AbstractLEDS.Section> sections = leds.getSections();
+    for (int i = 0; i < maxRenderNanos.length; i++) {
+      maxRenderNanos[i] = Math.max(maxRenderNanos[i], sections.get(i).getLastRenderNanos());
+    }
+    if (windowStartMicros < 0) {
+      windowStartMicros = nowMicros;
+    }
+
+    if (++loops >= publishEveryLoops) {
+      publish(nowMicros);
+    }
+  }
+
+  private void publish(long nowMicros) {
+    // The first window starts on its own first frame, so a window of just that frame would have no length
+    double seconds = Math.max(nowMicros - windowStartMicros, 1) / 1e6;
+    meanLoopNanos = (double) loopNanos / loops;
+    allocatedBytesPerLoop = allocationBean == null ? -1 : (double) allocatedBytes / loops;
+    setDataHz = (leds.getPushesPerformed() - pushesPerformed) / seconds;
+    pushesSkippedHz = (leds.getPushesSkipped() - pushesSkipped) / seconds;
+    rendersDeferredHz = (leds.getRendersDeferred() - rendersDeferred) / seconds;
+    rendersSkippedHz = (leds.getRendersSkipped() - rendersSkipped) / seconds;
+
+    logger.logDouble("loopNanos", meanLoopNanos);
+    logger.logDouble("maxLoopNanos", maxLoopNanos);
+    logger.logDouble("allocatedBytesPerLoop", allocatedBytesPerLoop);
+    logger.logDouble("setDataHz", setDataHz);
+    logger.logDouble("pushesSkippedHz", pushesSkippedHz);
+    logger.logDouble("rendersDeferredHz", rendersDeferredHz);
+    logger.logDouble("rendersSkippedHz", rendersSkippedHz);
+    LEDPowerLimiter limiter = leds.getPowerLimiter();
+    if (limiter != null) {
+      logger.logDouble("estimatedAmps", limiter.getEstimatedAmps());
+      logger.logDouble("limitedAmps", limiter.getLimitedAmps());
+      logger.logDouble("currentLimitAmps", limiter.getBudgetAmps());
+    }
+
+    List<AbstractLEDS.Section> sections = leds.getSections();
+    for (int i = 0; i < maxRenderNanos.length; i++) {
+      AbstractLEDS.Section section = sections.get(i);
+      long renders = section.getRendersPerformed() - sectionRenders[i];
+      long nanos = section.getTotalRenderNanos() - sectionRenderNanos[i];
+      logger.logDouble(renderNanosKeys[i], renders == 0 ? 0 : (double) nanos / renders);
+      logger.logDouble(maxRenderNanosKeys[i], maxRenderNanos[i]);
+    }
+
+    loops = 0;
+    windowStartMicros = nowMicros;
+    loopNanos = 0;
+    maxLoopNanos = 0;
+    allocatedBytes = 0;
+    markCounters();
+  }
+
+  // Remembers the strip's counters so the next window only sees what happened during it
+  private void markCounters() {
+    pushesPerformed = leds.getPushesPerformed();
+    pushesSkipped = leds.getPushesSkipped();
+    rendersDeferred = leds.getRendersDeferred();
+    rendersSkipped = leds.getRendersSkipped();
+    List<AbstractLEDS.Section> sections = leds.getSections();
+    for (int i = 0; i < maxRenderNanos.length; i++) {
+      AbstractLEDS.Section section = sections.get(i);
+      maxRenderNanos[i] = 0;
+      sectionRenders[i] = section.getRendersPerformed();
+      sectionRenderNanos[i] = section.getTotalRenderNanos();
+    }
+  }
+
+  /**
+   * Returns the logger the numbers are published to.
+   */
+  public NetworkTableLogger getLogger() {
+    return logger;
+  }
+
+  /**
+   * Returns how many loops each published window covers.
+   */
+  public int getPublishEveryLoops() {
+    return publishEveryLoops;
+  }
+
+  /**
+   * Returns whether the JVM can measure how much periodic() allocates.
+   */
+  public boolean isAllocationMeasured() {
+    return allocationBean != null;
+  }
+
+  /**
+   * Returns the mean time spent in periodic() over the last published window in nanoseconds.
+   */
+  public double getMeanLoopNanos() {
+    return meanLoopNanos;
+  }
+
+  /**
+   * Returns the mean bytes periodic() allocated over the last published window, or -1 if it isn't measured.
+   */
+  public double getAllocatedBytesPerLoop() {
+    return allocatedBytesPerLoop;
+  }
+
+  /**
+   * Returns how often the strip was pushed to the LEDs over the last published window, per second.
+   */
+  public double getSetDataHz() {
+    return setDataHz;
+  }
+
+  /**
+   * Returns how often a push was skipped because nothing changed over the last published window, per second.
+   */
+  public double getPushesSkippedHz() {
+    return pushesSkippedHz;
+  }
+
+  /**
+   * Returns how often sections put off rendering over the last published window, per second.
+   */
+  public double getRendersDeferredHz() {
+    return rendersDeferredHz;
+  }
+
+  /**
+   * Returns how often time-invariant sections skipped rendering over the last published window, per second.
+   */
+  public double getRendersSkippedHz() {
+    return rendersSkippedHz;
+  }
+}
@@ -0,0 +1,149 @@
+package Glitch.Lib.LEDs;
+
+/**
+ * Per-channel math on packed 0xRRGGBB colors, a whole color at a time.
+ *
+ * Instead of unpacking every channel, each kernel works on the packed int directly: red and blue sit 8 bits apart, so
+ * one multiply or add covers both of them and the gap catches the carry, and green gets a second one. Comparisons
+ * and saturation use the same gaps as guard bits, so nothing branches per channel.
+ *
+ * The array kernels are plain counted loops over int[] with no calls left after inlining, which is the shape the JIT
+ * turns into SIMD instructions on desktop simulation. Amounts are out of 256, so 256 means all of it.
+ */
+public final class LEDKernels {
+  private static final int kRedBlue = 0xFF00FF;
+  private static final int kGreen = 0x00FF00;
+  // The bit just above each channel
+  private static final int kRedBlueGuard = 0x1000100;
+  private static final int kGreenGuard = 0x0010000;
+
+  private LEDKernels() {}
+
+  /**
+   * Scales every channel of a color.
+   * @param color The packed color
+   * @param amount How much of the color is left, from 0 to 256
+   * @return The scaled color
+   */
+  public static int scale(int color, int amount) {
+    int redBlue = (((color & kRedBlue) * amount) >>> 8) & kRedBlue;
+    int green = (((color & kGreen) * amount) >>> 8) & kGreen;
+    return redBlue | green;
+  }
+
+  /**
+   * Blends between two colors.
+   * @param from The color at 0
+   * @param to The color at 256
+   * @param amount How far to go from one to the other, from 0 to 256
+   * @return The blended color
+   */
+  public static int lerp(int from, int to, int amount) {
+    int inverse = 256 - amount;
+    int redBlue = (((to & kRedBlue) * amount + (from & kRedBlue) * inverse) >>> 8) & kRedBlue;
+    int green = (((to & kGreen) * amount + (from & kGreen) * inverse) >>> 8) & kGreen;
+    return redBlue | green;
+  }
+
+  /**
+   * Adds two colors, clipping every channel at 255.
+   */
+  public static int addSaturate(int a, int b) {
+    int redBlue = (a & kRedBlue) + (b & kRedBlue);
+    int green = (a & kGreen) + (b & kGreen);
+    // A carry into a guard bit turns into 0xFF for that channel
+    int redBlueCarry = redBlue & kRedBlueGuard;
+    int greenCarry = green & kGreenGuard;
+    redBlue |= redBlueCarry - (redBlueCarry >>> 8);
+    green |= greenCarry - (greenCarry >>> 8);
+    return (redBlue & kRedBlue) | (green & kGreen);
+  }
+
+  /**
+   * Takes the brighter of two colors in every channel.
+   */
+  public static int max(int a, int b) {
+    // A guard bit survives the subtraction exactly where a's channel is at least b's
+    int redBlueAtLeast = (((a & kRedBlue) | kRedBlueGuard) - (b & kRedBlue)) & kRedBlueGuard;
+    int greenAtLeast = (((a & kGreen) | kGreenGuard) - (b & kGreen)) & kGreenGuard;
+    int mask = (redBlueAtLeast - (redBlueAtLeast >>> 8)) | (greenAtLeast - (greenAtLeast >>> 8));
+    return (a & mask) | (b & ~mask & 0xFFFFFF);
+  }
+
+  /**
+   * Darkens every channel of a color by the same amount, stopping at 0.
+   * @param color The packed color
+   * @param amount How much to take off each channel, from 0 to 255
+   * @return The faded color
+   */
+  public static int fade(int color, int amount) {
+    int redBlue = ((color & kRedBlue) | kRedBlueGuard) - amount * 0x10001;
+    int green = ((color & kGreen) | kGreenGuard) - (amount << 8);
+    // Channels that went below 0 lost their guard bit, so mask them off
+    int redBlueKept = redBlue & kRedBlueGuard;
+    int greenKept = green & kGreenGuard;
+    return (redBlue & (redBlueKept - (redBlueKept >>> 8))) | (green & (greenKept - (greenKept >>> 8)));
+  }
+
+  /**
+   * Scales every channel of every color.
+   * @param source The packed colors to scale
+   * @param destination Where to put the scaled colors, can be the source
+   * @param length The number of LEDs
+   * @param amount How much of each color is left, from 0 to 256
+   */
+  public static void scale(int[] source, int[] destination, int length, int amount) {
+    for (int i = 0; i < length; i++) {
+      destination[i] = scale(source[i], amount);
+    }
+  }
+
+  /**
+   * Blends between two sets of colors.
+   * @param from The colors at 0
+   * @param to The colors at 256
+   * @param destination Where to put the blended colors, can be either of the others
+   * @param length The number of LEDs
+   * @param amount How far to go from one set to the other, from 0 to 256
+   */
+  public static void lerp(int[] from, int[] to, int[] destination, int length, int amount) {
+    for (int i = 0; i < length; i++) {
+      destination[i] = lerp(from[i], to[i], amount);
+    }
+  }
+
+  /**
+   * Adds two sets of colors, clipping every channel at 255.
+   * @param destination Where to put the sums, can be either of the others
+   * @param length The number of LEDs
+   */
+  public static void addSaturate(int[] a, int[] b, int[] destination, int length) {
+    for (int i = 0; i < length; i++) {
+      destination[i] = addSaturate(a[i], b[i]);
+    }
+  }
+
+  /**
+   * Takes the brighter of two sets of colors in every channel.
+   * @param destination Where to put the results, can be either of the others
+   * @param length The number of LEDs
+   */
+  public static void max(int[] a, int[] b, int[] destination, int length) {
+    for (int i = 0; i < length; i++) {
+      destination[i] = max(a[i], b[i]);
+    }
+  }
+
+  /**
+   * Darkens every channel of every color by the same amount, stopping at 0. Fading a buffer a little every frame
+   * leaves trails behind anything moving through it.
+   * @param pixels The packed colors to fade in place
+   * @param length The number of LEDs
+   * @param amount How much to take off each channel, from 0 to 255
+   */
+  public static void fade(int[] pixels, int length, int amount) {
+    for (int i = 0; i < length; i++) {
+      pixels[i] = fade(pixels[i], amount);
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package Glitch.Lib.LEDs;
+
+/**
+ * Keeps track of the frames baked by every {@link BakedLEDPattern} and throws out the least recently played ones
+ * once they take up more memory than allowed. One cache is shared by default so the cap covers every section.
+ *
+ * Rings are kept in an intrusive doubly linked list ordered by when they were last played, so touching a ring on
+ * every frame doesn't allocate.
+ */
+public final class LEDKeyframeCache {
+  private static final LEDKeyframeCache defaultCache = new LEDKeyframeCache(2 * 1024 * 1024);
+
+  private long capacityBytes;
+  private long bytesUsed = 0;
+  private long evictions = 0;
+
+  // Most recently played ring first
+  private BakedLEDPattern.FrameRing head;
+  private BakedLEDPattern.FrameRing tail;
+
+  /**
+   * Creates a new cache.
+   * @param capacityBytes How many bytes of frames the cache may hold before evicting
+   */
+  public LEDKeyframeCache(long capacityBytes) {
+    this.capacityBytes = capacityBytes;
+  }
+
+  /**
+   * Returns the cache baked patterns use when they aren't given one. It holds 2 MiB of frames.
+   */
+  public static LEDKeyframeCache getDefault() {
+    return defaultCache;
+  }
+
+  /**
+   * Changes how many bytes of frames the cache may hold, evicting rings if it's now over.
+   * @param capacityBytes The new capacity in bytes
+   */
+  public synchronized void setCapacityBytes(long capacityBytes) {
+    this.capacityBytes = capacityBytes;
+    evictDownTo(capacityBytes);
+  }
+
+  public synchronized long getCapacityBytes() {
+    return capacityBytes;
+  }
+
+  /**
+   * Returns how many bytes of frames are currently cached.
+   */
+  public synchronized long getBytesUsed() {
+    return bytesUsed;
+  }
+
+  /**
+   * Returns how many rings have been thrown out to stay under the cap.
+   */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Throws out every cached ring.
+   */
+  public synchronized void clear() {
+    evictDownTo(0);
+  }
+
+  /**
+   * Makes room for a new ring and adds it as the most recently played.
+   * Must be called while holding this cache's lock.
+   * @return Whether the ring fits in the cache at all
+   */
+  boolean add(BakedLEDPattern.FrameRing ring) {
+    if (ring.bytes > capacityBytes) {
+      return false;
+    }
+    evictDownTo(capacityBytes - ring.bytes);
+    linkFirst(ring);
+    bytesUsed += ring.bytes;
+    return true;
+  }
+
+  /**
+   * Marks a ring as the most recently played. Must be called while holding this cache's lock.
+   */
+  void touch(BakedLEDPattern.FrameRing ring) {
+    if (ring != head) {
+      unlink(ring);
+      linkFirst(ring);
+    }
+  }
+
+  private void evictDownTo(long limit) {
+    while (bytesUsed > limit && tail != null) {
+      BakedLEDPattern.FrameRing victim = tail;
+      unlink(victim);
+      bytesUsed -= victim.bytes;
+      evictions++;
+      victim.owner.evicted(victim);
+    }
+  }
+
+  private void linkFirst(BakedLEDPattern.FrameRing ring) {
+    ring.previous = null;
+    ring.next = head;
+    if (head != null) {
+      head.previous = ring;
+    }
+    head = ring;
+    if (tail == null) {
+      tail = ring;
+    }
+  }
+
+  private void unlink(BakedLEDPattern.FrameRing ring) {
+    if (ring.previous != null) {
+      ring.previous.next = ring.next;
+    } else {
+      head = ring.next;
+    }
+    if (ring.next != null) {
+      ring.next.previous = ring.previous;
+    } else {
+      tail = ring.previous;
+    }
+    ring.previous = null;
+    ring.next = null;
+  }
+}
@@ -0,0 +1,357 @@
+package Glitch.Lib.LEDs;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import Glitch.Lib.LEDs.Interfaces.RefreshRatePattern;
+import Glitch.Lib.LEDs.Interfaces.TimeInvariantPattern;
+import edu.wpi.first.wpilibj.LEDPattern;
+import edu.wpi.first.wpilibj.LEDReader;
+import edu.wpi.first.wpilibj.LEDWriter;
+
+/**
+ * Stacks patterns on top of each other, like layers in an image editor, so status indicators can sit on top of an
+ * effect without masking it.
+ *
+ * Every layer renders into its own packed buffer, and the buffers are blended bottom to top with {@link LEDKernels},
+ * one pass per layer over the packed composite. A layer is only rendered again when it needs to be: time-invariant
+ * layers when their pattern changes, {@link RefreshRatePattern} layers when they're due, and everything else each time
+ * the stack is applied. If no layer changed, the last blended frame is written out as is. Overlays like fire read
+ * back what they wrote last frame, and inside a stack they see their own layer, not the layers below them.
+ *
+ * A stack holds per-frame state, so give each section its own. Layers can be changed from the main thread while the
+ * stack renders in the background, changes show up on the next frame.
+ */
+public class LEDLayerStack implements RefreshRatePattern {
+  /**
+   * How a layer is combined with the layers below it. Opacity scales the layer's contribution in every mode.
+   */
+  public enum BlendMode {
+    /** The layer covers the ones below it. Black counts as transparent, so masked-off LEDs show through. */
+    NORMAL,
+    /** The layer's light is added to the layers below, clipping at full brightness. */
+    ADD,
+    /** The layers below are multiplied by the layer, so white leaves them alone and black turns them off. */
+    MULTIPLY,
+    /** Every channel takes the brighter of the layer and the layers below. */
+    MAX
+  }
+
+  /**
+   * One layer of a stack.
+   */
+  public final class Layer {
+    private volatile LEDPattern pattern;
+    private volatile BlendMode blendMode;
+    // 0-256 so that full opacity is a shift instead of a divide
+    private volatile int opacity;
+    private volatile boolean visible = true;
+
+    private volatile boolean patternChanged = true;
+    private final PackedLEDBuffer buffer = new PackedLEDBuffer(0);
+    private long lastRenderTime = 0;
+
+    private Layer(LEDPattern pattern, BlendMode blendMode, double opacity) {
+      this.pattern = pattern;
+      this.blendMode = blendMode;
+      this.opacity = toOpacity(opacity);
+    }
+
+    /**
+     * Replaces the layer's pattern. The layer renders it from scratch on the next frame.
+     * @param pattern The new pattern
+     */
+    public void setPattern(LEDPattern pattern) {
+      this.pattern = pattern;
+      patternChanged = true;
+    }
+
+    public LEDPattern getPattern() {
+      return pattern;
+    }
+
+    public void setBlendMode(BlendMode blendMode) {
+      this.blendMode = blendMode;
+      settingsChanged = true;
+    }
+
+    public BlendMode getBlendMode() {
+      return blendMode;
+    }
+
+    /**
+     * Sets how strongly the layer shows.
+     * @param opacity From 0 (invisible) to 1 (fully applied)
+     */
+    public void setOpacity(double opacity) {
+      this.opacity = toOpacity(opacity);
+      settingsChanged = true;
+    }
+
+    public double getOpacity() {
+      return opacity / 256.0;
+    }
+
+    /**
+     * Shows or hides the layer. Hidden layers aren't rendered at all.
+     * @param visible Whether the layer is shown
+     */
+    public void setVisible(boolean visible) {
+      if (visible && !this.visible) {
+        // Its buffer went stale while it was hidden
+        patternChanged = true;
+      }
+      this.visible = visible;
+      settingsChanged = true;
+    }
+
+    public boolean isVisible() {
+      return visible;
+    }
+
+    // Renders the layer into its buffer if it needs it, returns whether it did
+    private boolean render(int bufLen, long now, boolean resized) {
+      LEDPattern current = pattern;
+      boolean changed = patternChanged;
+      if (!changed && !resized) {
+        if (current instanceof RefreshRatePattern) {
+          if (!((RefreshRatePattern) current).isDue(now, lastRenderTime)) {
+            return false;
+          }
+        } else if (TimeInvariantPattern.isTimeInvariant(current)) {
+          return false;
+        }
+      }
+      patternChanged = false;
+      buffer.setLength(bufLen);
+      current.applyTo(buffer, buffer);
+      lastRenderTime = now;
+      return true;
+    }
+  }
+
+  private final LongSupplier timeSourceMicros;
+  private volatile Layer[] layers = new Layer[0];
+  private volatile boolean settingsChanged = true;
+
+  // Only touched while rendering
+  private final PackedLEDBuffer composite = new PackedLEDBuffer(0);
+  private int lastLength = -1;
+  private int[][] blendPixels = new int[0][];
+  private BlendMode[] blendModes = new BlendMode[0];
+  private int[] blendOpacities = new int[0];
+
+  /**
+   * Creates an empty stack that reads the time from the current LED clock.
+   */
+  public LEDLayerStack() {
+    this(() -> LEDFrameClock.current().getTime());
+  }
+
+  /**
+   * Creates an empty stack.
+   * @param timeSourceMicros Where the time is read from when deciding whether layers are due, in microseconds
+   */
+  public LEDLayerStack(LongSupplier timeSourceMicros) {
+    this.timeSourceMicros = timeSourceMicros;
+  }
+
+  /**
+   * Adds a fully opaque layer on top of the stack.
+   * @param pattern The layer's pattern
+   * @param blendMode How the layer is combined with the ones below it
+   * @return The new layer
+   */
+  public Layer addLayer(LEDPattern pattern, BlendMode blendMode) {
+    return addLayer(pattern, blendMode, 1.0);
+  }
+
+  /**
+   * Adds a layer on top of the stack.
+   * @param pattern The layer's pattern
+   * @param blendMode How the layer is combined with the ones below it
+   * @param opacity How strongly the layer shows, from 0 to 1
+   * @return The new layer
+   */
+  public synchronized Layer addLayer(LEDPattern pattern, BlendMode blendMode, double opacity) {
+    Layer layer = new Layer(pattern, blendMode, opacity);
+    Layer[] grown = Arrays.copyOf(layers, layers.length + 1);
+    grown[layers.length] = layer;
+    layers = grown;
+    settingsChanged = true;
+    return layer;
+  }
+
+  /**
+   * Removes a layer from the stack.
+   * @param layer The layer to remove
+   * @return Whether the layer was in the stack
+   */
+  public synchronized boolean removeLayer(Layer layer) {
+    Layer[] current = layers;
+    for (int i = 0; i < current.length; i++) {
+      if (current[i] == layer) {
+        Layer[] shrunk = new Layer[current.length - 1];
+        System.arraycopy(current, 0, shrunk, 0, i);
+        System.arraycopy(current, i + 1, shrunk, i, current.length - i - 1);
+        layers = shrunk;
+        settingsChanged = true;
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns the layers from the bottom of the stack to the top.
+   */
+  public List<Layer> getLayers() {
+    return List.of(layers);
+  }
+
+  /**
+   * Returns the shortest update interval of the layers that declare one, so a Section renders the stack whenever any
+   * of them is due. If none do, the stack only renders when the strip is pushed.
+   */
+  @Override
+  public long getUpdateIntervalMicros() {
+    long interval = Long.MAX_VALUE;
+    for (Layer layer : layers) {
+      if (layer.visible && layer.pattern instanceof RefreshRatePattern) {
+        interval = Math.min(interval, ((RefreshRatePattern) layer.pattern).getUpdateIntervalMicros());
+      }
+    }
+    return interval;
+  }
+
+  @Override
+  public boolean isDue(long nowMicros, long lastRenderMicros) {
+    for (Layer layer : layers) {
+      LEDPattern pattern = layer.pattern;
+      if (layer.visible && pattern instanceof RefreshRatePattern
+          && ((RefreshRatePattern) pattern).isDue(nowMicros, layer.lastRenderTime)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void applyTo(LEDReader reader, LEDWriter writer) {
+    int bufLen = reader.getLength();
+    boolean resized = bufLen != lastLength;
+    lastLength = bufLen;
+    long now = timeSourceMicros.getAsLong();
+
+    Layer[] current = layers;
+    boolean changed = resized | settingsChanged;
+    settingsChanged = false;
+    for (Layer layer : current) {
+      if (layer.visible) {
+        changed |= layer.render(bufLen, now, resized);
+      }
+    }
+
+    composite.setLength(bufLen);
+    int[] out = composite.getPixels();
+    if (changed) {
+      blend(current, out, bufLen);
+    }
+    PackedColors.write(out, bufLen, writer);
+  }
+
+  // Blends every visible layer bottom to top, a layer at a time
+  private void blend(Layer[] layers, int[] out, int bufLen) {
+    if (blendPixels.length < layers.length) {
+      blendPixels = new int[layers.length][];
+      blendModes = new BlendMode[layers.length];
+      blendOpacities = new int[layers.length];
+    }
+    int[][] pixels = blendPixels;
+    BlendMode[] modes = blendModes;
+    int[] opacities = blendOpacities;
+
+    // Snapshot the layer settings once instead of reading volatiles for every LED
+    int visibleCount = 0;
+    for (Layer layer : layers) {
+      if (layer.visible && layer.opacity > 0) {
+        pixels[visibleCount] = layer.buffer.getPixels();
+        modes[visibleCount] = layer.blendMode;
+        opacities[visibleCount] = layer.opacity;
+        visibleCount++;
+      }
+    }
+
+    Arrays.fill(out, 0, bufLen, PackedColors.kBlack);
+    for (int l = 0; l < visibleCount; l++) {
+      blendLayer(out, pixels[l], modes[l], opacities[l], bufLen);
+    }
+  }
+
+  // One mode over the whole layer, so each pass is a single loop with no switch in it
+  private static void blendLayer(int[] out, int[] layer, BlendMode mode, int opacity, int bufLen) {
+    switch (mode) {
+      case ADD:
+        for (int i = 0; i < bufLen; i++) {
+          out[i] = LEDKernels.addSaturate(out[i], LEDKernels.scale(layer[i], opacity));
+        }
+        break;
+      case MAX:
+        for (int i = 0; i < bufLen; i++) {
+          out[i] = LEDKernels.max(out[i], LEDKernels.scale(layer[i], opacity));
+        }
+        break;
+      case NORMAL:
+        for (int i = 0; i < bufLen; i++) {
+          int color = layer[i];
+          out[i] = color == PackedColors.kBlack ? out[i] : LEDKernels.lerp(out[i], color, opacity);
+        }
+        break;
+      default:
+        for (int i = 0; i < bufLen; i++) {
+          out[i] = blend(out[i], layer[i], mode, opacity);
+        }
+    }
+  }
+
+  /**
+   * Blends one packed color over another.
+   * @param below The color of the layers below
+   * @param layer The color of the layer
+   * @param mode How the colors are combined
+   * @param opacity How strongly the layer shows, from 0 to 256
+   * @return The blended color
+   */
+  static int blend(int below, int layer, BlendMode mode, int opacity) {
+    switch (mode) {
+      case NORMAL:
+        return layer == PackedColors.kBlack ? below : LEDKernels.lerp(below, layer, opacity);
+      case ADD:
+        return LEDKernels.addSaturate(below, LEDKernels.scale(layer, opacity));
+      case MULTIPLY:
+        // Opacity fades the layer toward white, which leaves the layers below alone
+        return multiply(below, LEDKernels.lerp(PackedColors.kWhite, layer, opacity));
+      case MAX:
+        return LEDKernels.max(below, LEDKernels.scale(layer, opacity));
+      default:
+        return layer;
+    }
+  }
+
+  private static int multiply(int a, int b) {
+    return PackedColors.pack(
+        div255(PackedColors.red(a) * PackedColors.red(b)),
+        div255(PackedColors.green(a) * PackedColors.green(b)),
+        div255(PackedColors.blue(a) * PackedColors.blue(b)));
+  }
+
+  // Exact x / 255 rounded down for x up to 255 * 255
+  private static int div255(int x) {
+    return (x + 1 + (x >> 8)) >> 8;
+  }
+
+  private static int toOpacity(double opacity) {
+    return (int) Math.round(Math.max(0, Math.min(1, opacity)) * 256);
+  }
+}
@@ -0,0 +1,111 @@
+package Glitch.Lib.LEDs;
+
+/**
+ * Where every LED on a strip physically is, for strips that run along frame rails and uprights instead of in a line
+ * or a grid. Positions are kept in three float arrays indexed by LED, in whatever units the robot is measured in
+ * (meters are a good choice), so {@link SpatialLEDPatterns} can run over them without touching an object per LED.
+ *
+ * Build one when the robot starts, by placing runs of LEDs along straight segments, and slice it per section with
+ * {@link AbstractLEDS.Section#sliceLayout(LEDLayout)}.
+ */
+public final class LEDLayout {
+  public final int length;
+  public final float[] x;
+  public final float[] y;
+  public final float[] z;
+
+  /**
+   * Creates a layout with every LED at the origin.
+   * @param length The number of LEDs
+   */
+  public LEDLayout(int length) {
+    if (length <= 0) {
+      throw new IllegalArgumentException("A layout needs at least one LED.");
+    }
+    this.length = length;
+    this.x = new float[length];
+    this.y = new float[length];
+    this.z = new float[length];
+  }
+
+  /**
+   * Places one LED.
+   * @param led The index of the LED
+   * @return This layout
+   */
+  public LEDLayout place(int led, double x, double y, double z) {
+    this.x[led] = (float) x;
+    this.y[led] = (float) y;
+    this.z[led] = (float) z;
+    return this;
+  }
+
+  /**
+   * Places a run of LEDs evenly along a straight segment, with the first LED at the start and the last at the end.
+   * @param firstLed The index of the first LED in the run
+   * @param count How many LEDs are in the run
+   * @return This layout
+   */
+  public LEDLayout placeLine(int firstLed, int count, double startX, double startY, double startZ,
+      double endX, double endY, double endZ) {
+    if (firstLed < 0 || count < 0 || firstLed + count > length) {
+      throw new IndexOutOfBoundsException("LEDs " + firstLed + " to " + (firstLed + count - 1) + " aren't all in a layout of " + length + ".");
+    }
+    for (int i = 0; i < count; i++) {
+      double t = count == 1 ? 0 : i / (double) (count - 1);
+      place(firstLed + i, startX + (endX - startX) * t, startY + (endY - startY) * t, startZ + (endZ - startZ) * t);
+    }
+    return this;
+  }
+
+  /**
+   * Copies part of the layout, the same way AddressableLEDBuffer.createView picks LEDs.
+   * @param startIndex The first LED, inclusive
+   * @param endIndex The last LED, inclusive. If it's before the start, the copy runs backwards.
+   * @return The LEDs from the start to the end
+   */
+  public LEDLayout slice(int startIndex, int endIndex) {
+    int step = endIndex >= startIndex ? 1 : -1;
+    LEDLayout slice = new LEDLayout(Math.abs(endIndex - startIndex) + 1);
+    for (int i = 0, led = startIndex; i < slice.length; i++, led += step) {
+      slice.x[i] = x[led];
+      slice.y[i] = y[led];
+      slice.z[i] = z[led];
+    }
+    return slice;
+  }
+
+  /**
+   * Returns how far along a direction every LED is, measured from the origin.
+   * @return A new array with the position of every LED along the direction
+   */
+  public float[] project(double directionX, double directionY, double directionZ) {
+    double norm = Math.sqrt(directionX * directionX + directionY * directionY + directionZ * directionZ);
+    if (norm == 0) {
+      throw new IllegalArgumentException("A direction can't be zero.");
+    }
+    float dx = (float) (directionX / norm);
+    float dy = (float) (directionY / norm);
+    float dz = (float) (directionZ / norm);
+    float[] along = new float[length];
+    for (int i = 0; i < length; i++) {
+      along[i] = x[i] * dx + y[i] * dy + z[i] * dz;
+    }
+    return along;
+  }
+
+  /**
+   * Returns how far every LED is from a point.
+   * @return A new array with the distance of every LED from the point
+   */
+  public float[] distances(double centerX, double centerY, double centerZ) {
+    float[] distances = new float[length];
+    for (int i = 0; i < length; i++) {
+      double dx = x[i] - centerX;
+      double dy = y[i] - centerY;
+      double dz = z[i] - centerZ;
+      distances[i] = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+    return distances;
+  }
+}
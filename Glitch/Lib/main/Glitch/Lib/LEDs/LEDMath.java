@@ -0,0 +1,112 @@
+package Glitch.Lib.LEDs;
+
+/**
+ * Fast, slightly inexact math for LED effects.
+ *
+ * An LED channel only has 256 levels, so the last few digits of Math.sin or Math.sqrt never make it to the strip,
+ * but they still cost a lot when they're evaluated for every LED every frame. These replacements trade that unused
+ * precision for speed. Each method documents how far it can be from the exact answer.
+ */
+public final class LEDMath {
+  private static final int kSinBits = 12;
+  private static final int kSinSize = 1 << kSinBits;
+  private static final int kSinMask = kSinSize - 1;
+  private static final double kRadiansToIndex = kSinSize / (2 * Math.PI);
+  private static final float[] kSin = new float[kSinSize];
+
+  private static final float[] kSqrt255 = new float[256];
+
+  static {
+    for (int i = 0; i < kSinSize; i++) {
+      kSin[i] = (float) Math.sin(i * 2 * Math.PI / kSinSize);
+    }
+    for (int i = 0; i < 256; i++) {
+      kSqrt255[i] = (float) Math.sqrt(i);
+    }
+  }
+
+  private LEDMath() {}
+
+  /**
+   * Sine from a 4096 entry table.
+   * Within 8e-4 of Math.sin for |radians| up to 1e6, past that the input itself runs out of precision.
+   * @param radians The angle in radians
+   */
+  public static double sin(double radians) {
+    return kSin[(int) (Math.round(radians * kRadiansToIndex) & kSinMask)];
+  }
+
+  /**
+   * Cosine from the same table as {@link #sin(double)}, with the same error bound.
+   * @param radians The angle in radians
+   */
+  public static double cos(double radians) {
+    return kSin[(int) ((Math.round(radians * kRadiansToIndex) + kSinSize / 4) & kSinMask)];
+  }
+
+  /**
+   * A triangle wave between -pi/2 and pi/2 with a period of 2 pi. This is exactly Math.asin(Math.sin(radians))
+   * (up to rounding, about 1e-15), without calling either.
+   * @param radians The angle in radians
+   */
+  public static double triangle(double radians) {
+    double turns = radians / (2 * Math.PI) + 0.25;
+    double phase = turns - Math.floor(turns);
+    return (Math.PI / 2) * (1 - 4 * Math.abs(phase - 0.5));
+  }
+
+  /**
+   * The square root of an 8-bit channel value from a table. Exact to float precision (about 1e-6).
+   * @param value A channel value from 0 to 255
+   */
+  public static double sqrt255(int value) {
+    return kSqrt255[value & 0xFF];
+  }
+
+  /**
+   * Square root from a bit-level first guess and two Newton steps.
+   * Within 2e-6 (relative) of Math.sqrt for positive, finite inputs. Returns 0 for 0 and anything negative.
+   * @param value The value to take the root of
+   */
+  public static double fastSqrt(double value) {
+    if (value <= 0) {
+      return 0;
+    }
+    // Halving the exponent bits gets within about 6%, and every Newton step squares the error
+    double guess = Double.longBitsToDouble(((Double.doubleToRawLongBits(value) - (1L << 52)) >> 1) + (1L << 61));
+    guess = 0.5 * (guess + value / guess);
+    return 0.5 * (guess + value / guess);
+  }
+
+  /**
+   * Raises a number to a whole power by repeated squaring. Exact apart from normal double rounding,
+   * and much cheaper than Math.pow for the small powers patterns use.
+   * @param base The base
+   * @param exponent The power, must not be negative
+   */
+  public static double powInt(double base, int exponent) {
+    double result = 1;
+    while (exponent > 0) {
+      if ((exponent & 1) != 0) {
+        result *= base;
+      }
+      base *= base;
+      exponent >>= 1;
+    }
+    return result;
+  }
+
+  /**
+   * Builds a table that raises 8-bit channel values to a power, scaled back to 0-255 (a gamma curve).
+   * Every entry is the exactly rounded value of 255 * (i / 255)^exponent, so lookups have no error beyond 8-bit rounding.
+   * @param exponent The power to raise the normalized channel value to
+   * @return 256 entries, indexed by channel value
+   */
+  public static int[] powTable(double exponent) {
+    int[] table = new int[256];
+    for (int i = 0; i < 256; i++) {
+      table[i] = (int) Math.round(255 * Math.pow(i / 255.0, exponent));
+    }
+    return table;
+  }
+}
@@ -0,0 +1,116 @@
+package Glitch.Lib.LEDs;
+
+import edu.wpi.first.wpilibj.LEDWriter;
+import edu.wpi.first.wpilibj.util.Color;
+
+/**
+ * Up to 256 colors that indexed patterns pick from with a byte per LED, see
+ * {@link Glitch.Lib.LEDs.Interfaces.IndexedLEDPattern}.
+ *
+ * Changing a color only touches the palette, and every section using it picks the change up the next time it expands
+ * its indices, so swapping a whole palette (alliance colors, a mode change) costs as much as the palette is long
+ * instead of a re-render. Colors are stored packed as 0xRRGGBB, and indices past the last color are black.
+ *
+ * Palettes are changed on the main thread. A section rendering on the background thread at the same moment can show
+ * a mix of the old and new colors for a frame, and then catches up.
+ */
+public final class LEDPalette {
+  public static final int kMaxColors = 256;
+
+  // Always 256 long, so any byte index is in range
+  private final int[] colors = new int[kMaxColors];
+  private int size;
+  private volatile long version = 0;
+
+  /**
+   * Creates a palette of black colors.
+   * @param size How many colors the palette has, up to 256
+   */
+  public LEDPalette(int size) {
+    if (size < 1 || size > kMaxColors) {
+      throw new IllegalArgumentException("A palette has between 1 and " + kMaxColors + " colors.");
+    }
+    this.size = size;
+  }
+
+  /**
+   * Creates a palette of the given colors, in index order.
+   * @param colors The colors
+   * @return The palette
+   */
+  public static LEDPalette of(Color... colors) {
+    LEDPalette palette = new LEDPalette(colors.length);
+    for (int i = 0; i < colors.length; i++) {
+      palette.colors[i] = PackedColors.pack(colors[i]);
+    }
+    return palette;
+  }
+
+  /**
+   * Returns how many colors the palette has.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns a color packed as 0xRRGGBB.
+   * @param index The color's index
+   */
+  public int get(int index) {
+    return colors[index & 0xFF];
+  }
+
+  /**
+   * Changes one color.
+   * @param index The color's index, less than {@link #size()}
+   * @param color The new color
+   */
+  public void set(int index, Color color) {
+    setPacked(index, PackedColors.pack(color));
+  }
+
+  /**
+   * Changes one color.
+   * @param index The color's index, less than {@link #size()}
+   * @param packed The new color packed as 0xRRGGBB
+   */
+  public void setPacked(int index, int packed) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Color " + index + " is outside a palette of " + size + ".");
+    }
+    colors[index] = packed & 0xFFFFFF;
+    version++;
+  }
+
+  /**
+   * Replaces every color with another palette's.
+   * @param other The palette to copy
+   */
+  public void copyFrom(LEDPalette other) {
+    System.arraycopy(other.colors, 0, colors, 0, kMaxColors);
+    size = other.size;
+    version++;
+  }
+
+  /**
+   * Returns a number that changes every time a color does.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Writes the color of every index. This is the only pass over the LEDs an indexed pattern needs.
+   * @param indices A palette index per LED
+   * @param length How many LEDs to write
+   * @param writer Where to write the colors
+   */
+  public void expand(byte[] indices, int length, LEDWriter writer) {
+    int[] colors = this.colors;
+    for (int i = 0; i < length; i++) {
+      int color = colors[indices[i] & 0xFF];
+      writer.setRGB(i, PackedColors.red(color), PackedColors.green(color), PackedColors.blue(color));
+    }
+  }
+}
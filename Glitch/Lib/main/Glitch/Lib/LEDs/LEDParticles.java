@@ -0,0 +1,274 @@
+package Glitch.Lib.LEDs;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-capacity particle system for 1D strips and 2D matrices.
+ *
+ * Particle state lives in parallel primitive arrays (position, velocity, age and lifetime), so spawning, moving and
+ * killing particles never allocates or boxes. Dead particles are swap-removed: the last live particle is moved into
+ * the hole, so the live particles always fill the start of the arrays. What a particle looks like is up to a
+ * {@link DecayKernel}, and where and how often they appear is up to a {@link SpawnKernel}, so the same engine can
+ * drive raindrops, sparkles or comets.
+ *
+ * A particle system isn't thread-safe, each pattern should own its own.
+ */
+public final class LEDParticles {
+  /**
+   * Decides where and how often particles appear.
+   */
+  @FunctionalInterface
+  public interface SpawnKernel {
+    /**
+     * Spawns the particles for one step.
+     * @param particles The system to spawn into
+     * @param random The system's random number generator
+     * @param dtSeconds How long the step is
+     * @param width The width of the surface, or the length of a strip
+     * @param height The height of the surface, 1 for a strip
+     */
+    void spawn(LEDParticles particles, LEDRandom random, double dtSeconds, int width, int height);
+  }
+
+  /**
+   * Decides how brightly a particle lights the LEDs around it.
+   */
+  @FunctionalInterface
+  public interface DecayKernel {
+    /**
+     * @param age How long the particle has been alive in seconds
+     * @param lifetime How long the particle lives in seconds
+     * @param distance How far the LED is from the particle, in LEDs
+     * @return The brightness the particle adds to the LED, from 0 to 1
+     */
+    float intensity(float age, float lifetime, float distance);
+  }
+
+  /**
+   * Spawns particles at random positions with no velocity, at an average rate.
+   * @param particlesPerSecond How many particles to spawn per second on average
+   * @param lifetimeSeconds How long each particle lives
+   */
+  public static SpawnKernel randomSpawn(double particlesPerSecond, float lifetimeSeconds) {
+    return (particles, random, dtSeconds, width, height) -> {
+      double expected = particlesPerSecond * dtSeconds;
+      int spawns = (int) expected;
+      if (random.nextDouble() < expected - spawns) {
+        spawns++;
+      }
+      for (int i = 0; i < spawns; i++) {
+        particles.spawn(random.nextInt(width), random.nextInt(height), 0, 0, lifetimeSeconds);
+      }
+    };
+  }
+
+  /**
+   * A ring that spreads out from the particle and fades as it grows, like a drop landing on water.
+   * @param maxRadius How far the ring has spread by the end of the particle's life, in LEDs
+   */
+  public static DecayKernel ripple(float maxRadius) {
+    return (age, lifetime, distance) -> {
+      float progress = age / lifetime;
+      float front = maxRadius * progress;
+      return Math.max(0, 1 - Math.abs(distance - front)) * (1 - progress);
+    };
+  }
+
+  /**
+   * A single LED that fades out over the particle's life.
+   */
+  public static DecayKernel sparkle() {
+    return (age, lifetime, distance) -> distance < 0.5f ? 1 - age / lifetime : 0;
+  }
+
+  private final int capacity;
+  private final float[] x;
+  private final float[] y;
+  private final float[] vx;
+  private final float[] vy;
+  private final float[] age;
+  private final float[] lifetime;
+  private int count = 0;
+
+  private float[] brightness = new float[0];
+
+  /**
+   * Creates an empty particle system.
+   * @param capacity The most particles that can be alive at once. Spawns past this are dropped.
+   */
+  public LEDParticles(int capacity) {
+    this.capacity = capacity;
+    x = new float[capacity];
+    y = new float[capacity];
+    vx = new float[capacity];
+    vy = new float[capacity];
+    age = new float[capacity];
+    lifetime = new float[capacity];
+  }
+
+  /**
+   * Spawns a particle.
+   * @param x The x position, or the index on a strip
+   * @param y The y position, 0 on a strip
+   * @param vx The x velocity in LEDs per second
+   * @param vy The y velocity in LEDs per second
+   * @param lifetimeSeconds How long the particle lives
+   * @return Whether there was room for the particle
+   */
+  public boolean spawn(float x, float y, float vx, float vy, float lifetimeSeconds) {
+    if (count == capacity) {
+      return false;
+    }
+    this.x[count] = x;
+    this.y[count] = y;
+    this.vx[count] = vx;
+    this.vy[count] = vy;
+    this.age[count] = 0;
+    this.lifetime[count] = lifetimeSeconds;
+    count++;
+    return true;
+  }
+
+  /**
+   * Spawns new particles, then ages and moves every particle, removing the ones that have expired.
+   * @param dtSeconds How much time has passed
+   * @param spawner Where new particles appear, or null to spawn none
+   * @param random The random number generator handed to the spawner
+   * @param width The width of the surface, or the length of a strip
+   * @param height The height of the surface, 1 for a strip
+   */
+  public void update(double dtSeconds, SpawnKernel spawner, LEDRandom random, int width, int height) {
+    if (spawner != null) {
+      spawner.spawn(this, random, dtSeconds, width, height);
+    }
+
+    float dt = (float) dtSeconds;
+    for (int i = 0; i < count; ) {
+      age[i] += dt;
+      if (age[i] >= lifetime[i]) {
+        remove(i);
+      } else {
+        x[i] += vx[i] * dt;
+        y[i] += vy[i] * dt;
+        i++;
+      }
+    }
+  }
+
+  // Moves the last particle into the hole, so don't advance past i afterwards
+  private void remove(int i) {
+    int last = --count;
+    x[i] = x[last];
+    y[i] = y[last];
+    vx[i] = vx[last];
+    vy[i] = vy[last];
+    age[i] = age[last];
+    lifetime[i] = lifetime[last];
+  }
+
+  /**
+   * Removes every particle.
+   */
+  public void clear() {
+    count = 0;
+  }
+
+  /**
+   * Returns how many particles are alive.
+   */
+  public int size() {
+    return count;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  public float getX(int particle) {
+    return x[particle];
+  }
+
+  public float getY(int particle) {
+    return y[particle];
+  }
+
+  public float getAge(int particle) {
+    return age[particle];
+  }
+
+  /**
+   * Renders every particle onto a strip. Overlapping particles add up, and the result is clamped to 1.
+   * The returned array is owned by the particle system and reused by the next render.
+   * @param length The length of the strip
+   * @param kernel How brightly each particle lights the LEDs around it
+   * @param radius How far from a particle the kernel can light LEDs
+   * @param wrap Whether light past one end of the strip comes back in at the other
+   * @return The brightness of every LED from 0 to 1, the array may be longer than the strip
+   */
+  public float[] render1D(int length, DecayKernel kernel, float radius, boolean wrap) {
+    float[] out = clearedBrightness(length);
+    for (int i = 0; i < count; i++) {
+      float center = x[i];
+      int from = (int) Math.ceil(center - radius);
+      int to = (int) Math.floor(center + radius);
+      for (int led = from; led <= to; led++) {
+        int index = led;
+        if (index < 0 || index >= length) {
+          if (!wrap) {
+            continue;
+          }
+          index = Math.floorMod(index, length);
+        }
+        out[index] += kernel.intensity(age[i], lifetime[i], Math.abs(led - center));
+      }
+    }
+    clamp(out, length);
+    return out;
+  }
+
+  /**
+   * Renders every particle onto a 2D surface, indexed y * width + x. Light past the edges is dropped.
+   * Overlapping particles add up, and the result is clamped to 1.
+   * The returned array is owned by the particle system and reused by the next render.
+   * @param width The width of the surface
+   * @param height The height of the surface
+   * @param kernel How brightly each particle lights the LEDs around it
+   * @param radius How far from a particle the kernel can light LEDs
+   * @return The brightness of every pixel from 0 to 1, the array may be longer than the surface
+   */
+  public float[] render2D(int width, int height, DecayKernel kernel, float radius) {
+    float[] out = clearedBrightness(width * height);
+    for (int i = 0; i < count; i++) {
+      float centerX = x[i];
+      float centerY = y[i];
+      int fromX = Math.max(0, (int) Math.ceil(centerX - radius));
+      int toX = Math.min(width - 1, (int) Math.floor(centerX + radius));
+      int fromY = Math.max(0, (int) Math.ceil(centerY - radius));
+      int toY = Math.min(height - 1, (int) Math.floor(centerY + radius));
+      for (int py = fromY; py <= toY; py++) {
+        float dy = py - centerY;
+        for (int px = fromX; px <= toX; px++) {
+          float dx = px - centerX;
+          float distance = (float) LEDMath.fastSqrt(dx * dx + dy * dy);
+          out[py * width + px] += kernel.intensity(age[i], lifetime[i], distance);
+        }
+      }
+    }
+    clamp(out, width * height);
+    return out;
+  }
+
+  private float[] clearedBrightness(int length) {
+    if (brightness.length < length) {
+      brightness = new float[length];
+    }
+    Arrays.fill(brightness, 0, length, 0);
+    return brightness;
+  }
+
+  private static void clamp(float[] values, int length) {
+    for (int i = 0; i < length; i++) {
+      values[i] = Math.min(1, values[i]);
+    }
+  }
+}
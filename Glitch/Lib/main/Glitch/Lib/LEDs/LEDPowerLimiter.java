@@ -0,0 +1,177 @@
+package Glitch.Lib.LEDs;
+
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+
+/**
+ * Keeps a strip under a current budget so a long strip at full white can't brown out the robot.
+ *
+ * The current is estimated from per-channel coefficients: every LED draws its idle current plus a share of each
+ * channel's full-brightness current. The estimate is kept as a running total against a packed copy of the last frame,
+ * so a frame within budget is one pass over the buffer that only does the math for LEDs that changed. When the frame
+ * is over budget, a second pass scales every channel down through a 256 entry table into a separate output buffer,
+ * leaving the strip buffer alone so sections that don't re-render aren't dimmed twice. The scale isn't known until
+ * the whole frame has been read, and scaling with the last frame's scale instead would let a sudden jump to full
+ * white through for a frame, so limited frames pay for both passes. The table is only rebuilt when the scale changes.
+ */
+public class LEDPowerLimiter {
+  /** A WS2812B draws about 20 mA per channel at full brightness. */
+  public static final double kDefaultChannelMilliamps = 20;
+  /** A WS2812B draws about 1 mA with every channel off. */
+  public static final double kDefaultIdleMilliamps = 1;
+
+  private final int length;
+  // Microamps drawn by each channel at each brightness
+  private final int[] redMicroamps = new int[256];
+  private final int[] greenMicroamps = new int[256];
+  private final int[] blueMicroamps = new int[256];
+  private final long idleMicroamps;
+
+  private long budgetMicroamps;
+  // The last frame, packed, and how much its channels draw
+  private final int[] pixels;
+  private long channelMicroamps = 0;
+
+  private final AddressableLEDBuffer output;
+  private final int[] scaleTable = new int[256];
+  private int scale = 256;
+  private long limitedMicroamps;
+
+  /**
+   * Creates a limiter with WS2812B current draw.
+   * @param length The number of LEDs on the strip
+   * @param budgetAmps The most current the strip may draw
+   */
+  public LEDPowerLimiter(int length, double budgetAmps) {
+    this(length, budgetAmps, kDefaultChannelMilliamps, kDefaultChannelMilliamps, kDefaultChannelMilliamps, kDefaultIdleMilliamps);
+  }
+
+  /**
+   * Creates a limiter.
+   * @param length The number of LEDs on the strip
+   * @param budgetAmps The most current the strip may draw
+   * @param redMilliamps How much one LED's red channel draws at full brightness
+   * @param greenMilliamps How much one LED's green channel draws at full brightness
+   * @param blueMilliamps How much one LED's blue channel draws at full brightness
+   * @param idleMilliamps How much one LED draws with every channel off
+   */
+  public LEDPowerLimiter(int length, double budgetAmps, double redMilliamps, double greenMilliamps, double blueMilliamps,
+      double idleMilliamps) {
+    this.length = length;
+    for (int value = 0; value < 256; value++) {
+      redMicroamps[value] = (int) Math.round(value * redMilliamps * 1000 / 255);
+      greenMicroamps[value] = (int) Math.round(value * greenMilliamps * 1000 / 255);
+      blueMicroamps[value] = (int) Math.round(value * blueMilliamps * 1000 / 255);
+      scaleTable[value] = value;
+    }
+    this.idleMicroamps = Math.round(length * idleMilliamps * 1000);
+    this.pixels = new int[length];
+    this.output = new AddressableLEDBuffer(length);
+    limitedMicroamps = idleMicroamps;
+    setBudgetAmps(budgetAmps);
+  }
+
+  /**
+   * Updates the estimate from a frame and limits it if it's over budget. A frame over budget takes a second pass to
+   * write the dimmed copy.
+   * @param frame The frame about to be shown, {@link #getLength()} long
+   * @return The frame itself if it's within budget, otherwise a dimmed copy owned by the limiter
+   */
+  public AddressableLEDBuffer apply(AddressableLEDBuffer frame) {
+    long total = channelMicroamps;
+    for (int i = 0; i < length; i++) {
+      int red = frame.getRed(i);
+      int green = frame.getGreen(i);
+      int blue = frame.getBlue(i);
+      int packed = PackedColors.pack(red, green, blue);
+      int old = pixels[i];
+      if (packed != old) {
+        total += redMicroamps[red] + greenMicroamps[green] + blueMicroamps[blue]
+            - redMicroamps[PackedColors.red(old)] - greenMicroamps[PackedColors.green(old)] - blueMicroamps[PackedColors.blue(old)];
+        pixels[i] = packed;
+      }
+    }
+    channelMicroamps = total;
+
+    // A frame that's already black can't be dimmed any further
+    if (idleMicroamps + total <= budgetMicroamps || total == 0) {
+      setScale(256);
+      limitedMicroamps = idleMicroamps + total;
+      return frame;
+    }
+
+    // Idle current can't be dimmed, so the channels share whatever is left
+    long available = Math.max(budgetMicroamps - idleMicroamps, 0);
+    setScale((int) Math.min(available * 256 / total, 255));
+    long limited = idleMicroamps;
+    for (int i = 0; i < length; i++) {
+      int packed = pixels[i];
+      int red = scaleTable[PackedColors.red(packed)];
+      int green = scaleTable[PackedColors.green(packed)];
+      int blue = scaleTable[PackedColors.blue(packed)];
+      limited += redMicroamps[red] + greenMicroamps[green] + blueMicroamps[blue];
+      output.setRGB(i, red, green, blue);
+    }
+    limitedMicroamps = limited;
+    return output;
+  }
+
+  private void setScale(int newScale) {
+    if (newScale == scale) {
+      return;
+    }
+    scale = newScale;
+    for (int value = 0; value < 256; value++) {
+      scaleTable[value] = (value * newScale) >> 8;
+    }
+  }
+
+  /**
+   * Returns the number of LEDs the limiter covers.
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * Sets the most current the strip may draw. Takes effect on the next frame.
+   * @param budgetAmps The budget in amps
+   */
+  public void setBudgetAmps(double budgetAmps) {
+    if (budgetAmps < 0) {
+      throw new IllegalArgumentException("The current budget can't be negative.");
+    }
+    budgetMicroamps = Math.round(budgetAmps * 1e6);
+  }
+
+  public double getBudgetAmps() {
+    return budgetMicroamps / 1e6;
+  }
+
+  /**
+   * Returns how much the last frame would have drawn without the limiter in amps.
+   */
+  public double getEstimatedAmps() {
+    return (idleMicroamps + channelMicroamps) / 1e6;
+  }
+
+  /**
+   * Returns how much the last frame draws after limiting in amps.
+   */
+  public double getLimitedAmps() {
+    return limitedMicroamps / 1e6;
+  }
+
+  /**
+   * Returns how much the last frame was dimmed by, from 0 (off) to 1 (not dimmed).
+   */
+  public double getScale() {
+    return scale / 256.0;
+  }
+
+  /**
+   * Returns whether the last frame was over budget and dimmed.
+   */
+  public boolean isLimiting() {
+    return scale < 256;
+  }
+}
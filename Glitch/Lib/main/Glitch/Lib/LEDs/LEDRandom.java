@@ -0,0 +1,119 @@
+package Glitch.Lib.LEDs;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small, fast and seedable random number generator for LED effects (SplitMix64).
+ *
+ * Math.random() goes through one synchronized generator shared by the whole program, which is slow to call for every
+ * LED and can't be replayed. Each stochastic pattern keeps its own LEDRandom instead, so there's no contention, and
+ * passing the same seed gives the same frames every time, which makes golden-frame tests possible.
+ *
+ * An LEDRandom is not thread-safe. Give every pattern its own, and don't share a seeded pattern between sections
+ * that render in parallel.
+ */
+public final class LEDRandom {
+  private static final long kGoldenGamma = 0x9E3779B97F4A7C15L;
+  private static final AtomicLong seeds = new AtomicLong(mix(System.nanoTime()));
+
+  private long state;
+  private float[] floats = new float[0];
+
+  /**
+   * Creates a generator with a seed that's different every time.
+   */
+  public LEDRandom() {
+    this(newSeed());
+  }
+
+  /**
+   * Creates a generator that always produces the same numbers for the same seed.
+   * @param seed The seed
+   */
+  public LEDRandom(long seed) {
+    this.state = seed;
+  }
+
+  /**
+   * Returns a fresh seed for patterns that weren't given one.
+   */
+  public static long newSeed() {
+    return mix(seeds.addAndGet(kGoldenGamma));
+  }
+
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  public long nextLong() {
+    return mix(state += kGoldenGamma);
+  }
+
+  public int nextInt() {
+    return (int) (nextLong() >>> 32);
+  }
+
+  /**
+   * Returns a random int from 0 (inclusive) to bound (exclusive).
+   * @param bound The upper bound, must be positive
+   */
+  public int nextInt(int bound) {
+    return (int) (((nextLong() >>> 32) * bound) >>> 32);
+  }
+
+  /**
+   * Returns a random double from 0 (inclusive) to 1 (exclusive), like Math.random().
+   */
+  public double nextDouble() {
+    return (nextLong() >>> 11) * 0x1.0p-53;
+  }
+
+  /**
+   * Returns a random float from 0 (inclusive) to 1 (exclusive).
+   */
+  public float nextFloat() {
+    return (nextLong() >>> 40) * 0x1.0p-24f;
+  }
+
+  /**
+   * Fills an array with random floats from 0 (inclusive) to 1 (exclusive). Two floats are cut from every
+   * 64 random bits, so this is about twice as fast as calling nextFloat() in a loop.
+   * @param values The array to fill
+   */
+  public void nextFloats(float[] values) {
+    nextFloats(values, values.length);
+  }
+
+  /**
+   * Fills the start of an array with random floats from 0 (inclusive) to 1 (exclusive).
+   * @param values The array to fill
+   * @param length How many values to fill
+   */
+  public void nextFloats(float[] values, int length) {
+    int i = 0;
+    for (; i + 1 < length; i += 2) {
+      long bits = nextLong();
+      values[i] = (bits >>> 40) * 0x1.0p-24f;
+      values[i + 1] = ((bits >>> 8) & 0xFFFFFF) * 0x1.0p-24f;
+    }
+    if (i < length) {
+      values[i] = nextFloat();
+    }
+  }
+
+  /**
+   * Fills and returns a float array owned by this generator, for patterns that want one random value per LED.
+   * The array is reused by the next call, and may be longer than asked for.
+   * @param length How many values to fill
+   * @return The filled array
+   */
+  public float[] nextFloats(int length) {
+    if (floats.length < length) {
+      floats = new float[length];
+    }
+    nextFloats(floats, length);
+    return floats;
+  }
+}
@@ -0,0 +1,118 @@
+package Glitch.Lib.LEDs;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Renders LED frames on a low priority background thread so expensive patterns don't eat into the main loop.
+ *
+ * Sections render into a work buffer that only this thread touches. Finished frames are copied into one of three
+ * snapshot buffers and handed to the main thread with a single atomic exchange (a triple buffer), so neither side
+ * ever waits on the other and the main thread always gets the newest complete frame.
+ */
+final class LEDRenderThread {
+  private static final int kIndexMask = 0b11;
+  private static final int kFreshBit = 0b100;
+
+  private final Thread thread;
+  private final BooleanSupplier renderFrame;
+  private final AddressableLEDBuffer workBuffer;
+  private final AddressableLEDBuffer[] snapshots;
+
+  // Index of the snapshot in the middle of the exchange, plus kFreshBit if the main thread hasn't taken it yet
+  private final AtomicInteger exchange = new AtomicInteger(2);
+  private final AtomicBoolean frameRequested = new AtomicBoolean(false);
+  private volatile boolean running = true;
+
+  // Only touched by the render thread
+  private int backIndex = 0;
+  // Only touched by the main thread
+  private int frontIndex = 1;
+
+  /**
+   * @param workBuffer The buffer the sections render into. Only the render thread may touch it once started.
+   * @param renderFrame Renders every section into the work buffer, returning whether anything changed.
+   */
+  LEDRenderThread(AddressableLEDBuffer workBuffer, BooleanSupplier renderFrame) {
+    this.workBuffer = workBuffer;
+    this.renderFrame = renderFrame;
+
+    int length = workBuffer.getLength();
+    snapshots = new AddressableLEDBuffer[] {
+      new AddressableLEDBuffer(length), new AddressableLEDBuffer(length), new AddressableLEDBuffer(length)
+    };
+
+    thread = new Thread(this::run, "LED Render Thread");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+  }
+
+  void start() {
+    thread.start();
+  }
+
+  /**
+   * Stops the thread and waits for the frame it's rendering to finish.
+   */
+  void stop() {
+    running = false;
+    LockSupport.unpark(thread);
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Asks the thread to render a new frame. Requests made while a frame is still rendering are merged into one.
+   */
+  void requestFrame() {
+    frameRequested.set(true);
+    LockSupport.unpark(thread);
+  }
+
+  /**
+   * Copies the newest finished frame into a buffer, if there is one the main thread hasn't seen yet.
+   * @param into The buffer to copy the frame into
+   * @return Whether a new frame was copied
+   */
+  boolean takeFrame(AddressableLEDBuffer into) {
+    if ((exchange.get() & kFreshBit) == 0) {
+      return false;
+    }
+    frontIndex = exchange.getAndSet(frontIndex) & kIndexMask;
+    copy(snapshots[frontIndex], into);
+    return true;
+  }
+
+  private void run() {
+    while (running) {
+      if (!frameRequested.getAndSet(false)) {
+        LockSupport.park(this);
+        continue;
+      }
+
+      try {
+        if (renderFrame.getAsBoolean()) {
+          copy(workBuffer, snapshots[backIndex]);
+          backIndex = exchange.getAndSet(backIndex | kFreshBit) & kIndexMask;
+        }
+      } catch (RuntimeException e) {
+        DriverStation.reportError("Error rendering LEDs: " + e, e.getStackTrace());
+      }
+    }
+  }
+
+  static void copy(AddressableLEDBuffer from, AddressableLEDBuffer to) {
+    int length = Math.min(from.getLength(), to.getLength());
+    for (int i = 0; i < length; i++) {
+      to.setRGB(i, from.getRed(i), from.getGreen(i), from.getBlue(i));
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package Glitch.Lib.LEDs;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+
+/**
+ * A per-pattern cache of temporary AddressableLEDBuffers, keyed by length.
+ * Overlay patterns need a buffer the size of whatever section they're applied to every frame, so each pattern
+ * keeps one of these and asks it for a buffer instead of allocating a new one. Buffers are confined to the
+ * thread that asked for them, and a new one is only created the first time a length is seen on a thread.
+ */
+public final class LEDScratchBuffers {
+  private static final AtomicLong buffersCreated = new AtomicLong();
+
+  private final ThreadLocal<Slots> slots = ThreadLocal.withInitial(Slots::new);
+
+  /**
+   * Returns a cleared (all off) buffer of exactly the given length.
+   * The buffer is only valid until the next call on this cache from the same thread.
+   * @param length The number of LEDs the buffer needs
+   * @return The scratch buffer
+   */
+  public AddressableLEDBuffer get(int length) {
+    AddressableLEDBuffer buffer = slots.get().get(length);
+    for (int i = 0; i < length; i++) {
+      buffer.setRGB(i, 0, 0, 0);
+    }
+    return buffer;
+  }
+
+  /**
+   * Returns how many scratch buffers have been created by every cache since the program started.
+   * Once every section has rendered once on each thread this should stop going up.
+   */
+  public static long getBuffersCreated() {
+    return buffersCreated.get();
+  }
+
+  private static final class Slots {
+    private int[] lengths = new int[2];
+    private AddressableLEDBuffer[] buffers = new AddressableLEDBuffer[2];
+    private int count = 0;
+
+    private AddressableLEDBuffer get(int length) {
+      for (int i = 0; i < count; i++) {
+        if (lengths[i] == length) {
+          return buffers[i];
+        }
+      }
+
+      if (count == lengths.length) {
+        lengths = Arrays.copyOf(lengths, count * 2);
+        buffers = Arrays.copyOf(buffers, count * 2);
+      }
+      lengths[count] = length;
+      buffers[count] = new AddressableLEDBuffer(length);
+      buffersCreated.incrementAndGet();
+      return buffers[count++];
+    }
+  }
+}
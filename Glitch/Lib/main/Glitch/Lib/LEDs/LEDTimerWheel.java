@@ -0,0 +1,184 @@
+package Glitch.Lib.LEDs;
+
+/**
+ * A hierarchical timer wheel for timed LED requests.
+ *
+ * Time is cut into ticks. The first level has a slot for each of the next 64 ticks, and every level above it has 64
+ * slots that each cover 64 times as many ticks as a slot on the level below. A timer goes straight into the slot its
+ * deadline falls in, so scheduling and cancelling are O(1) no matter how many timers are waiting. When the first level
+ * wraps around, the next slot of the level above is emptied back down into it, so every timer is touched at most once
+ * per level on its way to expiring.
+ *
+ * Timers are intrusive: subclass {@link Timer} and the wheel links the objects themselves, so scheduling doesn't
+ * allocate. A wheel isn't thread-safe, schedule, cancel and advance it from one thread.
+ */
+public final class LEDTimerWheel {
+  private static final int kSlotBits = 6;
+  private static final int kSlots = 1 << kSlotBits;
+  private static final int kSlotMask = kSlots - 1;
+  private static final int kLevels = 4;
+
+  /**
+   * Something that happens at a deadline. A timer can only be scheduled on one wheel at a time.
+   */
+  public abstract static class Timer {
+    private Timer previous;
+    private Timer next;
+    private long expireTick;
+    // Index into the wheel's slots, or -1 while the timer isn't scheduled
+    private int slot = -1;
+
+    /**
+     * Called by {@link LEDTimerWheel#advance(long)} once the deadline has passed. The timer is already unscheduled,
+     * so it can be scheduled again from here.
+     */
+    protected abstract void expired();
+
+    /**
+     * Returns whether the timer is waiting to expire.
+     */
+    public boolean isScheduled() {
+      return slot >= 0;
+    }
+  }
+
+  private final long tickMicros;
+  private final Timer[] slots = new Timer[kLevels * kSlots];
+  private long currentTick = Long.MIN_VALUE;
+  private int size = 0;
+
+  /**
+   * Creates a wheel with 10 ms ticks, which is finer than the LED loop.
+   */
+  public LEDTimerWheel() {
+    this(10_000);
+  }
+
+  /**
+   * Creates a wheel.
+   * @param tickMicros How long a tick is in microseconds. Timers expire up to one tick after their deadline.
+   */
+  public LEDTimerWheel(long tickMicros) {
+    if (tickMicros <= 0) {
+      throw new IllegalArgumentException("A timer wheel needs a positive tick.");
+    }
+    this.tickMicros = tickMicros;
+  }
+
+  /**
+   * Schedules a timer, moving it if it was already scheduled.
+   * @param timer The timer to schedule
+   * @param nowMicros The current time in microseconds
+   * @param deadlineMicros When the timer should expire in microseconds
+   */
+  public void schedule(Timer timer, long nowMicros, long deadlineMicros) {
+    if (timer.isScheduled()) {
+      cancel(timer);
+    }
+    if (size == 0) {
+      // Nothing is waiting, so skip straight to now instead of stepping through empty ticks later
+      currentTick = Math.max(currentTick, Math.floorDiv(nowMicros, tickMicros));
+    }
+    // Round up so a timer never expires before its deadline, and anything already due goes off on the next tick
+    timer.expireTick = Math.max(currentTick + 1, -Math.floorDiv(-deadlineMicros, tickMicros));
+    insert(timer);
+    size++;
+  }
+
+  /**
+   * Cancels a timer.
+   * @param timer The timer to cancel
+   * @return Whether the timer was scheduled
+   */
+  public boolean cancel(Timer timer) {
+    if (!timer.isScheduled()) {
+      return false;
+    }
+    unlink(timer);
+    size--;
+    return true;
+  }
+
+  /**
+   * Moves time forward, calling {@link Timer#expired()} on every timer whose deadline has passed.
+   * @param nowMicros The current time in microseconds
+   */
+  public void advance(long nowMicros) {
+    long targetTick = Math.floorDiv(nowMicros, tickMicros);
+    if (size == 0 || currentTick == Long.MIN_VALUE) {
+      currentTick = Math.max(currentTick, targetTick);
+      return;
+    }
+
+    while (currentTick < targetTick && size > 0) {
+      currentTick++;
+      int level = 0;
+      // Whenever a level wraps around, empty the next slot of the level above it down into the wheel
+      while (level < kLevels - 1 && ((currentTick >>> (kSlotBits * level)) & kSlotMask) == 0) {
+        level++;
+        cascade(level * kSlots + (int) ((currentTick >>> (kSlotBits * level)) & kSlotMask));
+      }
+
+      int slot = (int) (currentTick & kSlotMask);
+      Timer timer;
+      while ((timer = slots[slot]) != null) {
+        unlink(timer);
+        size--;
+        timer.expired();
+      }
+    }
+    currentTick = Math.max(currentTick, targetTick);
+  }
+
+  /**
+   * Returns how many timers are waiting to expire.
+   */
+  public int size() {
+    return size;
+  }
+
+  private void cascade(int slot) {
+    Timer timer = slots[slot];
+    slots[slot] = null;
+    while (timer != null) {
+      Timer next = timer.next;
+      insert(timer);
+      timer = next;
+    }
+  }
+
+  private void insert(Timer timer) {
+    long delta = timer.expireTick - currentTick;
+    int level = 0;
+    while (level < kLevels - 1 && delta >= (1L << (kSlotBits * (level + 1)))) {
+      level++;
+    }
+    // Deadlines past the top level wait in its furthest slot and are placed again when it cascades
+    long tick = level == kLevels - 1 && delta >= (1L << (kSlotBits * kLevels))
+        ? currentTick + (1L << (kSlotBits * kLevels)) - 1
+        : timer.expireTick;
+    int slot = level * kSlots + (int) ((tick >>> (kSlotBits * level)) & kSlotMask);
+
+    timer.slot = slot;
+    timer.previous = null;
+    timer.next = slots[slot];
+    if (timer.next != null) {
+      timer.next.previous = timer;
+    }
+    slots[slot] = timer;
+  }
+
+  private void unlink(Timer timer) {
+    if (timer.previous != null) {
+      timer.previous.next = timer.next;
+    } else {
+      slots[timer.slot] = timer.next;
+    }
+    if (timer.next != null) {
+      timer.next.previous = timer.previous;
+    }
+    timer.previous = null;
+    timer.next = null;
+    timer.slot = -1;
+  }
+}
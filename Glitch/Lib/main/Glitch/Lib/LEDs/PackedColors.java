@@ -0,0 +1,82 @@
+package Glitch.Lib.LEDs;
+
+import edu.wpi.first.wpilibj.LEDReader;
+import edu.wpi.first.wpilibj.LEDWriter;
+import edu.wpi.first.wpilibj.util.Color;
+
+/**
+ * Helpers for colors packed into a single int as 0xRRGGBB.
+ * Packed colors let us keep whole frames in primitive arrays instead of allocating a Color for every LED.
+ */
+public final class PackedColors {
+  public static final int kBlack = 0x000000;
+  public static final int kWhite = 0xFFFFFF;
+
+  private PackedColors() {}
+
+  /**
+   * Packs 8-bit channels into a single int. Channels are masked to 8 bits.
+   * @param red The red channel (0-255)
+   * @param green The green channel (0-255)
+   * @param blue The blue channel (0-255)
+   * @return The packed color
+   */
+  public static int pack(int red, int green, int blue) {
+    return ((red & 0xFF) << 16) | ((green & 0xFF) << 8) | (blue & 0xFF);
+  }
+
+  /**
+   * Packs a WPILib color the same way LEDWriter.setLED converts it to 8-bit channels.
+   * @param color The color to pack
+   * @return The packed color
+   */
+  public static int pack(Color color) {
+    return pack((int) (color.red * 255), (int) (color.green * 255), (int) (color.blue * 255));
+  }
+
+  public static int red(int packed) {
+    return (packed >> 16) & 0xFF;
+  }
+
+  public static int green(int packed) {
+    return (packed >> 8) & 0xFF;
+  }
+
+  public static int blue(int packed) {
+    return packed & 0xFF;
+  }
+
+  /**
+   * Unpacks a color into a WPILib Color. This allocates, so keep it out of per-frame loops.
+   * @param packed The packed color
+   * @return The matching Color
+   */
+  public static Color toColor(int packed) {
+    return new Color(red(packed), green(packed), blue(packed));
+  }
+
+  /**
+   * Reads the first {@code length} LEDs of a reader into packed colors.
+   * @param reader The LEDs to read
+   * @param pixels The array to read into
+   * @param length The number of LEDs to read
+   */
+  public static void read(LEDReader reader, int[] pixels, int length) {
+    for (int i = 0; i < length; i++) {
+      pixels[i] = pack(reader.getRed(i), reader.getGreen(i), reader.getBlue(i));
+    }
+  }
+
+  /**
+   * Writes the first {@code length} packed colors to a writer.
+   * @param pixels The packed colors to write
+   * @param length The number of LEDs to write
+   * @param writer The LEDs to write to
+   */
+  public static void write(int[] pixels, int length, LEDWriter writer) {
+    for (int i = 0; i < length; i++) {
+      int rgb = pixels[i];
+      writer.setRGB(i, red(rgb), green(rgb), blue(rgb));
+    }
+  }
+}
@@ -0,0 +1,71 @@
+package Glitch.Lib.LEDs;
+
+import java.util.Arrays;
+
+import edu.wpi.first.wpilibj.LEDReader;
+import edu.wpi.first.wpilibj.LEDWriter;
+
+/**
+ * An LED buffer backed by a packed int[] (0xRRGGBB) instead of native memory.
+ * Lets any LEDPattern render straight into a primitive array that other code can then work on directly.
+ */
+public final class PackedLEDBuffer implements LEDReader, LEDWriter {
+  private int[] pixels;
+  private int length;
+
+  /**
+   * Creates a buffer with every LED off.
+   * @param length The number of LEDs
+   */
+  public PackedLEDBuffer(int length) {
+    this.pixels = new int[length];
+    this.length = length;
+  }
+
+  /**
+   * Changes the number of LEDs. LEDs that were already there keep their colors, new ones start off.
+   * The backing array only grows, so shrinking and growing back doesn't allocate.
+   * @param length The new number of LEDs
+   */
+  public void setLength(int length) {
+    if (length > pixels.length) {
+      pixels = Arrays.copyOf(pixels, length);
+    } else if (length > this.length) {
+      Arrays.fill(pixels, this.length, length, PackedColors.kBlack);
+    }
+    this.length = length;
+  }
+
+  /**
+   * Returns the backing array. Only the first {@link #getLength()} entries are LEDs.
+   * The array is replaced if the buffer grows, so don't hold on to it across {@link #setLength(int)}.
+   */
+  public int[] getPixels() {
+    return pixels;
+  }
+
+  @Override
+  public int getLength() {
+    return length;
+  }
+
+  @Override
+  public int getRed(int index) {
+    return PackedColors.red(pixels[index]);
+  }
+
+  @Override
+  public int getGreen(int index) {
+    return PackedColors.green(pixels[index]);
+  }
+
+  @Override
+  public int getBlue(int index) {
+    return PackedColors.blue(pixels[index]);
+  }
+
+  @Override
+  public void setRGB(int index, int r, int g, int b) {
+    pixels[index] = PackedColors.pack(r, g, b);
+  }
+}
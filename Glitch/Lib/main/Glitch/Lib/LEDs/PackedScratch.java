@@ -0,0 +1,55 @@
+package Glitch.Lib.LEDs;
+
+import java.util.Arrays;
+
+/**
+ * Reusable packed int[] buffers for patterns that need somewhere to work each frame.
+ * Buffers are confined to the thread that acquires them and are handed out like a stack,
+ * so a pattern can safely apply another pattern that also needs a scratch buffer.
+ * Every acquire must be paired with a release, ideally in a finally block.
+ * Once the buffers have grown to the longest section, acquiring one no longer allocates.
+ */
+public final class PackedScratch {
+  private static final ThreadLocal<PackedScratch> scratch = ThreadLocal.withInitial(PackedScratch::new);
+
+  private int[][] buffers = new int[4][];
+  private int depth = 0;
+
+  private PackedScratch() {}
+
+  /**
+   * Borrows a buffer with room for at least {@code length} packed colors. Its contents are undefined.
+   * @param length The number of LEDs the buffer needs to hold
+   * @return A buffer that stays yours until {@link #release()} is called on this thread
+   */
+  public static int[] acquire(int length) {
+    return scratch.get().push(length);
+  }
+
+  /**
+   * Returns the most recently acquired buffer on this thread.
+   */
+  public static void release() {
+    scratch.get().pop();
+  }
+
+  private int[] push(int length) {
+    if (depth == buffers.length) {
+      buffers = Arrays.copyOf(buffers, buffers.length * 2);
+    }
+    int[] buffer = buffers[depth];
+    if (buffer == null || buffer.length < length) {
+      buffer = new int[length];
+      buffers[depth] = buffer;
+    }
+    depth++;
+    return buffer;
+  }
+
+  private void pop() {
+    if (depth == 0) {
+      throw new IllegalStateException("PackedScratch.release() was called more times than acquire().");
+    }
+    depth--;
+  }
+}
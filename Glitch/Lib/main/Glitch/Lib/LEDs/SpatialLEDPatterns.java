@@ -0,0 +1,137 @@
+package Glitch.Lib.LEDs;
+
+import Glitch.Lib.LEDs.Interfaces.TimeInvariantPattern;
+import edu.wpi.first.wpilibj.LEDPattern;
+import edu.wpi.first.wpilibj.util.Color;
+
+/**
+ * Patterns that are drawn from where the LEDs physically are instead of where they are on the strip, so a wave can
+ * sweep across the whole robot even though the strip zigzags up and down its uprights.
+ *
+ * Anything that doesn't change over time (how far each LED is along a direction or from a point) is worked out once
+ * from the {@link LEDLayout} when the pattern is created, so rendering is one pass over a float array. The layout has
+ * to line up with what the pattern is applied to, so slice it with
+ * {@link AbstractLEDS.Section#sliceLayout(LEDLayout)} for a section. LEDs past the end of the layout are left alone.
+ */
+public final class SpatialLEDPatterns {
+  private SpatialLEDPatterns() {}
+
+  /**
+   * Returns the time of the current LED frame in seconds.
+   */
+  private static double frameSeconds() {
+    return LEDFrameClock.current().getTime() / 1e6;
+  }
+
+  /**
+   * A wave of brightness that travels along a direction, like a flat sheet of light passing through the robot.
+   * @param layout Where the LEDs are
+   * @param directionX The x part of the direction the wave travels in, which doesn't need to be normalized
+   * @param directionY The y part of the direction
+   * @param directionZ The z part of the direction
+   * @param wavelength The distance between two bright bands, in the layout's units
+   * @param speed How fast the bands move, in the layout's units per second
+   * @param color The color of the bright bands
+   * @return The pattern
+   */
+  public static LEDPattern planarWave(LEDLayout layout, double directionX, double directionY, double directionZ,
+      double wavelength, double speed, Color color) {
+    float[] along = layout.project(directionX, directionY, directionZ);
+    int packed = PackedColors.pack(color);
+    int red = PackedColors.red(packed);
+    int green = PackedColors.green(packed);
+    int blue = PackedColors.blue(packed);
+    double radiansPerUnit = 2 * Math.PI / wavelength;
+    double radiansPerSecond = radiansPerUnit * speed;
+
+    return (reader, writer) -> {
+      // Keep the phase small so the table sine stays accurate however long the robot has been on
+      double phase = (radiansPerSecond * frameSeconds()) % (2 * Math.PI);
+      int length = Math.min(reader.getLength(), along.length);
+      for (int i = 0; i < length; i++) {
+        int scale = (int) (128 + 128 * LEDMath.sin(radiansPerUnit * along[i] - phase));
+        writer.setRGB(i, red * scale >> 8, green * scale >> 8, blue * scale >> 8);
+      }
+    };
+  }
+
+  /**
+   * A ring of light that grows out of a point and starts again every period.
+   * @param layout Where the LEDs are
+   * @param centerX The x coordinate the pulse starts from
+   * @param centerY The y coordinate the pulse starts from
+   * @param centerZ The z coordinate the pulse starts from
+   * @param speed How fast the ring grows, in the layout's units per second
+   * @param width How far from the ring the light fades out, in the layout's units
+   * @param periodSeconds How often a new ring starts in seconds
+   * @param color The color of the ring
+   * @return The pattern
+   */
+  public static LEDPattern radialPulse(LEDLayout layout, double centerX, double centerY, double centerZ,
+      double speed, double width, double periodSeconds, Color color) {
+    if (width <= 0 || periodSeconds <= 0) {
+      throw new IllegalArgumentException("A pulse needs a positive width and period.");
+    }
+    float[] distances = layout.distances(centerX, centerY, centerZ);
+    int packed = PackedColors.pack(color);
+    int red = PackedColors.red(packed);
+    int green = PackedColors.green(packed);
+    int blue = PackedColors.blue(packed);
+    float scalePerUnit = (float) (256 / width);
+
+    return (reader, writer) -> {
+      float radius = (float) (speed * (frameSeconds() % periodSeconds));
+      int length = Math.min(reader.getLength(), distances.length);
+      for (int i = 0; i < length; i++) {
+        int scale = 256 - (int) (Math.abs(distances[i] - radius) * scalePerUnit);
+        if (scale <= 0) {
+          writer.setRGB(i, 0, 0, 0);
+        } else {
+          writer.setRGB(i, red * scale >> 8, green * scale >> 8, blue * scale >> 8);
+        }
+      }
+    };
+  }
+
+  /**
+   * A gradient between two colors along a direction, from the LED furthest back along it to the one furthest forward.
+   * @param layout Where the LEDs are
+   * @param directionX The x part of the direction the gradient runs in, which doesn't need to be normalized
+   * @param directionY The y part of the direction
+   * @param directionZ The z part of the direction
+   * @param start The color of the LEDs furthest back
+   * @param end The color of the LEDs furthest forward
+   * @return The pattern
+   */
+  public static TimeInvariantPattern axisGradient(LEDLayout layout, double directionX, double directionY, double directionZ,
+      Color start, Color end) {
+    float[] along = layout.project(directionX, directionY, directionZ);
+    float min = Float.POSITIVE_INFINITY;
+    float max = Float.NEGATIVE_INFINITY;
+    for (float position : along) {
+      min = Math.min(min, position);
+      max = Math.max(max, position);
+    }
+    // How far each LED is between the ends, out of 256
+    int[] weights = new int[along.length];
+    for (int i = 0; i < along.length; i++) {
+      weights[i] = max > min ? Math.round((along[i] - min) * 256 / (max - min)) : 0;
+    }
+    int from = PackedColors.pack(start);
+    int to = PackedColors.pack(end);
+    int red = PackedColors.red(from);
+    int green = PackedColors.green(from);
+    int blue = PackedColors.blue(from);
+    int redSpan = PackedColors.red(to) - red;
+    int greenSpan = PackedColors.green(to) - green;
+    int blueSpan = PackedColors.blue(to) - blue;
+
+    return (reader, writer) -> {
+      int length = Math.min(reader.getLength(), weights.length);
+      for (int i = 0; i < length; i++) {
+        int weight = weights[i];
+        writer.setRGB(i, red + (redSpan * weight >> 8), green + (greenSpan * weight >> 8), blue + (blueSpan * weight >> 8));
+      }
+    };
+  }
+}
@@ -0,0 +1,328 @@
+package Glitch.Lib.LEDs;
+
+import Glitch.Lib.LEDs.Interfaces.RefreshRatePattern;
+import edu.wpi.first.wpilibj.LEDPattern;
+import edu.wpi.first.wpilibj.util.Color;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AbstractLEDSTest {
+  private static final class TestLEDS extends AbstractLEDS {
+    final Section first;
+    final Section second;
+
+    TestLEDS(LEDFrameClock clock) {
+      super(clock, 20, 10, -10);
+      first = getSections().get(0);
+      second = getSections().get(1);
+    }
+  }
+
+  private long fakeTime;
+  private TestLEDS leds;
+
+  @BeforeEach
+  void setUp() {
+    fakeTime = 1_000_000;
+    leds = new TestLEDS(new LEDFrameClock(() -> fakeTime));
+  }
+
+  @Test
+  void timeInvariantPatternsOnlyRenderWhenChanged() {
+    leds.first.setPattern(GlitchLEDPatterns.solid(Color.kRed));
+    leds.second.setPattern(GlitchLEDPatterns.green);
+
+    for (int i = 0; i < 5; i++) {
+      leds.periodic();
+    }
+
+    assertEquals(1, leds.first.getRendersPerformed());
+    assertEquals(4, leds.first.getRendersSkipped());
+    assertEquals(255, leds.stripBuffer.getRed(0));
+
+    leds.first.setPattern(GlitchLEDPatterns.solid(Color.kBlue));
+    leds.periodic();
+
+    assertEquals(2, leds.first.getRendersPerformed());
+    assertEquals(255, leds.stripBuffer.getBlue(0));
+  }
+
+  @Test
+  void timeVaryingPatternsOnlyRenderForPushes() {
+    leds.first.setPattern(GlitchLEDPatterns.blue);
+    leds.second.setPattern(LEDPattern.kOff);
+
+    // 40 ms loops, so every fifth loop is 0.2 s after the last push
+    for (int i = 0; i < 10; i++) {
+      leds.periodic();
+      fakeTime += 40_000;
+    }
+
+    assertEquals(2, leds.first.getRendersPerformed());
+    assertEquals(8, leds.first.getRendersDeferred());
+    assertEquals(0, leds.first.getRendersSkipped());
+    assertEquals(1, leds.second.getRendersPerformed());
+    assertEquals(3, leds.getRendersPerformed());
+    assertEquals(9, leds.getRendersSkipped());
+  }
+
+  @Test
+  void refreshRatePatternsRenderWhenDue() {
+    int[] renders = {0};
+    LEDPattern counter = (reader, writer) -> renders[0]++;
+    leds.first.setPattern(RefreshRatePattern.of(counter, 0.06));
+    leds.second.setPattern(RefreshRatePattern.everyFrame(counter));
+
+    for (int i = 0; i < 10; i++) {
+      leds.periodic();
+      fakeTime += 20_000;
+    }
+
+    // The first section renders every third loop, the second every loop
+    assertEquals(4, leds.first.getRendersPerformed());
+    assertEquals(6, leds.first.getRendersDeferred());
+    assertEquals(10, leds.second.getRendersPerformed());
+    assertEquals(14, renders[0]);
+  }
+
+  @Test
+  void higherPriorityPatternsShowUntilTheyArePopped() {
+    LEDPattern base = GlitchLEDPatterns.solid(Color.kWhite);
+    LEDPattern normal = GlitchLEDPatterns.solid(Color.kRed);
+    LEDPattern alert = GlitchLEDPatterns.solid(Color.kBlue);
+    LEDPattern flash = GlitchLEDPatterns.solid(Color.kYellow);
+    leds.first.setBase(base);
+    leds.first.setPattern(normal);
+
+    AbstractLEDS.Section.PatternRequest alertRequest = leds.first.push(alert, 5);
+    leds.first.push(flash, 10, 0.5);
+    // Replacing the default pattern doesn't knock the pushed ones off
+    leds.first.setPattern(normal, 1.0);
+    leds.periodic();
+    assertSame(flash, leds.first.getCurrentPattern());
+
+    fakeTime += 500_000;
+    leds.periodic();
+    assertSame(alert, leds.first.getCurrentPattern());
+
+    assertTrue(alertRequest.pop());
+    assertSame(normal, leds.first.getCurrentPattern());
+
+    fakeTime += 500_000;
+    leds.periodic();
+    assertSame(base, leds.first.getCurrentPattern());
+    assertEquals(255, leds.stripBuffer.getBlue(0));
+  }
+
+  @Test
+  void ledCommandsPopTheirPatternWhenTheyEnd() {
+    LEDPattern normal = GlitchLEDPatterns.solid(Color.kRed);
+    LEDPattern commanded = GlitchLEDPatterns.solid(Color.kBlue);
+    leds.first.setPattern(normal);
+
+    LEDCommand command = new LEDCommand(leds.first, commanded);
+    command.initialize();
+    assertSame(commanded, leds.first.getCurrentPattern());
+    command.end(true);
+    assertSame(normal, leds.first.getCurrentPattern());
+  }
+
+  @Test
+  void setPatternDoesntCoverARunningCommand() {
+    LEDPattern commanded = GlitchLEDPatterns.solid(Color.kBlue);
+    LEDCommand command = new LEDCommand(leds.first, commanded);
+    command.initialize();
+
+    LEDPattern later = GlitchLEDPatterns.solid(Color.kRed);
+    leds.first.setPattern(later);
+    assertSame(commanded, leds.first.getCurrentPattern());
+    command.end(false);
+    assertSame(later, leds.first.getCurrentPattern());
+  }
+
+  @Test
+  void backgroundModeRendersOffTheMainThread() throws InterruptedException {
+    leds.setRenderMode(AbstractLEDS.RenderMode.BACKGROUND);
+    try {
+      leds.first.setPattern(GlitchLEDPatterns.solid(Color.kRed));
+      leds.second.setPattern(GlitchLEDPatterns.solid(Color.kBlue));
+      assertEquals(0, leds.getRendersPerformed());
+
+      // Frames show up a loop or more late, so keep looping until the render thread catches up
+      long deadline = System.nanoTime() + 2_000_000_000L;
+      while ((leds.stripBuffer.getRed(0) != 255 || leds.stripBuffer.getBlue(19) != 255) && System.nanoTime() < deadline) {
+        leds.periodic();
+        Thread.sleep(1);
+      }
+
+      assertEquals(255, leds.stripBuffer.getRed(0));
+      assertEquals(255, leds.stripBuffer.getBlue(19));
+      assertTrue(leds.first.getRendersPerformed() >= 1);
+    } finally {
+      leds.setRenderMode(AbstractLEDS.RenderMode.SYNCHRONOUS);
+    }
+    assertEquals(AbstractLEDS.RenderMode.SYNCHRONOUS, leds.getRenderMode());
+  }
+
+  @Test
+  void parallelRenderingMatchesSerialRendering() {
+    TestLEDS serial = new TestLEDS(new LEDFrameClock(() -> fakeTime));
+    TestLEDS parallel = new TestLEDS(new LEDFrameClock(() -> fakeTime));
+    parallel.setParallelRendering(true, 0.0);
+
+    for (TestLEDS strip : new TestLEDS[] {serial, parallel}) {
+      strip.first.setPattern(LEDPattern.gradient(LEDPattern.GradientType.kDiscontinuous, Color.kRed, Color.kBlue));
+      strip.second.setPattern(LEDPattern.steps(Map.of(0.0, Color.kGreen, 0.5, Color.kWhite)));
+    }
+
+    // With no threshold even the first frame, which has no timings yet, renders in parallel
+    serial.periodic();
+    parallel.periodic();
+    assertTrue(parallel.wasLastFrameParallel());
+    assertFalse(serial.wasLastFrameParallel());
+
+    // Step a push interval every loop so every loop renders
+    for (int i = 0; i < 3; i++) {
+      fakeTime += 200_000;
+      serial.periodic();
+      parallel.periodic();
+    }
+
+    assertTrue(parallel.wasLastFrameParallel());
+    for (int i = 0; i < 20; i++) {
+      assertEquals(serial.stripBuffer.getLED(i), parallel.stripBuffer.getLED(i));
+    }
+    assertTrue(parallel.first.getLastRenderNanos() > 0);
+    assertTrue(parallel.first.getTotalRenderNanos() >= parallel.first.getLastRenderNanos());
+    parallel.setParallelRendering(false);
+  }
+
+  @Test
+  void onlyExpensivePushFramesRenderInParallel() {
+    TestLEDS leds = new TestLEDS(new LEDFrameClock(() -> fakeTime));
+    leds.setParallelRendering(true, 0.001);
+
+    // Each section takes 2 ms, so the two together are well over the 1 ms threshold
+    int[] renders = {0};
+    LEDPattern slow = (reader, writer) -> {
+      synchronized (renders) {
+        renders[0]++;
+      }
+      long end = System.nanoTime() + 2_000_000;
+      while (System.nanoTime() < end) {
+        Thread.onSpinWait();
+      }
+      for (int i = 0; i < reader.getLength(); i++) {
+        writer.setLED(i, Color.kOrange);
+      }
+    };
+    leds.first.setPattern(slow);
+    leds.second.setPattern(slow);
+
+    // The first frame has no timings yet, so it stays on one thread
+    leds.periodic();
+    assertFalse(leds.wasLastFrameParallel());
+    assertEquals(2, renders[0]);
+
+    // Loops between pushes defer both sections, so even though they are slow nothing goes parallel
+    for (int i = 0; i < 9; i++) {
+      fakeTime += 20_000;
+      leds.periodic();
+      assertFalse(leds.wasLastFrameParallel(), "Loop " + i);
+    }
+    assertEquals(2, renders[0]);
+
+    // The push frame renders both again, and their last real cost puts it over the threshold
+    fakeTime += 20_000;
+    leds.periodic();
+    assertTrue(leds.wasLastFrameParallel());
+    assertEquals(4, renders[0]);
+    for (int i = 0; i < 20; i++) {
+      assertEquals(Color.kOrange, leds.stripBuffer.getLED(i));
+    }
+    leds.setParallelRendering(false);
+  }
+
+  @Test
+  void stripsSharingAClockTickItOncePerLoop() {
+    LEDFrameClock clock = new LEDFrameClock(() -> fakeTime);
+    TestLEDS front = new TestLEDS(clock);
+    TestLEDS back = new TestLEDS(clock);
+    back.first.setPattern(GlitchLEDPatterns.solid(Color.kRed), 0.1);
+
+    for (int i = 0; i < 10; i++) {
+      front.periodic();
+      back.periodic();
+      fakeTime += 20_000;
+    }
+
+    assertEquals(9, clock.getFrameCount());
+    assertEquals(0.02, clock.getMeanDeltaSeconds(), 1e-9);
+    assertEquals(0.02, clock.getMinDeltaSeconds(), 1e-9);
+    assertEquals(0.02, clock.getDeltaSeconds(), 1e-9, "The second strip sees the loop's delta too");
+    assertSame(LEDPattern.kOff, back.first.getCurrentPattern(), "Timed patterns expire on the second strip");
+  }
+
+  @Test
+  void anotherStripTakesOverTicksWhenTheTickerStops() {
+    LEDFrameClock clock = new LEDFrameClock(() -> fakeTime);
+    TestLEDS front = new TestLEDS(clock);
+    TestLEDS back = new TestLEDS(clock);
+
+    for (int i = 0; i < 5; i++) {
+      front.periodic();
+      back.periodic();
+      fakeTime += 20_000;
+    }
+    assertEquals(4, clock.getFrameCount());
+
+    // The front strip stops running, so the back strip finds the clock where it left it and takes over
+    for (int i = 0; i < 5; i++) {
+      back.periodic();
+      fakeTime += 20_000;
+    }
+    assertEquals(9, clock.getFrameCount(), "No loop goes without a tick");
+    assertEquals(0.02, clock.getDeltaSeconds(), 1e-9);
+
+    // Once the front strip comes back, the clock still only ticks once per loop
+    for (int i = 0; i < 5; i++) {
+      front.periodic();
+      back.periodic();
+      fakeTime += 20_000;
+    }
+    assertEquals(14, clock.getFrameCount());
+    assertEquals(0.02, clock.getMaxDeltaSeconds(), 1e-9);
+  }
+
+  @Test
+  void stripsWithoutAClockGetTheirOwn() {
+    LEDFrameClock previous = LEDFrameClock.getDefault();
+    LEDFrameClock.setDefault(new LEDFrameClock(() -> fakeTime));
+    try {
+      AbstractLEDS front = new AbstractLEDS(10, 10) {};
+      AbstractLEDS back = new AbstractLEDS(10, 10) {};
+      assertTrue(front.getClock() != back.getClock());
+      assertTrue(front.getClock() != LEDFrameClock.getDefault());
+
+      // Patterns read the clock of the strip they're rendering on
+      LEDFrameClock[] seen = new LEDFrameClock[1];
+      back.getSections().get(0).setPattern((reader, writer) -> seen[0] = LEDFrameClock.current());
+      for (int i = 0; i < 3; i++) {
+        front.periodic();
+        back.periodic();
+        fakeTime += 20_000;
+      }
+      assertSame(back.getClock(), seen[0]);
+      assertEquals(0.02, back.getClock().getDeltaSeconds(), 1e-9);
+      assertSame(LEDFrameClock.getDefault(), LEDFrameClock.current(), "Outside a render it's the default clock");
+    } finally {
+      LEDFrameClock.setDefault(previous);
+    }
+  }
+}
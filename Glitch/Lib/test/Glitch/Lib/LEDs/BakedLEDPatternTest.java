@@ -0,0 +1,85 @@
+package Glitch.Lib.LEDs;
+
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.LEDPattern;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static edu.wpi.first.units.Units.Second;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BakedLEDPatternTest {
+  private long fakeTime;
+  private int liveRenders;
+
+  // Lights one LED that walks down the strip once a second
+  private final LEDPattern chaser = (reader, writer) -> {
+    liveRenders++;
+    int lit = (int) ((fakeTime % 1_000_000) * reader.getLength() / 1_000_000);
+    for (int led = 0; led < reader.getLength(); led++) {
+      writer.setRGB(led, led == lit ? 255 : 0, led, 0);
+    }
+  };
+
+  @BeforeEach
+  void setUp() {
+    fakeTime = 0;
+    liveRenders = 0;
+  }
+
+  @Test
+  void onlyTheFirstPeriodIsRenderedLive() {
+    LEDKeyframeCache cache = new LEDKeyframeCache(1024 * 1024);
+    BakedLEDPattern baked = new BakedLEDPattern(chaser, Second.of(1), 50, () -> fakeTime, cache);
+    AddressableLEDBuffer live = new AddressableLEDBuffer(25);
+    AddressableLEDBuffer buffer = new AddressableLEDBuffer(25);
+
+    for (int frame = 0; frame < 150; frame++) {
+      baked.applyTo(buffer);
+      chaser.applyTo(live);
+      for (int led = 0; led < 25; led++) {
+        assertEquals(live.getLED(led), buffer.getLED(led), "LED " + led + " on frame " + frame);
+      }
+      fakeTime += 20_000;
+    }
+
+    // Half of the renders are the live reference
+    assertEquals(150 + baked.getFrameCount(), liveRenders);
+    assertEquals(50L * 25 * 3, cache.getBytesUsed());
+  }
+
+  @Test
+  void leastRecentlyPlayedRingsAreEvicted() {
+    // Room for one 10 LED ring at 10 frames, but not two
+    LEDKeyframeCache cache = new LEDKeyframeCache(10 * 10 * 3 + 100);
+    BakedLEDPattern first = new BakedLEDPattern(chaser, Second.of(1), 10, () -> fakeTime, cache);
+    BakedLEDPattern second = new BakedLEDPattern(chaser, Second.of(1), 10, () -> fakeTime, cache);
+    AddressableLEDBuffer buffer = new AddressableLEDBuffer(10);
+
+    first.applyTo(buffer);
+    assertEquals(0, cache.getEvictions());
+    second.applyTo(buffer);
+    assertEquals(1, cache.getEvictions());
+    assertTrue(cache.getBytesUsed() <= cache.getCapacityBytes());
+
+    // The first pattern lost its ring, so it has to bake the same slot again
+    int before = liveRenders;
+    first.applyTo(buffer);
+    assertEquals(before + 1, liveRenders);
+    assertEquals(2, cache.getEvictions());
+  }
+
+  @Test
+  void ringsTooBigForTheCacheRenderLive() {
+    LEDKeyframeCache cache = new LEDKeyframeCache(100);
+    BakedLEDPattern baked = new BakedLEDPattern(chaser, Second.of(1), 50, () -> fakeTime, cache);
+    AddressableLEDBuffer buffer = new AddressableLEDBuffer(60);
+
+    baked.applyTo(buffer);
+    baked.applyTo(buffer);
+
+    assertEquals(2, liveRenders);
+    assertEquals(0, cache.getBytesUsed());
+  }
+}
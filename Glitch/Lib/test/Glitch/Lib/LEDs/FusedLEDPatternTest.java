@@ -0,0 +1,146 @@
+package Glitch.Lib.LEDs;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.LEDPattern;
+import edu.wpi.first.wpilibj.LEDPattern.GradientType;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj.util.Color;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static edu.wpi.first.units.Units.Percent;
+import static edu.wpi.first.units.Units.Second;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FusedLEDPatternTest {
+  // WPILib gradients divide by zero on strips shorter than their color count, so stay above that
+  private static final int[] kLengths = {8, 60, 143};
+
+  // The WPILib decorators read the FPGA clock, so the fused patterns get an LED clock on the same paused time
+  private static LEDFrameClock clock;
+  private LEDFrameClock previous;
+
+  @BeforeEach
+  void setUp() {
+    HAL.initialize(500, 0);
+    SimHooks.pauseTiming();
+    previous = LEDFrameClock.getDefault();
+    clock = new LEDFrameClock(RobotController::getTime);
+    LEDFrameClock.setDefault(clock);
+  }
+
+  @AfterEach
+  void tearDown() {
+    LEDFrameClock.setDefault(previous);
+    SimHooks.resumeTiming();
+  }
+
+  /**
+   * Steps through a few seconds of time and checks the fused pattern against the WPILib decorator chain.
+   */
+  private static void assertMatches(LEDPattern expected, LEDPattern actual) {
+    for (int length : kLengths) {
+      AddressableLEDBuffer expectedBuffer = new AddressableLEDBuffer(length);
+      AddressableLEDBuffer actualBuffer = new AddressableLEDBuffer(length);
+      for (int frame = 0; frame < 150; frame++) {
+        clock.tick();
+        expected.applyTo(expectedBuffer);
+        actual.applyTo(actualBuffer);
+        for (int led = 0; led < length; led++) {
+          assertEquals(expectedBuffer.getLED(led), actualBuffer.getLED(led), "LED " + led + " of " + length + " on frame " + frame);
+        }
+        SimHooks.stepTiming(0.023);
+      }
+    }
+  }
+
+  @Test
+  void rainbowMatchesDecoratorChain() {
+    assertMatches(
+      LEDPattern.rainbow(256, 256)
+        .scrollAtRelativeSpeed(Percent.per(Second).of(15))
+        .reversed()
+        .mask(LEDPattern.steps(Map.of(0.0, Color.kWhite, 0.25, Color.kBlack, 0.75, Color.kWhite))
+          .scrollAtRelativeSpeed(Percent.per(Second).of(20))),
+      GlitchLEDPatterns.rainbow);
+  }
+
+  @Test
+  void scrollingGradientsMatchDecoratorChains() {
+    assertMatches(
+      LEDPattern.gradient(GradientType.kContinuous, Color.kBlue, Color.kGreen)
+        .scrollAtRelativeSpeed(Percent.per(Second).of(15)),
+      GlitchLEDPatterns.blue);
+    assertMatches(
+      LEDPattern.gradient(GradientType.kContinuous, GlitchColors.purple, Color.kGreen)
+        .scrollAtRelativeSpeed(Percent.per(Second).of(15)),
+      GlitchLEDPatterns.ace);
+    assertMatches(
+      LEDPattern.gradient(GradientType.kContinuous, Color.kRed, Color.kOrange, Color.kYellow, Color.kGreen, Color.kBlue, GlitchColors.purple)
+        .scrollAtRelativeSpeed(Percent.per(Second).of(10)),
+      GlitchLEDPatterns.funGradient);
+  }
+
+  @Test
+  void blinkingPatternsMatchDecoratorChains() {
+    assertMatches(LEDPattern.solid(Color.kGreen).blink(Second.of(0.1)), GlitchLEDPatterns.blinkyGreen);
+    assertMatches(
+      LEDPattern.gradient(GradientType.kDiscontinuous, Color.kGreen, Color.kPink, Color.kYellow, Color.kRed)
+        .blink(Second.of(0.5)),
+      GlitchLEDPatterns.coralPickup);
+  }
+
+  @Test
+  void brightnessAndNestedMasksMatchDecoratorChains() {
+    LEDPattern stripes = LEDPattern.steps(Map.of(0.0, Color.kWhite, 0.5, Color.kBlack));
+    assertMatches(
+      LEDPattern.gradient(GradientType.kDiscontinuous, Color.kRed, Color.kBlue)
+        .atBrightness(Percent.of(70))
+        .atBrightness(Percent.of(150))
+        .scrollAtRelativeSpeed(Percent.per(Second).of(-30))
+        .reversed()
+        .mask(stripes.reversed().mask(LEDPattern.solid(Color.kYellow)))
+        .reversed(),
+      FusedLEDPattern.gradient(GradientType.kDiscontinuous, Color.kRed, Color.kBlue)
+        .atBrightness(Percent.of(70))
+        .atBrightness(Percent.of(150))
+        .scrollAtRelativeSpeed(Percent.per(Second).of(-30))
+        .reversed()
+        .mask(FusedLEDPattern.steps(Map.of(0.0, Color.kWhite, 0.5, Color.kBlack)).reversed().mask(FusedLEDPattern.solid(Color.kYellow)))
+        .reversed()
+        .build());
+  }
+
+  @Test
+  void brightnessOverAMaskActsOnTheMaskedResult() {
+    LEDPattern pattern = FusedLEDPattern.solid(Color.kWhite)
+      .mask(FusedLEDPattern.solid(Color.kRed).mask(FusedLEDPattern.solid(Color.kWhite)).atBrightness(Percent.of(50)))
+      .build();
+    AddressableLEDBuffer buffer = new AddressableLEDBuffer(10);
+    pattern.applyTo(buffer);
+
+    for (int led = 0; led < 10; led++) {
+      assertEquals(127, buffer.getRed(led));
+      assertEquals(0, buffer.getGreen(led));
+      assertEquals(0, buffer.getBlue(led));
+    }
+  }
+
+  @Test
+  void constantsFollowTheClockOfTheirStrip() {
+    long[] fakeTime = {1_000_000};
+    AbstractLEDS leds = new AbstractLEDS(new LEDFrameClock(() -> fakeTime[0]), 10, 10) {};
+    leds.getSections().get(0).setPattern(GlitchLEDPatterns.blinkyGreen);
+
+    // Blinks every 0.1 s on the strip's clock while the FPGA clock stays paused
+    leds.periodic();
+    assertEquals(128, leds.stripBuffer.getGreen(0));
+    fakeTime[0] += 300_000;
+    leds.periodic();
+    assertEquals(0, leds.stripBuffer.getGreen(0));
+  }
+}
@@ -0,0 +1,124 @@
+package Glitch.Lib.LEDs;
+
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.LEDPattern;
+import edu.wpi.first.wpilibj.util.Color;
+import java.util.Arrays;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GlitchLEDPatternsTest {
+  /**
+   * Runs an overlay on five sections of different lengths with a hand-stepped clock, and checks that once every
+   * section has rendered it no more scratch buffers are created. The base changes over time and counts its renders,
+   * so the overlay really reads it into a scratch buffer on every step.
+   */
+  private static void assertReusesScratchBuffers(String name, Function<LEDPattern, LEDPattern> overlay) {
+    long[] fakeTime = {1_000_000};
+    int[] baseRenders = {0};
+    LEDPattern base = (reader, writer) -> {
+      baseRenders[0]++;
+      GlitchLEDPatterns.blue.applyTo(reader, writer);
+    };
+    AbstractLEDS leds = new AbstractLEDS(new LEDFrameClock(() -> fakeTime[0]), 300, 40, 60, -80, 50, 70) {};
+    for (AbstractLEDS.Section section : leds.getSections()) {
+      section.setPattern(overlay.apply(base));
+    }
+
+    // 20 ms loops land inside every overlay's update window within a few periods
+    for (int i = 0; i < 25; i++) {
+      leds.periodic();
+      fakeTime[0] += 20_000;
+    }
+    long created = LEDScratchBuffers.getBuffersCreated();
+    int warmedUpRenders = baseRenders[0];
+    for (int i = 0; i < 100; i++) {
+      leds.periodic();
+      fakeTime[0] += 20_000;
+    }
+
+    assertTrue(baseRenders[0] > warmedUpRenders, name + " should have stepped after warming up");
+    assertEquals(created, LEDScratchBuffers.getBuffersCreated(), name + " should not create scratch buffers once warmed up");
+  }
+
+  @Test
+  void overlaysReuseScratchBuffersInSteadyState() {
+    assertReusesScratchBuffers("fire", base -> GlitchLEDPatterns.fire(base, 0.11, null, 0.5, 1));
+    assertReusesScratchBuffers("oldFire", base -> GlitchLEDPatterns.oldFire(base, 0.11, 2));
+    assertReusesScratchBuffers("randomNoise", base -> GlitchLEDPatterns.randomNoise(base, 0.05, 3));
+    assertReusesScratchBuffers("ripple", base -> GlitchLEDPatterns.ripple(base, 0.11, 7, 14, 4));
+    assertReusesScratchBuffers("rainDrops", base -> GlitchLEDPatterns.rainDrops(base, 5, 3, 5));
+  }
+
+  /**
+   * Renders a few frames of a pattern on a hand-stepped clock and returns every LED of every frame.
+   */
+  private static int[] renderFrames(LEDPattern pattern) {
+    long[] fakeTime = {10_000};
+    LEDFrameClock previous = LEDFrameClock.getDefault();
+    LEDFrameClock.setDefault(new LEDFrameClock(() -> fakeTime[0]));
+    try {
+      AddressableLEDBuffer buffer = new AddressableLEDBuffer(60);
+      int[] frames = new int[60 * 20];
+      for (int frame = 0; frame < 20; frame++) {
+        LEDFrameClock.getDefault().tick();
+        pattern.applyTo(buffer);
+        for (int led = 0; led < 60; led++) {
+          frames[frame * 60 + led] = PackedColors.pack(buffer.getRed(led), buffer.getGreen(led), buffer.getBlue(led));
+        }
+        fakeTime[0] += 110_000;
+      }
+      return frames;
+    } finally {
+      LEDFrameClock.setDefault(previous);
+    }
+  }
+
+  @Test
+  void seededPatternsAreDeterministic() {
+    assertArrayEquals(
+      renderFrames(GlitchLEDPatterns.fire(GlitchLEDPatterns.fire, 0.11, null, 0.5, 42)),
+      renderFrames(GlitchLEDPatterns.fire(GlitchLEDPatterns.fire, 0.11, null, 0.5, 42)));
+    assertArrayEquals(
+      renderFrames(GlitchLEDPatterns.oldFire(GlitchLEDPatterns.fire, 0.11, 7)),
+      renderFrames(GlitchLEDPatterns.oldFire(GlitchLEDPatterns.fire, 0.11, 7)));
+    assertArrayEquals(
+      renderFrames(GlitchLEDPatterns.randomNoise(GlitchLEDPatterns.purple, 0.11, 3)),
+      renderFrames(GlitchLEDPatterns.randomNoise(GlitchLEDPatterns.purple, 0.11, 3)));
+    assertArrayEquals(
+      renderFrames(GlitchLEDPatterns.rainDrops(GlitchLEDPatterns.purple, 5, 3, 11)),
+      renderFrames(GlitchLEDPatterns.rainDrops(GlitchLEDPatterns.purple, 5, 3, 11)));
+
+    assertNotEquals(
+      Arrays.toString(renderFrames(GlitchLEDPatterns.oldFire(GlitchLEDPatterns.fire, 0.11, 7))),
+      Arrays.toString(renderFrames(GlitchLEDPatterns.oldFire(GlitchLEDPatterns.fire, 0.11, 8))));
+  }
+
+  @Test
+  void rainFallsOnEachSectionSeparately() {
+    long[] fakeTime = {1_000_000};
+    AbstractLEDS leds = new AbstractLEDS(new LEDFrameClock(() -> fakeTime[0]), 60, 30, 30) {};
+    LEDPattern rain = GlitchLEDPatterns.rainDrops(GlitchLEDPatterns.solid(Color.kWhite), 20, 3, 5);
+    leds.getSections().get(0).setPattern(rain);
+    leds.getSections().get(1).setPattern(rain);
+
+    // Sharing drops, the second section would show the first one's drops and never move them on its own
+    boolean differed = false;
+    boolean secondLit = false;
+    for (int frame = 0; frame < 30; frame++) {
+      fakeTime[0] += 200_000;
+      leds.periodic();
+      for (int i = 0; i < 30; i++) {
+        differed |= leds.stripBuffer.getRed(i) != leds.stripBuffer.getRed(30 + i);
+        secondLit |= leds.stripBuffer.getRed(30 + i) > 0;
+      }
+    }
+    assertTrue(differed, "Both sections had the same drops");
+    assertTrue(secondLit, "No drops fell on the second section");
+  }
+}
@@ -0,0 +1,153 @@
+package Glitch.Lib.LEDs.Interfaces;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import Glitch.Lib.LEDs.AbstractLEDS;
+import Glitch.Lib.LEDs.GlitchLEDPatterns;
+import Glitch.Lib.LEDs.LEDFrameClock;
+import Glitch.Lib.LEDs.LEDPalette;
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.LEDPattern;
+import edu.wpi.first.wpilibj.util.Color;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IndexedLEDPatternTest {
+  @Test
+  void stepsMatchLEDPatternSteps() {
+    Map<Double, Color> colors = Map.of(0.25, Color.kRed, 0.5, Color.kBlue);
+    AddressableLEDBuffer expected = new AddressableLEDBuffer(20);
+    LEDPattern.steps(colors).applyTo(expected);
+
+    LEDPalette palette = LEDPalette.of(Color.kBlack, Color.kRed, Color.kBlue);
+    AddressableLEDBuffer buffer = new AddressableLEDBuffer(20);
+    IndexedLEDPattern.steps(Map.of(0.25, 1, 0.5, 2)).withPalette(palette).applyTo(buffer);
+
+    for (int i = 0; i < 20; i++) {
+      assertEquals(expected.getRed(i), buffer.getRed(i), "LED " + i);
+      assertEquals(expected.getGreen(i), buffer.getGreen(i), "LED " + i);
+      assertEquals(expected.getBlue(i), buffer.getBlue(i), "LED " + i);
+    }
+  }
+
+  @Test
+  void indexedEnzoMapsMatchTheirColors() {
+    for (GlitchLEDPatterns.enzoMap face : GlitchLEDPatterns.enzoMap.values()) {
+      AddressableLEDBuffer expected = new AddressableLEDBuffer(50);
+      face.getEnzoMap().applyTo(expected);
+      AddressableLEDBuffer buffer = new AddressableLEDBuffer(50);
+      face.getIndexedEnzoMap().withPalette(GlitchLEDPatterns.enzoMap.palette()).applyTo(buffer);
+      for (int i = 0; i < 50; i++) {
+        assertEquals(expected.getLED(i), buffer.getLED(i), face + " LED " + i);
+      }
+    }
+  }
+
+  @Test
+  void paletteChangesDontRenderTheIndicesAgain() {
+    int[] renders = {0};
+    IndexedLEDPattern halves = new IndexedLEDPattern() {
+      @Override
+      public void applyTo(int length, byte[] indices) {
+        renders[0]++;
+        for (int i = 0; i < length; i++) {
+          indices[i] = (byte) (i < length / 2 ? 0 : 1);
+        }
+      }
+
+      @Override
+      public boolean isTimeInvariant() {
+        return true;
+      }
+    };
+    LEDPalette palette = LEDPalette.of(Color.kRed, Color.kBlue);
+    RefreshRatePattern pattern = (RefreshRatePattern) halves.withPalette(palette);
+    AddressableLEDBuffer buffer = new AddressableLEDBuffer(10);
+
+    assertTrue(pattern.isDue(0, 0));
+    pattern.applyTo(buffer);
+    assertFalse(pattern.isDue(0, 0), "Nothing changed since it was expanded");
+    assertEquals(255, buffer.getRed(0));
+    assertEquals(255, buffer.getBlue(9));
+
+    palette.set(0, Color.kBlue);
+    palette.set(1, Color.kRed);
+    assertTrue(pattern.isDue(0, 0));
+    pattern.applyTo(buffer);
+    assertEquals(255, buffer.getBlue(0));
+    assertEquals(255, buffer.getRed(9));
+    assertEquals(1, renders[0]);
+
+    // A different length is a different set of indices
+    pattern.applyTo(new AddressableLEDBuffer(12));
+    assertEquals(2, renders[0]);
+  }
+
+  @Test
+  void indexPastThePaletteIsBlack() {
+    AddressableLEDBuffer buffer = new AddressableLEDBuffer(5);
+    IndexedLEDPattern.solid(200).withPalette(LEDPalette.of(Color.kWhite)).applyTo(buffer);
+    for (int i = 0; i < 5; i++) {
+      assertEquals(0, buffer.getRed(i) + buffer.getGreen(i) + buffer.getBlue(i));
+    }
+  }
+
+  @Test
+  void sectionsSwapPalettesWithoutRenderingAgain() {
+    long[] fakeTime = {1_000_000};
+    AbstractLEDS leds = new AbstractLEDS(new LEDFrameClock(() -> fakeTime[0]), 30, 30) {};
+    AbstractLEDS.Section section = leds.getSections().get(0);
+    section.setPalette(LEDPalette.of(Color.kRed, Color.kBlue));
+    section.setIndexedPattern(IndexedLEDPattern.steps(Map.of(0, 0, 0.5, 1)));
+    leds.periodic();
+    fakeTime[0] += 20_000;
+    long rendered = section.getRendersPerformed();
+
+    section.setPalette(LEDPalette.of(Color.kWhite, Color.kBlack));
+    leds.periodic();
+    assertEquals(rendered + 1, section.getRendersPerformed(), "The palette change makes the pattern due");
+    assertEquals(255, section.getBufferView().getGreen(0));
+    assertEquals(0, section.getBufferView().getBlue(29));
+  }
+
+  @Test
+  void unchangedPalettesDontRenderOrPush() throws IOException {
+    Path path = Files.createTempFile("leds", ".glex");
+    try {
+      long[] fakeTime = {1_000_000};
+      AbstractLEDS leds = new AbstractLEDS(new LEDFrameClock(() -> fakeTime[0]), 30, 30) {};
+      AbstractLEDS.Section section = leds.getSections().get(0);
+      section.setPalette(LEDPalette.of(Color.kRed, Color.kBlue));
+      section.setIndexedPattern(IndexedLEDPattern.steps(Map.of(0, 0, 0.5, 1)));
+      leds.startExport(path);
+      leds.periodic();
+      assertEquals(1, section.getRendersPerformed());
+      assertEquals(1, leds.getExporter().getFramesExported());
+
+      // A second of 20 ms loops is several push intervals
+      for (int i = 0; i < 50; i++) {
+        fakeTime[0] += 20_000;
+        leds.periodic();
+      }
+      assertEquals(1, section.getRendersPerformed(), "Nothing changed, so nothing renders");
+      assertEquals(1, leds.getExporter().getFramesExported(), "Nothing rendered, so nothing is pushed");
+
+      section.setPalette(LEDPalette.of(Color.kWhite, Color.kBlack));
+      for (int i = 0; i < 50; i++) {
+        fakeTime[0] += 20_000;
+        leds.periodic();
+      }
+      assertEquals(2, section.getRendersPerformed());
+      assertEquals(2, leds.getExporter().getFramesExported());
+      leds.stopExport();
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+}
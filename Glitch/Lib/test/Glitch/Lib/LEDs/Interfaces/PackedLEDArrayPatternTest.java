@@ -0,0 +1,80 @@
+package Glitch.Lib.LEDs.Interfaces;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+import Glitch.Lib.LEDs.PackedColors;
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.util.Color;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PackedLEDArrayPatternTest {
+  // Swaps the red and blue channels of every LED
+  private static final PackedLEDArrayPattern swapRedBlue = (pixels, length) -> {
+    for (int i = 0; i < length; i++) {
+      int rgb = pixels[i];
+      pixels[i] = PackedColors.pack(PackedColors.blue(rgb), PackedColors.green(rgb), PackedColors.red(rgb));
+    }
+  };
+
+  @Test
+  void editsColorsInPlace() {
+    AddressableLEDBuffer buffer = new AddressableLEDBuffer(10);
+    for (int i = 0; i < buffer.getLength(); i++) {
+      buffer.setRGB(i, i, 50, 200);
+    }
+
+    swapRedBlue.applyTo(buffer);
+
+    for (int i = 0; i < buffer.getLength(); i++) {
+      assertEquals(200, buffer.getRed(i));
+      assertEquals(50, buffer.getGreen(i));
+      assertEquals(i, buffer.getBlue(i));
+    }
+  }
+
+  @Test
+  void adaptedPatternsKeepWorking() {
+    LEDArrayPattern oldPattern = colorList -> {
+      ArrayList<Color> result = new ArrayList<Color>();
+      for (int i = 0; i < colorList.size(); i++) {
+        result.add(i % 2 == 0 ? Color.kRed : colorList.get(i));
+      }
+      return result;
+    };
+    AddressableLEDBuffer buffer = new AddressableLEDBuffer(6);
+    for (int i = 0; i < buffer.getLength(); i++) {
+      buffer.setRGB(i, 0, 0, 255);
+    }
+
+    PackedLEDArrayPattern.of(oldPattern).applyTo(buffer);
+
+    for (int i = 0; i < buffer.getLength(); i++) {
+      assertEquals(i % 2 == 0 ? 255 : 0, buffer.getRed(i));
+      assertEquals(i % 2 == 0 ? 0 : 255, buffer.getBlue(i));
+    }
+  }
+
+  @Test
+  void applyToDoesNotAllocate() {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long threadId = Thread.currentThread().getId();
+    AddressableLEDBuffer buffer = new AddressableLEDBuffer(300);
+
+    // Let the scratch buffer grow and the JIT settle before measuring
+    for (int i = 0; i < 20_000; i++) {
+      swapRedBlue.applyTo(buffer);
+    }
+
+    int frames = 1000;
+    long before = threads.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < frames; i++) {
+      swapRedBlue.applyTo(buffer);
+    }
+    long allocatedPerFrame = (threads.getThreadAllocatedBytes(threadId) - before) / frames;
+
+    assertEquals(0, allocatedPerFrame, "Bytes applyTo allocated per frame");
+  }
+}
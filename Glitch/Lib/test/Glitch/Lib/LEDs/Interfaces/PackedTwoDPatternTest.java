@@ -0,0 +1,78 @@
+package Glitch.Lib.LEDs.Interfaces;
+
+import Glitch.Lib.LEDs.PackedColors;
+import Glitch.Lib.LEDs.Interfaces.TwoDArrayPattern.Alignment;
+import Glitch.Lib.LEDs.Interfaces.TwoDArrayPattern.StartPosition;
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.util.Color;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PackedTwoDPatternTest {
+  private static final int kWidth = 6;
+  private static final int kHeight = 4;
+
+  private static Color colorFor(int x, int y) {
+    return new Color(x * 10, y * 10, 100);
+  }
+
+  @Test
+  void mappingMatchesTheFixedTable() {
+    for (StartPosition physicalStart : StartPosition.values()) {
+      for (StartPosition intendedOrigin : StartPosition.values()) {
+        for (Alignment alignment : Alignment.values()) {
+          for (boolean serpentine : new boolean[] {false, true}) {
+            PackedTwoDPattern pattern = new PackedTwoDPattern(3, 2, physicalStart, intendedOrigin, alignment, serpentine);
+            int[] expected = TwoDArrayPatternTest.expectedMapping(physicalStart, intendedOrigin, alignment, serpentine);
+            for (int y = 0; y < 2; y++) {
+              for (int x = 0; x < 3; x++) {
+                pattern.set(x, y, colorFor(x, y));
+              }
+            }
+
+            AddressableLEDBuffer buffer = new AddressableLEDBuffer(6);
+            pattern.applyTo(buffer);
+            for (int y = 0; y < 2; y++) {
+              for (int x = 0; x < 3; x++) {
+                String message = physicalStart + " -> " + intendedOrigin + " " + alignment + (serpentine ? " serpentine" : "") + ", pixel " + x + ", " + y;
+                int led = expected[y * 3 + x];
+                assertEquals(x * 10, buffer.getRed(led), message);
+                assertEquals(y * 10, buffer.getGreen(led), message);
+                assertEquals(100, buffer.getBlue(led), message);
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void columnMajorSerpentineWalksColumnsBackAndForth() {
+    PackedTwoDPattern pattern = new PackedTwoDPattern(3, 2, StartPosition.TOP_LEFT, StartPosition.TOP_LEFT, Alignment.COLUMN_MAJOR, true);
+
+    assertEquals(0, pattern.physicalIndex(0, 0));
+    assertEquals(1, pattern.physicalIndex(0, 1));
+    assertEquals(3, pattern.physicalIndex(1, 0));
+    assertEquals(2, pattern.physicalIndex(1, 1));
+    assertEquals(4, pattern.physicalIndex(2, 0));
+  }
+
+  @Test
+  void fillRectAndBlitAreClipped() {
+    PackedTwoDPattern pattern = new PackedTwoDPattern(kWidth, kHeight, StartPosition.TOP_LEFT, StartPosition.TOP_LEFT, Alignment.ROW_MAJOR, false);
+    pattern.fillRect(-2, -2, 4, 4, 0x123456);
+
+    assertEquals(0x123456, pattern.get(0, 0));
+    assertEquals(0x123456, pattern.get(1, 1));
+    assertEquals(PackedColors.kBlack, pattern.get(2, 2));
+
+    pattern.blit(pattern, 0, 0, kWidth - 1, kHeight - 1, 2, 2);
+    assertEquals(0x123456, pattern.get(kWidth - 1, kHeight - 1));
+    assertEquals(PackedColors.kBlack, pattern.get(kWidth - 2, kHeight - 2));
+
+    pattern.copyRow(0, 2);
+    assertEquals(0x123456, pattern.get(1, 2));
+  }
+}
@@ -0,0 +1,161 @@
+package Glitch.Lib.LEDs.Interfaces;
+
+import java.util.ArrayList;
+
+import Glitch.Lib.LEDs.Interfaces.TwoDArrayPattern.Alignment;
+import Glitch.Lib.LEDs.Interfaces.TwoDArrayPattern.StartPosition;
+import edu.wpi.first.wpilibj.util.Color;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TwoDArrayPatternTest {
+  private static final int kWidth = 3;
+  private static final int kHeight = 2;
+
+  // Strip index of every logical pixel of a 3x2 matrix, in y * width + x order, taken from the per-enum mapping
+  // get2DColor used before it was compiled into a table. Rows are physical start -> intended origin, in the order the
+  // enums are declared. Column-major tables index every column x * height + y, the old mapping did that only for
+  // reversed serpentine columns and indexed the rest as if they were rows.
+  // Rows one after the other
+  private static final int[][] kRowMajor = {
+      {0, 1, 2, 3, 4, 5}, // TOP_LEFT -> TOP_LEFT
+      {2, 1, 0, 5, 4, 3}, // TOP_LEFT -> TOP_RIGHT
+      {3, 4, 5, 0, 1, 2}, // TOP_LEFT -> BOTTOM_LEFT
+      {5, 4, 3, 2, 1, 0}, // TOP_LEFT -> BOTTOM_RIGHT
+      {2, 1, 0, 5, 4, 3}, // TOP_RIGHT -> TOP_LEFT
+      {0, 1, 2, 3, 4, 5}, // TOP_RIGHT -> TOP_RIGHT
+      {5, 4, 3, 2, 1, 0}, // TOP_RIGHT -> BOTTOM_LEFT
+      {3, 4, 5, 0, 1, 2}, // TOP_RIGHT -> BOTTOM_RIGHT
+      {3, 4, 5, 0, 1, 2}, // BOTTOM_LEFT -> TOP_LEFT
+      {5, 4, 3, 2, 1, 0}, // BOTTOM_LEFT -> TOP_RIGHT
+      {0, 1, 2, 3, 4, 5}, // BOTTOM_LEFT -> BOTTOM_LEFT
+      {2, 1, 0, 5, 4, 3}, // BOTTOM_LEFT -> BOTTOM_RIGHT
+      {5, 4, 3, 2, 1, 0}, // BOTTOM_RIGHT -> TOP_LEFT
+      {3, 4, 5, 0, 1, 2}, // BOTTOM_RIGHT -> TOP_RIGHT
+      {2, 1, 0, 5, 4, 3}, // BOTTOM_RIGHT -> BOTTOM_LEFT
+      {0, 1, 2, 3, 4, 5}, // BOTTOM_RIGHT -> BOTTOM_RIGHT
+  };
+
+  // Every odd row runs backwards
+  private static final int[][] kRowMajorSerpentine = {
+      {0, 1, 2, 5, 4, 3}, // TOP_LEFT -> TOP_LEFT
+      {2, 1, 0, 3, 4, 5}, // TOP_LEFT -> TOP_RIGHT
+      {5, 4, 3, 0, 1, 2}, // TOP_LEFT -> BOTTOM_LEFT
+      {3, 4, 5, 2, 1, 0}, // TOP_LEFT -> BOTTOM_RIGHT
+      {2, 1, 0, 3, 4, 5}, // TOP_RIGHT -> TOP_LEFT
+      {0, 1, 2, 5, 4, 3}, // TOP_RIGHT -> TOP_RIGHT
+      {3, 4, 5, 2, 1, 0}, // TOP_RIGHT -> BOTTOM_LEFT
+      {5, 4, 3, 0, 1, 2}, // TOP_RIGHT -> BOTTOM_RIGHT
+      {5, 4, 3, 0, 1, 2}, // BOTTOM_LEFT -> TOP_LEFT
+      {3, 4, 5, 2, 1, 0}, // BOTTOM_LEFT -> TOP_RIGHT
+      {0, 1, 2, 5, 4, 3}, // BOTTOM_LEFT -> BOTTOM_LEFT
+      {2, 1, 0, 3, 4, 5}, // BOTTOM_LEFT -> BOTTOM_RIGHT
+      {3, 4, 5, 2, 1, 0}, // BOTTOM_RIGHT -> TOP_LEFT
+      {5, 4, 3, 0, 1, 2}, // BOTTOM_RIGHT -> TOP_RIGHT
+      {2, 1, 0, 3, 4, 5}, // BOTTOM_RIGHT -> BOTTOM_LEFT
+      {0, 1, 2, 5, 4, 3}, // BOTTOM_RIGHT -> BOTTOM_RIGHT
+  };
+
+  // Columns one after the other
+  private static final int[][] kColumnMajor = {
+      {0, 2, 4, 1, 3, 5}, // TOP_LEFT -> TOP_LEFT
+      {4, 2, 0, 5, 3, 1}, // TOP_LEFT -> TOP_RIGHT
+      {1, 3, 5, 0, 2, 4}, // TOP_LEFT -> BOTTOM_LEFT
+      {5, 3, 1, 4, 2, 0}, // TOP_LEFT -> BOTTOM_RIGHT
+      {4, 2, 0, 5, 3, 1}, // TOP_RIGHT -> TOP_LEFT
+      {0, 2, 4, 1, 3, 5}, // TOP_RIGHT -> TOP_RIGHT
+      {5, 3, 1, 4, 2, 0}, // TOP_RIGHT -> BOTTOM_LEFT
+      {1, 3, 5, 0, 2, 4}, // TOP_RIGHT -> BOTTOM_RIGHT
+      {1, 3, 5, 0, 2, 4}, // BOTTOM_LEFT -> TOP_LEFT
+      {5, 3, 1, 4, 2, 0}, // BOTTOM_LEFT -> TOP_RIGHT
+      {0, 2, 4, 1, 3, 5}, // BOTTOM_LEFT -> BOTTOM_LEFT
+      {4, 2, 0, 5, 3, 1}, // BOTTOM_LEFT -> BOTTOM_RIGHT
+      {5, 3, 1, 4, 2, 0}, // BOTTOM_RIGHT -> TOP_LEFT
+      {1, 3, 5, 0, 2, 4}, // BOTTOM_RIGHT -> TOP_RIGHT
+      {4, 2, 0, 5, 3, 1}, // BOTTOM_RIGHT -> BOTTOM_LEFT
+      {0, 2, 4, 1, 3, 5}, // BOTTOM_RIGHT -> BOTTOM_RIGHT
+  };
+
+  // Every odd column runs backwards
+  private static final int[][] kColumnMajorSerpentine = {
+      {0, 3, 4, 1, 2, 5}, // TOP_LEFT -> TOP_LEFT
+      {4, 3, 0, 5, 2, 1}, // TOP_LEFT -> TOP_RIGHT
+      {1, 2, 5, 0, 3, 4}, // TOP_LEFT -> BOTTOM_LEFT
+      {5, 2, 1, 4, 3, 0}, // TOP_LEFT -> BOTTOM_RIGHT
+      {4, 3, 0, 5, 2, 1}, // TOP_RIGHT -> TOP_LEFT
+      {0, 3, 4, 1, 2, 5}, // TOP_RIGHT -> TOP_RIGHT
+      {5, 2, 1, 4, 3, 0}, // TOP_RIGHT -> BOTTOM_LEFT
+      {1, 2, 5, 0, 3, 4}, // TOP_RIGHT -> BOTTOM_RIGHT
+      {1, 2, 5, 0, 3, 4}, // BOTTOM_LEFT -> TOP_LEFT
+      {5, 2, 1, 4, 3, 0}, // BOTTOM_LEFT -> TOP_RIGHT
+      {0, 3, 4, 1, 2, 5}, // BOTTOM_LEFT -> BOTTOM_LEFT
+      {4, 3, 0, 5, 2, 1}, // BOTTOM_LEFT -> BOTTOM_RIGHT
+      {5, 2, 1, 4, 3, 0}, // BOTTOM_RIGHT -> TOP_LEFT
+      {1, 2, 5, 0, 3, 4}, // BOTTOM_RIGHT -> TOP_RIGHT
+      {4, 3, 0, 5, 2, 1}, // BOTTOM_RIGHT -> BOTTOM_LEFT
+      {0, 3, 4, 1, 2, 5}, // BOTTOM_RIGHT -> BOTTOM_RIGHT
+  };
+
+  static int[] expectedMapping(StartPosition physicalStart, StartPosition intendedOrigin, Alignment alignment, boolean serpentine) {
+    int[][] table = alignment == Alignment.ROW_MAJOR
+        ? (serpentine ? kRowMajorSerpentine : kRowMajor)
+        : (serpentine ? kColumnMajorSerpentine : kColumnMajor);
+    return table[physicalStart.ordinal() * StartPosition.values().length + intendedOrigin.ordinal()];
+  }
+
+  private static String describe(StartPosition physicalStart, StartPosition intendedOrigin, Alignment alignment, boolean serpentine) {
+    return physicalStart + " -> " + intendedOrigin + " " + alignment + (serpentine ? " serpentine" : "");
+  }
+
+  @Test
+  void mappingMatchesTheFixedTable() {
+    for (StartPosition physicalStart : StartPosition.values()) {
+      for (StartPosition intendedOrigin : StartPosition.values()) {
+        for (Alignment alignment : Alignment.values()) {
+          for (boolean serpentine : new boolean[] {false, true}) {
+            assertArrayEquals(expectedMapping(physicalStart, intendedOrigin, alignment, serpentine),
+                TwoDArrayPattern.compileMapping(kWidth, kHeight, physicalStart, intendedOrigin, alignment, serpentine),
+                describe(physicalStart, intendedOrigin, alignment, serpentine));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void colorsLandOnTheirStripIndex() {
+    for (StartPosition physicalStart : StartPosition.values()) {
+      for (StartPosition intendedOrigin : StartPosition.values()) {
+        for (Alignment alignment : Alignment.values()) {
+          for (boolean serpentine : new boolean[] {false, true}) {
+            TwoDArrayPattern pattern = new TwoDArrayPattern(kWidth, kHeight, physicalStart, intendedOrigin, alignment, serpentine);
+            int[] expected = expectedMapping(physicalStart, intendedOrigin, alignment, serpentine);
+            for (int y = 0; y < kHeight; y++) {
+              for (int x = 0; x < kWidth; x++) {
+                pattern.set2DColor(x, y, new Color(x * 10, y * 10, 100));
+              }
+            }
+
+            ArrayList<Color> strip = pattern.colorList(null);
+            for (int y = 0; y < kHeight; y++) {
+              for (int x = 0; x < kWidth; x++) {
+                String message = describe(physicalStart, intendedOrigin, alignment, serpentine) + ", pixel " + x + ", " + y;
+                assertEquals(new Color(x * 10, y * 10, 100), strip.get(expected[y * kWidth + x]), message);
+                assertEquals(new Color(x * 10, y * 10, 100), pattern.get2DColor(x, y), message);
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void coordinatesOutsideTheMatrixWrap() {
+    TwoDArrayPattern pattern = new TwoDArrayPattern(kWidth, kHeight, StartPosition.TOP_LEFT, StartPosition.TOP_LEFT, Alignment.ROW_MAJOR, true);
+    assertEquals(pattern.physicalIndex(2, 1), pattern.physicalIndex(-1, -1));
+    assertEquals(pattern.physicalIndex(0, 0), pattern.physicalIndex(kWidth, kHeight));
+  }
+}
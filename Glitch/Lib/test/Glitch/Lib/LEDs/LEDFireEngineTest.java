@@ -0,0 +1,96 @@
+package Glitch.Lib.LEDs;
+
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.LEDPattern;
+import edu.wpi.first.wpilibj.util.Color;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LEDFireEngineTest {
+  private static AddressableLEDBuffer gradient(int length) {
+    // White at the base through to red at the tip, like GlitchLEDPatterns.fire
+    AddressableLEDBuffer buffer = new AddressableLEDBuffer(length);
+    for (int i = 0; i < length; i++) {
+      buffer.setRGB(i, 255, 255 - i * 255 / (length - 1), 255 - i * 255 / (length - 1));
+    }
+    return buffer;
+  }
+
+  @Test
+  void withoutSparksTheFlameStaysOut() {
+    LEDFireEngine engine = new LEDFireEngine(30);
+    engine.buildPalette(gradient(30), null);
+    LEDRandom random = new LEDRandom(8727);
+    for (int i = 0; i < 20; i++) {
+      engine.step(random, 20, 5, 0);
+    }
+
+    AddressableLEDBuffer buffer = gradient(30);
+    engine.write(buffer);
+    for (int i = 0; i < 30; i++) {
+      assertEquals(0, engine.getHeat(i));
+      assertEquals(0, buffer.getRed(i) + buffer.getGreen(i) + buffer.getBlue(i));
+    }
+  }
+
+  @Test
+  void sparksAtTheBaseDriftUp() {
+    LEDFireEngine engine = new LEDFireEngine(60);
+    LEDRandom random = new LEDRandom(8727);
+    for (int i = 0; i < 40; i++) {
+      engine.step(random, 10, 4, 256);
+    }
+
+    int hottestBase = 0;
+    for (int i = 0; i < 4; i++) {
+      hottestBase = Math.max(hottestBase, engine.getHeat(i));
+    }
+    assertTrue(hottestBase > 100, "The base should be burning, hottest was " + hottestBase);
+    assertTrue(engine.getHeat(10) > 0, "Heat should drift past the spark zone");
+    assertTrue(engine.getHeat(59) < engine.getHeat(5), "The tip should be cooler than the base");
+  }
+
+  @Test
+  void paletteRunsFromTheBaseColorToBlack() {
+    LEDFireEngine engine = new LEDFireEngine(60);
+    engine.buildPalette(gradient(60), null);
+    assertEquals(PackedColors.pack(255, 255, 255), engine.getColor(255));
+    assertEquals(PackedColors.kBlack, engine.getColor(0));
+    // Cooler flames take colors further along the strip, so they lose green and blue before red
+    int warm = engine.getColor(128);
+    assertTrue(PackedColors.red(warm) > PackedColors.green(warm));
+
+    engine.buildPalette(gradient(60), Color.kRed);
+    int tip = engine.getColor(90);
+    assertTrue(PackedColors.red(tip) > 0);
+    assertTrue(PackedColors.green(tip) < PackedColors.red(tip) / 2, "Shifting toward red fades the other channels");
+  }
+
+  @Test
+  void firePatternsBurnSeparatelyOnEverySection() {
+    long[] fakeTime = {10_000};
+    LEDFrameClock previous = LEDFrameClock.getDefault();
+    LEDFrameClock.setDefault(new LEDFrameClock(() -> fakeTime[0]));
+    try {
+      AbstractLEDS leds = new AbstractLEDS(LEDFrameClock.getDefault(), 100, 60, 40) {};
+      LEDPattern fire = GlitchLEDPatterns.fire(GlitchLEDPatterns.fire, 0.11, null, 0.5, 42);
+      for (AbstractLEDS.Section section : leds.getSections()) {
+        section.setPattern(fire);
+      }
+      for (int i = 0; i < 40; i++) {
+        leds.periodic();
+        fakeTime[0] += 110_000;
+      }
+      // Both flames burn from the start of their own section
+      int lit = 0;
+      for (int i = 0; i < 5; i++) {
+        lit += leds.stripBuffer.getRed(i) + leds.stripBuffer.getRed(60 + i);
+      }
+      assertTrue(lit > 0);
+    } finally {
+      LEDFrameClock.setDefault(previous);
+    }
+  }
+}
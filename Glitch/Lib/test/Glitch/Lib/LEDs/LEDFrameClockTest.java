@@ -0,0 +1,63 @@
+package Glitch.Lib.LEDs;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LEDFrameClockTest {
+  private long fakeTime;
+  private LEDFrameClock clock;
+
+  @BeforeEach
+  void setUp() {
+    fakeTime = 5_000_000;
+    clock = new LEDFrameClock(() -> fakeTime, 4, 0.025);
+  }
+
+  @Test
+  void firstFrameHasNoDelta() {
+    clock.tick();
+    assertEquals(0.0, clock.getDeltaSeconds(), 1e-9);
+    assertEquals(5_000_000, clock.getTime());
+  }
+
+  @Test
+  void frameTimeIsLatchedUntilTheNextTick() {
+    clock.tick();
+    fakeTime += 7_000;
+    assertEquals(5_000_000, clock.getTime());
+
+    clock.tick();
+    assertEquals(5_007_000, clock.getTime());
+    assertEquals(0.007, clock.getDeltaSeconds(), 1e-9);
+  }
+
+  @Test
+  void tracksJitterAndOverruns() {
+    long[] deltas = {20_000, 18_000, 22_000, 40_000, 20_000};
+    clock.tick();
+    for (long delta : deltas) {
+      fakeTime += delta;
+      clock.tick();
+    }
+
+    assertEquals(5, clock.getFrameCount());
+    assertEquals(0.018, clock.getMinDeltaSeconds(), 1e-9);
+    assertEquals(0.040, clock.getMaxDeltaSeconds(), 1e-9);
+    assertEquals(0.024, clock.getMeanDeltaSeconds(), 1e-9);
+    assertEquals(1, clock.getOverruns());
+  }
+
+  @Test
+  void ringBufferKeepsTheMostRecentFrames() {
+    for (int i = 0; i < 10; i++) {
+      clock.tick();
+      fakeTime += 1_000;
+    }
+
+    assertEquals(4, clock.getHistoryLength());
+    assertEquals(5_009_000, clock.getTimestamp(0));
+    assertEquals(5_006_000, clock.getTimestamp(3));
+  }
+}
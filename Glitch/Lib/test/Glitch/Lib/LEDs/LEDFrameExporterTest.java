@@ -0,0 +1,145 @@
+package Glitch.Lib.LEDs;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import edu.wpi.first.wpilibj.util.Color;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LEDFrameExporterTest {
+  // Every LED of a frame is worked out from the frame number, so a torn frame has LEDs that disagree
+  private static int color(long frame, int led) {
+    return (int) ((frame * 0x9E3779B1L + led * 0x45D9F3BL) & 0xFFFFFF);
+  }
+
+  @Test
+  void framesRoundTripUnderConcurrentReads() throws Exception {
+    Path path = Files.createTempFile("leds", ".glex");
+    int length = 500;
+    int frames = 3000;
+    try (LEDFrameExporter exporter = new LEDFrameExporter(path, length)) {
+      AtomicBoolean done = new AtomicBoolean(false);
+      AtomicReference<String> failure = new AtomicReference<String>();
+      long[] framesSeen = new long[3];
+      Thread[] readers = new Thread[framesSeen.length];
+      // The writer waits for every reader to get through its first read, so none of them can miss every frame
+      CountDownLatch started = new CountDownLatch(readers.length);
+      for (int r = 0; r < readers.length; r++) {
+        int reader = r;
+        readers[r] = new Thread(() -> {
+          boolean first = true;
+          try {
+            LEDFrameExportReader export = new LEDFrameExportReader(path);
+            int[] pixels = new int[length];
+            long last = 0;
+            while (failure.get() == null) {
+              // Read once more after the writer is done, so every reader sees the last frame
+              boolean finished = done.get();
+              long frame = export.read(pixels);
+              if (first) {
+                started.countDown();
+                first = false;
+              }
+              if (frame < last) {
+                failure.set("Went back from frame " + last + " to " + frame);
+              }
+              if (frame > 0 && export.getTimestampMicros() != frame * 20_000) {
+                failure.set("Frame " + frame + " has the timestamp " + export.getTimestampMicros());
+              }
+              for (int i = 0; i < length && frame > 0; i++) {
+                if (pixels[i] != color(frame, i)) {
+                  failure.set("LED " + i + " of frame " + frame + " is from another frame");
+                  break;
+                }
+              }
+              if (frame != last) {
+                framesSeen[reader]++;
+              }
+              last = frame;
+              if (finished) {
+                break;
+              }
+            }
+          } catch (IOException e) {
+            failure.set(e.toString());
+          } finally {
+            if (first) {
+              started.countDown();
+            }
+          }
+        });
+        readers[r].start();
+      }
+
+      assertTrue(started.await(10, TimeUnit.SECONDS), "The readers never started");
+      PackedLEDBuffer buffer = new PackedLEDBuffer(length);
+      for (long frame = 1; frame <= frames; frame++) {
+        for (int i = 0; i < length; i++) {
+          buffer.getPixels()[i] = color(frame, i);
+        }
+        exporter.export(buffer, frame * 20_000);
+      }
+      done.set(true);
+      for (Thread reader : readers) {
+        reader.join(10_000);
+        assertFalse(reader.isAlive(), "A reader is still running");
+      }
+
+      assertNull(failure.get());
+      assertEquals(frames, exporter.getFramesExported());
+      for (long seen : framesSeen) {
+        assertTrue(seen > 0, "Every reader should have caught some frames");
+      }
+
+      LEDFrameExportReader reader = new LEDFrameExportReader(path);
+      int[] pixels = new int[length];
+      assertEquals(frames, reader.read(pixels));
+      assertEquals(color(frames, 42), pixels[42]);
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  @Test
+  void stripsExportWhatTheyPush() throws IOException {
+    Path path = Files.createTempFile("leds", ".glex");
+    try {
+      long[] fakeTime = {1_000_000};
+      AbstractLEDS leds = new AbstractLEDS(new LEDFrameClock(() -> fakeTime[0]), 20, 20) {};
+      leds.getSections().get(0).setPattern(GlitchLEDPatterns.solid(Color.kOrange));
+      leds.startExport(path);
+      leds.periodic();
+      leds.stopExport();
+
+      LEDFrameExportReader reader = new LEDFrameExportReader(path);
+      int[] pixels = new int[reader.getLength()];
+      assertEquals(1, reader.read(pixels));
+      assertEquals(1_000_000, reader.getTimestampMicros());
+      assertEquals(PackedColors.pack(Color.kOrange), pixels[19]);
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+
+  @Test
+  void otherFilesAreRejected() throws IOException {
+    Path path = Files.createTempFile("leds", ".gled");
+    try {
+      Files.write(path, new byte[128]);
+      assertThrows(IOException.class, () -> new LEDFrameExportReader(path));
+    } finally {
+      Files.deleteIfExists(path);
+    }
+  }
+}
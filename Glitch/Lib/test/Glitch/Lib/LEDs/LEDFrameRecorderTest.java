@@ -0,0 +1,139 @@
+package Glitch.Lib.LEDs;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.util.Color;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LEDFrameRecorderTest {
+  private static final int kLength = 300;
+
+  @TempDir
+  Path tempDir;
+
+  private long fakeTime = 0;
+
+  // Frames that exercise every run type: a few LEDs changing, solid fills, noise and frames that don't change at all
+  private static int[][] testFrames(int count) {
+    LEDRandom random = new LEDRandom(8727);
+    int[][] frames = new int[count][kLength];
+    for (int f = 0; f < count; f++) {
+      int[] frame = frames[f];
+      if (f > 0) {
+        System.arraycopy(frames[f - 1], 0, frame, 0, kLength);
+      }
+      switch (f % 4) {
+        case 0:
+          frame[random.nextInt(kLength)] = random.nextInt() & 0xFFFFFF;
+          break;
+        case 1:
+          int start = random.nextInt(kLength / 2);
+          Arrays.fill(frame, start, start + 100, random.nextInt() & 0xFFFFFF);
+          break;
+        case 2:
+          for (int i = 0; i < kLength; i++) {
+            frame[i] = random.nextInt() & 0xFFFFFF;
+          }
+          break;
+        default:
+          break;
+      }
+    }
+    return frames;
+  }
+
+  private static AddressableLEDBuffer toBuffer(int[] frame) {
+    AddressableLEDBuffer buffer = new AddressableLEDBuffer(frame.length);
+    for (int i = 0; i < frame.length; i++) {
+      buffer.setRGB(i, PackedColors.red(frame[i]), PackedColors.green(frame[i]), PackedColors.blue(frame[i]));
+    }
+    return buffer;
+  }
+
+  @Test
+  void framesRoundTripThroughTheFile() throws IOException {
+    Path path = tempDir.resolve("frames.gled");
+    int[][] frames = testFrames(200);
+    try (LEDFrameRecorder recorder = new LEDFrameRecorder(path, kLength)) {
+      for (int f = 0; f < frames.length; f++) {
+        recorder.record(toBuffer(frames[f]), 1_000_000 + f * 20_000L);
+      }
+      assertEquals(frames.length, recorder.getFramesRecorded());
+    }
+
+    // Much smaller than raw frames, since only a quarter of them change every LED
+    assertTrue(Files.size(path) < frames.length * kLength * 3 / 2);
+
+    LEDFrameReplay replay = new LEDFrameReplay(path, false, () -> fakeTime);
+    assertEquals(kLength, replay.getLength());
+    assertEquals(frames.length, replay.getFrameCount());
+    for (int f = 0; f < frames.length; f++) {
+      int[] decoded = replay.seek(1_000_000 + f * 20_000L + 10_000);
+      assertArrayEquals(frames[f], decoded, "Frame " + f);
+    }
+    // Going back starts over from the first frame
+    assertArrayEquals(frames[3], replay.seek(1_000_000 + 3 * 20_000L));
+  }
+
+  @Test
+  void replayFollowsTheRecordedTimestamps() throws IOException {
+    Path path = tempDir.resolve("timed.gled");
+    try (LEDFrameRecorder recorder = new LEDFrameRecorder(path, 10)) {
+      int[] frame = new int[10];
+      for (int f = 0; f < 3; f++) {
+        Arrays.fill(frame, PackedColors.pack(f * 100, 0, 0));
+        recorder.record(toBuffer(frame), 5_000_000 + f * 200_000L);
+      }
+    }
+
+    LEDFrameReplay replay = new LEDFrameReplay(path, true, () -> fakeTime);
+    AddressableLEDBuffer buffer = new AddressableLEDBuffer(10);
+    fakeTime = 42;
+    replay.applyTo(buffer);
+    assertEquals(0, buffer.getRed(9));
+    fakeTime += 250_000;
+    replay.applyTo(buffer);
+    assertEquals(100, buffer.getRed(9));
+    fakeTime += 200_000;
+    replay.applyTo(buffer);
+    assertEquals(0, buffer.getRed(9), "Loops back to the start after the last frame");
+  }
+
+  @Test
+  void stripsRecordEveryPush() throws IOException {
+    Path path = tempDir.resolve("strip.gled");
+    AbstractLEDS leds = new AbstractLEDS(new LEDFrameClock(() -> fakeTime), 20, 20) {};
+    AbstractLEDS.Section section = leds.getSections().get(0);
+    fakeTime = 1_000_000;
+    leds.startRecording(path);
+
+    section.setPattern(GlitchLEDPatterns.solid(Color.kRed));
+    for (int i = 0; i < 5; i++) {
+      leds.periodic();
+      fakeTime += 40_000;
+    }
+    section.setPattern(GlitchLEDPatterns.solid(Color.kBlue));
+    for (int i = 0; i < 5; i++) {
+      leds.periodic();
+      fakeTime += 40_000;
+    }
+    assertEquals(2, leds.getRecorder().getFramesRecorded());
+    leds.stopRecording();
+    assertNull(leds.getRecorder());
+
+    LEDFrameReplay replay = new LEDFrameReplay(path, false, () -> fakeTime);
+    assertEquals(2, replay.getFrameCount());
+    assertEquals(PackedColors.pack(255, 0, 0), replay.seek(0)[19]);
+    assertEquals(PackedColors.pack(0, 0, 255), replay.seek(Long.MAX_VALUE)[19]);
+  }
+}
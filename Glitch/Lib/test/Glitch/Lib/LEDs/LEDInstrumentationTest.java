@@ -0,0 +1,65 @@
+package Glitch.Lib.LEDs;
+
+import Glitch.Lib.NetworkTableLogger;
+import edu.wpi.first.wpilibj.util.Color;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LEDInstrumentationTest {
+  private long fakeTime;
+  private AbstractLEDS leds;
+  private AbstractLEDS.Section first;
+  private AbstractLEDS.Section second;
+
+  @BeforeEach
+  void setUp() {
+    fakeTime = 1_000_000;
+    leds = new AbstractLEDS(new LEDFrameClock(() -> fakeTime), 20, 10, -10) {};
+    first = leds.getSections().get(0);
+    second = leds.getSections().get(1);
+  }
+
+  private void runLoops(int loops) {
+    for (int i = 0; i < loops; i++) {
+      fakeTime += 20_000;
+      leds.periodic();
+    }
+  }
+
+  @Test
+  void publishesOncePerWindow() {
+    first.setPattern(GlitchLEDPatterns.solid(Color.kRed));
+    second.setPattern(GlitchLEDPatterns.blue);
+    leds.enableInstrumentation(new NetworkTableLogger("LEDInstrumentationTest"), 20);
+    LEDInstrumentation instrumentation = leds.getInstrumentation();
+
+    runLoops(19);
+    assertEquals(0.0, instrumentation.getMeanLoopNanos(), "Nothing is published before the window fills");
+
+    runLoops(21);
+    assertTrue(instrumentation.getMeanLoopNanos() > 0);
+    // The solid section skips every loop, and on 20 ms loops the gradient only renders for the push every 10th loop
+    assertEquals(50.0, instrumentation.getRendersSkippedHz(), 1e-9);
+    assertEquals(45.0, instrumentation.getRendersDeferredHz(), 1e-9);
+    assertEquals(0.0, instrumentation.getSetDataHz(), "There's no strip to push to");
+    if (instrumentation.isAllocationMeasured()) {
+      assertTrue(instrumentation.getAllocatedBytesPerLoop() >= 0);
+    } else {
+      assertEquals(-1.0, instrumentation.getAllocatedBytesPerLoop());
+    }
+
+    leds.disableInstrumentation();
+    assertNull(leds.getInstrumentation());
+  }
+
+  @Test
+  void windowsNeedAtLeastOneLoop() {
+    NetworkTableLogger logger = new NetworkTableLogger("LEDInstrumentationTest");
+    assertThrows(IllegalArgumentException.class, () -> leds.enableInstrumentation(logger, 0));
+  }
+}
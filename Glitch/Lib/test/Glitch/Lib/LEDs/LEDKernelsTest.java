@@ -0,0 +1,71 @@
+package Glitch.Lib.LEDs;
+
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.LEDPattern;
+import edu.wpi.first.wpilibj.util.Color;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class LEDKernelsTest {
+  private interface Kernel {
+    int apply(int a, int b, int amount);
+  }
+
+  // Checks a packed kernel against the same math done one channel at a time
+  private static void assertMatchesChannels(Kernel packed, Kernel channel) {
+    LEDRandom random = new LEDRandom(8727);
+    int[] edges = {0, 1, 127, 128, 254, 255};
+    for (int n = 0; n < 20_000; n++) {
+      // Mix in the channel values where carries and borrows happen
+      int a = n < 216 ? PackedColors.pack(edges[n % 6], edges[n / 6 % 6], edges[n / 36 % 6]) : random.nextInt(1 << 24);
+      int b = random.nextInt(1 << 24);
+      int amount = random.nextInt(257);
+      int expected = PackedColors.pack(
+          channel.apply(PackedColors.red(a), PackedColors.red(b), amount),
+          channel.apply(PackedColors.green(a), PackedColors.green(b), amount),
+          channel.apply(PackedColors.blue(a), PackedColors.blue(b), amount));
+      assertEquals(expected, packed.apply(a, b, amount), Integer.toHexString(a) + " " + Integer.toHexString(b) + " " + amount);
+    }
+  }
+
+  @Test
+  void packedKernelsMatchChannelMath() {
+    assertMatchesChannels((a, b, amount) -> LEDKernels.scale(a, amount), (a, b, amount) -> a * amount >> 8);
+    assertMatchesChannels(LEDKernels::lerp, (a, b, amount) -> (b * amount + a * (256 - amount)) >> 8);
+    assertMatchesChannels((a, b, amount) -> LEDKernels.addSaturate(a, b), (a, b, amount) -> Math.min(255, a + b));
+    assertMatchesChannels((a, b, amount) -> LEDKernels.max(a, b), (a, b, amount) -> Math.max(a, b));
+    assertMatchesChannels((a, b, amount) -> LEDKernels.fade(a, amount & 0xFF), (a, b, amount) -> Math.max(0, a - (amount & 0xFF)));
+  }
+
+  @Test
+  void arrayKernelsWorkInPlace() {
+    int[] pixels = {PackedColors.pack(200, 100, 10), PackedColors.pack(255, 255, 255), 0};
+    int[] other = {PackedColors.pack(100, 200, 250), PackedColors.pack(1, 1, 1), PackedColors.pack(5, 6, 7)};
+
+    LEDKernels.addSaturate(pixels, other, pixels, 3);
+    assertEquals(PackedColors.pack(255, 255, 255), pixels[0]);
+    assertEquals(PackedColors.pack(5, 6, 7), pixels[2]);
+
+    LEDKernels.fade(pixels, 3, 6);
+    assertEquals(PackedColors.pack(249, 249, 249), pixels[0]);
+    assertEquals(PackedColors.pack(0, 0, 1), pixels[2]);
+
+    LEDKernels.scale(pixels, pixels, 2, 128);
+    assertEquals(PackedColors.pack(124, 124, 124), pixels[0]);
+    assertEquals(PackedColors.pack(0, 0, 1), pixels[2], "Only the first two LEDs are touched");
+  }
+
+  @Test
+  void linearProgressMatchesTheProgressMask() {
+    for (double progress : new double[] {-1, 0, 0.33, 0.5, 1, 2}) {
+      AddressableLEDBuffer expected = new AddressableLEDBuffer(30);
+      LEDPattern.solid(Color.kOrange).mask(LEDPattern.progressMaskLayer(() -> progress)).applyTo(expected);
+      AddressableLEDBuffer buffer = new AddressableLEDBuffer(30);
+      GlitchLEDPatterns.linearProgress(LEDPattern.solid(Color.kOrange), progress, 1).applyTo(buffer);
+      for (int i = 0; i < 30; i++) {
+        assertEquals(expected.getLED(i), buffer.getLED(i), progress + " LED " + i);
+      }
+    }
+  }
+}
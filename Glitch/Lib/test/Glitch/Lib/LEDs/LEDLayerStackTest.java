@@ -0,0 +1,121 @@
+package Glitch.Lib.LEDs;
+
+import Glitch.Lib.LEDs.Interfaces.TimeInvariantPattern;
+import Glitch.Lib.LEDs.LEDLayerStack.BlendMode;
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.LEDPattern;
+import edu.wpi.first.wpilibj.util.Color;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class LEDLayerStackTest {
+  private long fakeTime = 0;
+
+  @Test
+  void blendModesCombinePackedColors() {
+    int below = PackedColors.pack(200, 100, 0);
+    int layer = PackedColors.pack(100, 200, 128);
+
+    assertEquals(layer, LEDLayerStack.blend(below, layer, BlendMode.NORMAL, 256));
+    assertEquals(PackedColors.pack(150, 150, 64), LEDLayerStack.blend(below, layer, BlendMode.NORMAL, 128));
+    assertEquals(below, LEDLayerStack.blend(below, PackedColors.kBlack, BlendMode.NORMAL, 256));
+    assertEquals(PackedColors.pack(255, 255, 128), LEDLayerStack.blend(below, layer, BlendMode.ADD, 256));
+    assertEquals(PackedColors.pack(78, 78, 0), LEDLayerStack.blend(below, layer, BlendMode.MULTIPLY, 256));
+    assertEquals(below, LEDLayerStack.blend(below, layer, BlendMode.MULTIPLY, 0));
+    assertEquals(PackedColors.pack(200, 200, 128), LEDLayerStack.blend(below, layer, BlendMode.MAX, 256));
+  }
+
+  @Test
+  void progressBarSitsOnTopOfTheBase() {
+    LEDLayerStack stack = new LEDLayerStack(() -> fakeTime);
+    stack.addLayer(GlitchLEDPatterns.solid(Color.kRed), BlendMode.NORMAL);
+    stack.addLayer(GlitchLEDPatterns.linearProgress(LEDPattern.solid(Color.kBlue), 5, 10), BlendMode.NORMAL);
+
+    AddressableLEDBuffer buffer = new AddressableLEDBuffer(10);
+    stack.applyTo(buffer);
+
+    for (int i = 0; i < 10; i++) {
+      assertEquals(i < 5 ? Color.kBlue : Color.kRed, buffer.getLED(i), "LED " + i);
+    }
+  }
+
+  @Test
+  void unchangedLayersAreCached() {
+    int[] baseRenders = {0};
+    int[] topRenders = {0};
+    LEDLayerStack stack = new LEDLayerStack(() -> fakeTime);
+    LEDLayerStack.Layer base = stack.addLayer(TimeInvariantPattern.of((reader, writer) -> {
+      baseRenders[0]++;
+      for (int i = 0; i < reader.getLength(); i++) {
+        writer.setRGB(i, 0, 0, 100);
+      }
+    }), BlendMode.NORMAL);
+    stack.addLayer((reader, writer) -> {
+      topRenders[0]++;
+      writer.setRGB(0, 100, 0, 0);
+    }, BlendMode.ADD);
+
+    AddressableLEDBuffer buffer = new AddressableLEDBuffer(4);
+    for (int frame = 0; frame < 5; frame++) {
+      stack.applyTo(buffer);
+    }
+    assertEquals(1, baseRenders[0]);
+    assertEquals(5, topRenders[0]);
+    assertEquals(PackedColors.pack(100, 0, 100), PackedColors.pack(buffer.getRed(0), buffer.getGreen(0), buffer.getBlue(0)));
+    assertEquals(100, buffer.getBlue(3));
+
+    // A new length or a new pattern renders the base again
+    stack.applyTo(new AddressableLEDBuffer(6));
+    assertEquals(2, baseRenders[0]);
+    base.setPattern(GlitchLEDPatterns.solid(Color.kGreen));
+    stack.applyTo(buffer);
+    assertEquals(128, buffer.getGreen(3));
+  }
+
+  @Test
+  void sectionsCanSwitchToALayerStack() {
+    FakeLEDS leds = new FakeLEDS();
+    AbstractLEDS.Section section = leds.getSections().get(0);
+    LEDPattern red = GlitchLEDPatterns.solid(Color.kRed);
+    section.setPattern(red);
+
+    LEDLayerStack stack = section.getLayers();
+    assertSame(stack, section.getCurrentPattern());
+    assertSame(red, stack.getLayers().get(0).getPattern());
+    assertSame(stack, section.getLayers());
+  }
+
+  @Test
+  void patternsSetOverAStackGoOnItsBottomLayer() {
+    FakeLEDS leds = new FakeLEDS();
+    AbstractLEDS.Section section = leds.getSections().get(0);
+    LEDLayerStack stack = section.getLayers();
+    LEDLayerStack.Layer top = stack.addLayer(GlitchLEDPatterns.solid(Color.kRed), LEDLayerStack.BlendMode.ADD);
+
+    LEDPattern blue = GlitchLEDPatterns.solid(Color.kBlue);
+    section.setPattern(blue);
+    assertSame(stack, section.getLayers());
+    assertSame(stack, section.getCurrentPattern());
+    assertSame(blue, stack.getLayers().get(0).getPattern());
+    assertSame(top, stack.getLayers().get(1));
+  }
+
+  @Test
+  void stacksMadeDuringACommandKeepTheSetPattern() {
+    FakeLEDS leds = new FakeLEDS();
+    AbstractLEDS.Section section = leds.getSections().get(0);
+    LEDPattern red = GlitchLEDPatterns.solid(Color.kRed);
+    LEDPattern blue = GlitchLEDPatterns.solid(Color.kBlue);
+    section.setPattern(red);
+    LEDCommand command = new LEDCommand(section, blue);
+    command.initialize();
+
+    LEDLayerStack stack = section.getLayers();
+    assertSame(red, stack.getLayers().get(0).getPattern());
+    assertSame(blue, section.getCurrentPattern(), "The command stays on top");
+    command.end(false);
+    assertSame(stack, section.getCurrentPattern());
+  }
+}
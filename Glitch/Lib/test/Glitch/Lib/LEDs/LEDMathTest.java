@@ -0,0 +1,38 @@
+package Glitch.Lib.LEDs;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LEDMathTest {
+  @Test
+  void sinAndCosStayWithinTheirErrorBound() {
+    for (double x = -1000; x < 1000; x += 0.0137) {
+      assertEquals(Math.sin(x), LEDMath.sin(x), 8e-4, "sin(" + x + ")");
+      assertEquals(Math.cos(x), LEDMath.cos(x), 8e-4, "cos(" + x + ")");
+    }
+  }
+
+  @Test
+  void triangleMatchesAsinOfSin() {
+    for (double x = -50; x < 50; x += 0.01) {
+      assertEquals(Math.asin(Math.sin(x)), LEDMath.triangle(x), 1e-9, "triangle(" + x + ")");
+    }
+  }
+
+  @Test
+  void rootsAndPowersStayWithinTheirErrorBounds() {
+    for (int i = 0; i < 256; i++) {
+      assertEquals(Math.sqrt(i), LEDMath.sqrt255(i), 1e-6);
+      assertEquals((int) Math.round(255 * Math.pow(i / 255.0, 2.2)), LEDMath.powTable(2.2)[i]);
+    }
+    for (double x = 1e-6; x < 1e9; x *= 1.37) {
+      double relativeError = Math.abs(LEDMath.fastSqrt(x) - Math.sqrt(x)) / Math.sqrt(x);
+      assertTrue(relativeError < 2e-6, "fastSqrt(" + x + ") is off by " + relativeError);
+    }
+    assertEquals(0.0, LEDMath.fastSqrt(-4));
+    assertEquals(Math.pow(1.7, 5), LEDMath.powInt(1.7, 5), 1e-12);
+    assertEquals(1.0, LEDMath.powInt(3, 0));
+  }
+}
@@ -0,0 +1,65 @@
+package Glitch.Lib.LEDs;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LEDParticlesTest {
+  @Test
+  void expiredParticlesAreSwapRemoved() {
+    LEDParticles particles = new LEDParticles(3);
+    assertTrue(particles.spawn(1, 0, 0, 0, 1.0f));
+    assertTrue(particles.spawn(2, 0, 0, 0, 0.5f));
+    assertTrue(particles.spawn(3, 0, 10, 0, 1.0f));
+    assertFalse(particles.spawn(4, 0, 0, 0, 1.0f), "The system is full");
+
+    particles.update(0.6, null, null, 10, 1);
+
+    // The middle particle expired and the last one took its place
+    assertEquals(2, particles.size());
+    assertEquals(1, particles.getX(0), 1e-6);
+    assertEquals(9, particles.getX(1), 1e-5);
+    assertEquals(0.6, particles.getAge(1), 1e-6);
+  }
+
+  @Test
+  void render1DWrapsAndClamps() {
+    LEDParticles particles = new LEDParticles(4);
+    particles.spawn(0, 0, 0, 0, 1.0f);
+    particles.spawn(0, 0, 0, 0, 1.0f);
+
+    float[] brightness = particles.render1D(10, (age, lifetime, distance) -> distance <= 1 ? 0.75f : 0, 1, true);
+
+    assertEquals(1.0f, brightness[0]);
+    assertEquals(1.0f, brightness[1]);
+    assertEquals(1.0f, brightness[9], "Light past the start wraps to the end");
+    assertEquals(0.0f, brightness[5]);
+  }
+
+  @Test
+  void render2DLightsARadius() {
+    LEDParticles particles = new LEDParticles(1);
+    particles.spawn(2, 2, 0, 0, 1.0f);
+
+    float[] brightness = particles.render2D(5, 5, (age, lifetime, distance) -> distance <= 1.01f ? 1 : 0, 2);
+
+    int lit = 0;
+    for (int i = 0; i < 25; i++) {
+      lit += brightness[i] > 0 ? 1 : 0;
+    }
+    assertEquals(5, lit, "The center and its four neighbours");
+  }
+
+  @Test
+  void randomSpawnKeepsItsAverageRate() {
+    LEDParticles particles = new LEDParticles(10_000);
+    LEDRandom random = new LEDRandom(5);
+    LEDParticles.SpawnKernel spawner = LEDParticles.randomSpawn(10, 1000);
+    for (int i = 0; i < 500; i++) {
+      particles.update(0.02, spawner, random, 60, 1);
+    }
+    assertEquals(100, particles.size(), 25);
+  }
+}
@@ -0,0 +1,89 @@
+package Glitch.Lib.LEDs;
+
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.util.Color;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LEDPowerLimiterTest {
+  private static AddressableLEDBuffer solid(int length, int red, int green, int blue) {
+    AddressableLEDBuffer buffer = new AddressableLEDBuffer(length);
+    for (int i = 0; i < length; i++) {
+      buffer.setRGB(i, red, green, blue);
+    }
+    return buffer;
+  }
+
+  @Test
+  void framesWithinBudgetPassThrough() {
+    LEDPowerLimiter limiter = new LEDPowerLimiter(60, 2);
+    AddressableLEDBuffer frame = solid(60, 255, 0, 0);
+
+    assertSame(frame, limiter.apply(frame));
+    assertFalse(limiter.isLimiting());
+    // 20 mA of red and 1 mA idle for each LED
+    assertEquals(1.26, limiter.getEstimatedAmps(), 1e-6);
+    assertEquals(limiter.getEstimatedAmps(), limiter.getLimitedAmps(), 1e-9);
+  }
+
+  @Test
+  void framesOverBudgetAreDimmedIntoACopy() {
+    LEDPowerLimiter limiter = new LEDPowerLimiter(300, 5);
+    AddressableLEDBuffer frame = solid(300, 255, 255, 255);
+
+    AddressableLEDBuffer output = limiter.apply(frame);
+    assertNotSame(frame, output);
+    assertTrue(limiter.isLimiting());
+    assertEquals(18.3, limiter.getEstimatedAmps(), 1e-6);
+    assertTrue(limiter.getLimitedAmps() <= 5.0, "Limited to " + limiter.getLimitedAmps());
+    assertTrue(limiter.getLimitedAmps() > 4.5, "Dimmed more than it needed to");
+    assertEquals(255, frame.getRed(0), "The frame itself is left alone");
+    assertEquals(output.getRed(0), output.getBlue(299));
+    assertTrue(output.getRed(0) < 255);
+
+    // Back under budget, the frame goes straight through again
+    AddressableLEDBuffer dim = solid(300, 10, 10, 10);
+    assertSame(dim, limiter.apply(dim));
+    assertFalse(limiter.isLimiting());
+  }
+
+  @Test
+  void runningEstimateMatchesARecount() {
+    LEDPowerLimiter limiter = new LEDPowerLimiter(100, 100, 18, 20, 22, 0.5);
+    LEDRandom random = new LEDRandom(8727);
+    AddressableLEDBuffer frame = new AddressableLEDBuffer(100);
+    for (int f = 0; f < 50; f++) {
+      for (int i = 0; i < 5; i++) {
+        frame.setRGB(random.nextInt(100), random.nextInt(256), random.nextInt(256), random.nextInt(256));
+      }
+      limiter.apply(frame);
+      LEDPowerLimiter fresh = new LEDPowerLimiter(100, 100, 18, 20, 22, 0.5);
+      fresh.apply(frame);
+      assertEquals(fresh.getEstimatedAmps(), limiter.getEstimatedAmps(), 1e-9, "Frame " + f);
+    }
+  }
+
+  @Test
+  void stripsPushTheLimitedFrame() {
+    long[] fakeTime = {1_000_000};
+    AbstractLEDS leds = new AbstractLEDS(new LEDFrameClock(() -> fakeTime[0]), 200, 200) {};
+    leds.getSections().get(0).setPattern(GlitchLEDPatterns.solid(Color.kWhite));
+    leds.setCurrentLimit(3);
+    leds.periodic();
+
+    LEDPowerLimiter limiter = leds.getPowerLimiter();
+    assertTrue(limiter.isLimiting());
+    assertEquals(12.2, limiter.getEstimatedAmps(), 1e-6);
+    assertEquals(255, leds.stripBuffer.getRed(0), "Sections still render at full brightness");
+
+    assertThrows(IllegalArgumentException.class, () -> leds.setPowerLimiter(new LEDPowerLimiter(100, 3)));
+    assertThrows(IllegalArgumentException.class, () -> leds.setPowerLimiter(new LEDPowerLimiter(300, 3)),
+        "A longer limiter would read past the strip and push a longer frame");
+  }
+}
@@ -0,0 +1,40 @@
+package Glitch.Lib.LEDs;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LEDRandomTest {
+  @Test
+  void sameSeedGivesTheSameNumbers() {
+    LEDRandom first = new LEDRandom(1234);
+    LEDRandom second = new LEDRandom(1234);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(first.nextLong(), second.nextLong());
+    }
+    assertNotEquals(new LEDRandom(1).nextLong(), new LEDRandom(2).nextLong());
+  }
+
+  @Test
+  void valuesStayInRange() {
+    LEDRandom random = new LEDRandom(99);
+    float[] floats = new float[1001];
+    random.nextFloats(floats);
+
+    double sum = 0;
+    for (float value : floats) {
+      assertTrue(value >= 0 && value < 1, "Float out of range: " + value);
+      sum += value;
+    }
+    assertEquals(0.5, sum / floats.length, 0.05);
+
+    for (int i = 0; i < 1000; i++) {
+      double value = random.nextDouble();
+      assertTrue(value >= 0 && value < 1, "Double out of range: " + value);
+      int index = random.nextInt(60);
+      assertTrue(index >= 0 && index < 60, "Int out of range: " + index);
+    }
+  }
+}
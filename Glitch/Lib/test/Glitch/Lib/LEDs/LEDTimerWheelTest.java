@@ -0,0 +1,77 @@
+package Glitch.Lib.LEDs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LEDTimerWheelTest {
+  private final List<Long> expiredAt = new ArrayList<Long>();
+  private long now = 0;
+
+  private final class TestTimer extends LEDTimerWheel.Timer {
+    final long deadline;
+
+    TestTimer(long deadline) {
+      this.deadline = deadline;
+    }
+
+    @Override
+    protected void expired() {
+      assertTrue(now >= deadline, "Expired at " + now + " before its deadline " + deadline);
+      expiredAt.add(deadline);
+    }
+  }
+
+  @Test
+  void timersExpireInOrderAcrossEveryLevel() {
+    LEDTimerWheel wheel = new LEDTimerWheel(1_000);
+    now = 5_000;
+    // From the next tick out past the top level
+    long[] delays = {1_000, 2_000, 63_000, 64_000, 65_500, 4_095_000, 4_096_000, 300_000_000, 20_000_000_000L};
+    for (long delay : delays) {
+      wheel.schedule(new TestTimer(now + delay), now, now + delay);
+    }
+    assertEquals(delays.length, wheel.size());
+
+    // Loop-sized steps, so every timer should go off within a step of its deadline
+    while (wheel.size() > 0) {
+      now += 20_000;
+      int before = expiredAt.size();
+      wheel.advance(now);
+      for (int i = before; i < expiredAt.size(); i++) {
+        assertTrue(now - expiredAt.get(i) < 20_000 + 1_000, "Expired late at " + now);
+      }
+    }
+
+    assertEquals(delays.length, expiredAt.size());
+    for (int i = 1; i < expiredAt.size(); i++) {
+      assertTrue(expiredAt.get(i - 1) <= expiredAt.get(i));
+    }
+  }
+
+  @Test
+  void cancelledTimersNeverExpire() {
+    LEDTimerWheel wheel = new LEDTimerWheel();
+    TestTimer kept = new TestTimer(100_000);
+    TestTimer cancelled = new TestTimer(100_000);
+    wheel.schedule(kept, now, 100_000);
+    wheel.schedule(cancelled, now, 100_000);
+
+    assertTrue(wheel.cancel(cancelled));
+    assertFalse(wheel.cancel(cancelled));
+    assertFalse(cancelled.isScheduled());
+
+    now = 99_999;
+    wheel.advance(now);
+    assertEquals(0, expiredAt.size());
+    now = 100_000;
+    wheel.advance(now);
+    assertEquals(List.of(100_000L), expiredAt);
+    assertEquals(0, wheel.size());
+  }
+}
@@ -0,0 +1,99 @@
+package Glitch.Lib.LEDs;
+
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.LEDPattern;
+import edu.wpi.first.wpilibj.util.Color;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SpatialLEDPatternsTest {
+  // Up one upright, across the top rail and back down the other upright, 1 m by 0.5 m
+  private static LEDLayout frame() {
+    return new LEDLayout(30)
+        .placeLine(0, 10, 0, 0, 0, 0, 0, 0.5)
+        .placeLine(10, 10, 0.1, 0, 0.5, 0.9, 0, 0.5)
+        .placeLine(20, 10, 1, 0, 0.5, 1, 0, 0);
+  }
+
+  @Test
+  void linesAndSlicesPlaceLEDs() {
+    LEDLayout layout = frame();
+    assertEquals(0.5f, layout.z[9], 1e-6);
+    assertEquals(0.9f, layout.x[19], 1e-6);
+    assertEquals(0f, layout.z[29], 1e-6);
+
+    // Backwards slices match backwards buffer views
+    LEDLayout slice = layout.slice(29, 20);
+    assertEquals(10, slice.length);
+    assertEquals(layout.z[29], slice.z[0]);
+    assertEquals(layout.z[20], slice.z[9]);
+  }
+
+  @Test
+  void axisGradientRunsAcrossTheRobot() {
+    AddressableLEDBuffer buffer = new AddressableLEDBuffer(30);
+    SpatialLEDPatterns.axisGradient(frame(), 1, 0, 0, Color.kRed, Color.kBlue).applyTo(buffer);
+
+    // Both uprights are at the ends of the x axis, however the strip runs
+    for (int i = 0; i < 10; i++) {
+      assertEquals(255, buffer.getRed(i));
+      assertEquals(0, buffer.getBlue(i));
+      assertEquals(255, buffer.getBlue(20 + i));
+    }
+    assertTrue(buffer.getRed(12) > buffer.getRed(17));
+  }
+
+  @Test
+  void planarWavesMoveOverTime() {
+    long[] fakeTime = {0};
+    LEDFrameClock previous = LEDFrameClock.getDefault();
+    LEDFrameClock.setDefault(new LEDFrameClock(() -> fakeTime[0]));
+    try {
+      // One band per meter moving at a quarter meter per second along x
+      AddressableLEDBuffer buffer = new AddressableLEDBuffer(30);
+      LEDPattern wave = SpatialLEDPatterns.planarWave(frame(), 1, 0, 0, 1, 0.25, Color.kWhite);
+      wave.applyTo(buffer);
+      // Both uprights are a whole wavelength apart, so they match, and are halfway up the sine at the start
+      assertEquals(buffer.getRed(0), buffer.getRed(25));
+      assertEquals(128.0, buffer.getRed(0), 1.0);
+
+      fakeTime[0] += 1_000_000;
+      wave.applyTo(buffer);
+      // A quarter wavelength later the trough has reached the uprights
+      assertTrue(buffer.getRed(0) < 5, "Was " + buffer.getRed(0));
+      for (int i = 0; i < 10; i++) {
+        assertEquals(buffer.getRed(0), buffer.getRed(i), "An upright is all at the same x");
+      }
+    } finally {
+      LEDFrameClock.setDefault(previous);
+    }
+  }
+
+  @Test
+  void radialPulsesGrowFromTheCenter() {
+    long[] fakeTime = {0};
+    LEDFrameClock previous = LEDFrameClock.getDefault();
+    LEDFrameClock.setDefault(new LEDFrameClock(() -> fakeTime[0]));
+    try {
+      LEDLayout line = new LEDLayout(11).placeLine(0, 11, 0, 0, 0, 1, 0, 0);
+      AddressableLEDBuffer buffer = new AddressableLEDBuffer(11);
+      LEDPattern pulse = SpatialLEDPatterns.radialPulse(line, 0, 0, 0, 1, 0.15, 2, Color.kWhite);
+
+      fakeTime[0] = 500_000;
+      pulse.applyTo(buffer);
+      assertEquals(0, buffer.getRed(0));
+      assertTrue(buffer.getRed(5) > 250, "The ring is half a meter out after half a second");
+      assertEquals(0, buffer.getRed(10));
+
+      // The next ring starts from the center again
+      fakeTime[0] = 2_000_000;
+      pulse.applyTo(buffer);
+      assertTrue(buffer.getRed(0) > 250);
+      assertEquals(0, buffer.getRed(5));
+    } finally {
+      LEDFrameClock.setDefault(previous);
+    }
+  }
+}